@@ -3,9 +3,11 @@ package com.andersonmarques.cursomc;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 @SpringBootApplication
+@EnableScheduling
 public class CursomcApplication implements CommandLineRunner {
 	
 	public static void main(String[] args) {
@@ -9,6 +9,8 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 
 import com.andersonmarques.cursomc.services.DBService;
+import com.andersonmarques.cursomc.services.EmailService;
+import com.andersonmarques.cursomc.services.SmtpEmailService;
 
 @Configuration
 @Profile("dev")
@@ -31,5 +33,10 @@ public class DevConfig {
     	dbService.instantiateTestDatabase();
         return true;
     }
+    
+    @Bean
+	public EmailService emailService() {
+		return new SmtpEmailService();
+	}
   
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.andersonmarques.cursomc.config;
 import java.util.Arrays;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
@@ -15,6 +16,7 @@ import org.springframework.security.config.annotation.web.configuration.WebSecur
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -22,6 +24,11 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import com.andersonmarques.cursomc.security.JWTAuthenticationFilter;
 import com.andersonmarques.cursomc.security.JWTAuthorizationFilter;
 import com.andersonmarques.cursomc.security.JWTUtil;
+import com.andersonmarques.cursomc.security.LimiteRequisicoes;
+import com.andersonmarques.cursomc.security.LimiteRequisicoesFilter;
+import com.andersonmarques.cursomc.security.LimiteRequisicoesFilter.Regra;
+import com.andersonmarques.cursomc.security.VerificadorSenha;
+import com.andersonmarques.cursomc.services.RefreshTokenService;
 
 @Configuration
 @EnableWebSecurity
@@ -37,12 +44,35 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter{
 	@Autowired
 	private JWTUtil jwtUtil;
 	
+	@Autowired
+	private VerificadorSenha verificadorSenha;
+	
+	@Autowired
+	private LimiteRequisicoes limiteRequisicoes;
+	
+	@Autowired
+	private RefreshTokenService refreshTokenService;
+	
+	//Requisições por minuto aceitas por IP e por email em cada endpoint limitado
+	@Value("${limite.login.ip}")
+	private int loginPorIp;
+	@Value("${limite.login.email}")
+	private int loginPorEmail;
+	@Value("${limite.forgot.ip}")
+	private int forgotPorIp;
+	@Value("${limite.forgot.email}")
+	private int forgotPorEmail;
+	@Value("${limite.cadastro.ip}")
+	private int cadastroPorIp;
+	@Value("${limite.cadastro.email}")
+	private int cadastroPorEmail;
+	
 	//Informa quais endpoint's são públicos
 	public static final String[] PUBLIC_MATCHERS = {"/h2-console/**"};
 	
 	public static final String[] PUBLIC_MATCHERS_GET = {"/produtos/**", "/categorias/**", "/estados/**"};
 	
-	public static final String[] PUBLIC_MATCHERS_POST = {"/clientes", "/clientes/picture", "/auth/forgot/**" };
+	public static final String[] PUBLIC_MATCHERS_POST = {"/clientes", "/clientes/picture", "/auth/forgot/**", "/auth/refresh_token/**" };
 
 	@Override
 	protected void configure(HttpSecurity http) throws Exception {
@@ -62,15 +92,21 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter{
 		.anyRequest()
 		.authenticated();
 		
-		http.addFilter(new JWTAuthenticationFilter(authenticationManager(), jwtUtil));
-		http.addFilter(new JWTAuthorizationFilter(authenticationManager(), jwtUtil, userDetailsService));
+		//Limite de tentativas antes do login, assim o excesso é recusado sem consultar o banco nem calcular hash
+		http.addFilterBefore(new LimiteRequisicoesFilter(limiteRequisicoes,
+				new Regra("login", loginPorIp, loginPorEmail),
+				new Regra("forgot", forgotPorIp, forgotPorEmail),
+				new Regra("cadastro", cadastroPorIp, cadastroPorEmail)), UsernamePasswordAuthenticationFilter.class);
+		http.addFilter(new JWTAuthenticationFilter(authenticationManager(), jwtUtil, refreshTokenService));
+		http.addFilter(new JWTAuthorizationFilter(authenticationManager(), jwtUtil));
 		//Anotação para informar que o back-end não criará estados
 		http.sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS);
 	}
 	
 	@Override
 	protected void configure(AuthenticationManagerBuilder auth) throws Exception {
-		auth.userDetailsService(userDetailsService).passwordEncoder(bCryptPasswordEncoder());
+		//A senha do login é verificada no pool limitado do VerificadorSenha
+		auth.userDetailsService(userDetailsService).passwordEncoder(verificadorSenha);
 	}
 	
 	//Libera conexões de múltiplas fontes
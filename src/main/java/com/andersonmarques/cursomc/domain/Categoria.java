@@ -4,15 +4,32 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.ManyToMany;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.andersonmarques.cursomc.utils.Normalizador;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 
 //Sempre implementar o Serializable, Entity para informar qual tabela será criada
 @Entity
+@Cacheable
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE, region="categoria")
+//idx_categoria_nome atende a paginação por cursor ordenada por nome (KeysetQuery)
+@Table(indexes={
+		@Index(name="idx_categoria_nome_normalizado", columnList="nomeNormalizado"),
+		@Index(name="idx_categoria_nome", columnList="nome, id")})
 public class Categoria implements Serializable {
 	private static final long serialVersionUID = 1L;	
 	
@@ -22,6 +39,10 @@ public class Categoria implements Serializable {
 	private Integer id;
 	private String nome;
 	
+	//Nome sem acento e em minúsculas, gravado junto com o nome para as buscas usarem o índice
+	@JsonIgnore
+	private String nomeNormalizado;
+	
 	//Informa com a anotação que essa será usado na entidade de relacionamento, muitos para muitos, criado na Classe Produto.
 	@ManyToMany(mappedBy="categorias")
 	private List<Produto> produtos = new ArrayList<>();
@@ -57,6 +78,17 @@ public class Categoria implements Serializable {
 	public void setNome(String nome) {
 		this.nome = nome;
 	}
+	
+	public String getNomeNormalizado() {
+		return nomeNormalizado;
+	}
+	
+	//Mantém o nome normalizado atualizado em toda gravação
+	@PrePersist
+	@PreUpdate
+	private void normalizarNome() {
+		nomeNormalizado = Normalizador.normalizar(nome);
+	}
 
 	@Override
 	public int hashCode() {
@@ -3,6 +3,10 @@ package com.andersonmarques.cursomc.domain;
 import com.andersonmarques.cursomc.domain.enums.Perfil;
 import com.andersonmarques.cursomc.domain.enums.TipoCliente;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import java.io.Serializable;
@@ -13,12 +17,17 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 @Entity
+//Paginação por cursor ordenada por nome (KeysetQuery), por email o índice único já serve
+@Table(indexes=@Index(name="idx_cliente_nome", columnList="nome, id"))
 public class Cliente implements Serializable{
 	private static final long serialVersionUID = 1L;
 	
+	//Id Snowflake de 64 bits, vai como texto no JSON porque passa do maior inteiro exato do JavaScript
 	@Id
-	@GeneratedValue(strategy=GenerationType.IDENTITY)
-	private Integer id;
+	@GeneratedValue(generator="snowflake")
+	@GenericGenerator(name="snowflake", strategy="com.andersonmarques.cursomc.utils.SnowflakeIdGenerator")
+	@JsonSerialize(using=ToStringSerializer.class)
+	private Long id;
 	private String nome;
 	
 	@Column(unique = true)
@@ -50,7 +59,7 @@ public class Cliente implements Serializable{
 		addPerfil(Perfil.CLIENTE);
 	}
 	
-	public Cliente(Integer id, String nome, String email, String cpfOuCnpj, TipoCliente tipo, String senha) {
+	public Cliente(Long id, String nome, String email, String cpfOuCnpj, TipoCliente tipo, String senha) {
 		super();
 		this.id = id;
 		this.nome = nome;
@@ -62,12 +71,12 @@ public class Cliente implements Serializable{
 	}
 
 
-	public Integer getId() {
+	public Long getId() {
 		return id;
 	}
 
 
-	public void setId(Integer id) {
+	public void setId(Long id) {
 		this.id = id;
 	}
 
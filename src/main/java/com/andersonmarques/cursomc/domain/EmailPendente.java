@@ -0,0 +1,133 @@
+package com.andersonmarques.cursomc.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.GenericGenerator;
+
+import com.andersonmarques.cursomc.domain.enums.SituacaoEmail;
+
+//Caixa de saída (outbox) dos emails de confirmação de pedido.
+//A linha é gravada na mesma transação do pedido e o envio acontece depois, em segundo plano (EmailOutboxService),
+//assim o pedido não espera o SMTP e uma falha no envio não desfaz o pedido.
+@Entity
+@Table(indexes=@Index(name="idx_email_pendente_situacao_proxima", columnList="situacao,proximaTentativa"))
+public class EmailPendente implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	@GeneratedValue(generator="snowflake")
+	@GenericGenerator(name="snowflake", strategy="com.andersonmarques.cursomc.utils.SnowflakeIdGenerator")
+	private Long id;
+
+	private Long pedidoId;
+	private Integer situacao;
+	private Integer tentativas;
+	private Date criadoEm;
+
+	//Só é enviado a partir desse instante: espera entre tentativas e reserva enquanto um nó está enviando
+	private Date proximaTentativa;
+
+	@Column(length=500)
+	private String ultimoErro;
+
+	public EmailPendente() {}
+
+	public EmailPendente(Long id, Long pedidoId, Date criadoEm) {
+		super();
+		this.id = id;
+		this.pedidoId = pedidoId;
+		this.situacao = SituacaoEmail.PENDENTE.getCod();
+		this.tentativas = 0;
+		this.criadoEm = criadoEm;
+		this.proximaTentativa = criadoEm;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public Long getPedidoId() {
+		return pedidoId;
+	}
+
+	public void setPedidoId(Long pedidoId) {
+		this.pedidoId = pedidoId;
+	}
+
+	public SituacaoEmail getSituacao() {
+		return SituacaoEmail.toEnum(situacao);
+	}
+
+	public void setSituacao(SituacaoEmail situacao) {
+		this.situacao = situacao.getCod();
+	}
+
+	public Integer getTentativas() {
+		return tentativas;
+	}
+
+	public void setTentativas(Integer tentativas) {
+		this.tentativas = tentativas;
+	}
+
+	public Date getCriadoEm() {
+		return criadoEm;
+	}
+
+	public void setCriadoEm(Date criadoEm) {
+		this.criadoEm = criadoEm;
+	}
+
+	public Date getProximaTentativa() {
+		return proximaTentativa;
+	}
+
+	public void setProximaTentativa(Date proximaTentativa) {
+		this.proximaTentativa = proximaTentativa;
+	}
+
+	public String getUltimoErro() {
+		return ultimoErro;
+	}
+
+	public void setUltimoErro(String ultimoErro) {
+		this.ultimoErro = ultimoErro;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((id == null) ? 0 : id.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		EmailPendente other = (EmailPendente) obj;
+		if (id == null) {
+			if (other.id != null)
+				return false;
+		} else if (!id.equals(other.id))
+			return false;
+		return true;
+	}
+}
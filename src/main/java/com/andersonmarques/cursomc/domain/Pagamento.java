@@ -3,6 +3,8 @@ package com.andersonmarques.cursomc.domain;
 import com.andersonmarques.cursomc.domain.enums.EstadoPagamento;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 
 import javax.persistence.*;
 import java.io.Serializable;
@@ -13,7 +15,8 @@ public abstract class Pagamento implements Serializable {
 	private static final long serialVersionUID = 1L;	
 	
 	@Id
-	private Integer id;
+	@JsonSerialize(using=ToStringSerializer.class)
+	private Long id;
 	private Integer estadoPagamento;
 	
 	@JsonIgnore
@@ -25,18 +28,18 @@ public abstract class Pagamento implements Serializable {
 	
 	public Pagamento() {}
 
-	public Pagamento(Integer id, EstadoPagamento estadoPagamento, Pedido pedido) {
+	public Pagamento(Long id, EstadoPagamento estadoPagamento, Pedido pedido) {
 		super();
 		this.id = id;
 		this.estadoPagamento = (estadoPagamento == null) ? null : estadoPagamento.getCod();
 		this.pedido = pedido;
 	}
 
-	public Integer getId() {
+	public Long getId() {
 		return id;
 	}
 
-	public void setId(Integer id) {
+	public void setId(Long id) {
 		this.id = id;
 	}
 
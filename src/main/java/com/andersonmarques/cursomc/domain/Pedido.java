@@ -1,6 +1,10 @@
 package com.andersonmarques.cursomc.domain;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import java.io.Serializable;
@@ -13,12 +17,19 @@ import java.util.Set;
 
 @Entity
 @Inheritance(strategy=InheritanceType.JOINED)
+//Pedidos do cliente em ordem de instante ou de id, usados na listagem paginada e na paginação por cursor (KeysetQuery)
+@Table(indexes={
+		@Index(name="idx_pedido_cliente_instante", columnList="cliente_id, instante, id"),
+		@Index(name="idx_pedido_cliente_id", columnList="cliente_id, id")})
 public class Pedido implements Serializable {
 	private static final long serialVersionUID = 1L;	
 	
+	//Id Snowflake de 64 bits, vai como texto no JSON porque passa do maior inteiro exato do JavaScript
 	@Id
-	@GeneratedValue(strategy=GenerationType.IDENTITY)
-	private Integer id;
+	@GeneratedValue(generator="snowflake")
+	@GenericGenerator(name="snowflake", strategy="com.andersonmarques.cursomc.utils.SnowflakeIdGenerator")
+	@JsonSerialize(using=ToStringSerializer.class)
+	private Long id;
 	
 	//Coloca uma mascara de formatação na data do Json
 	@JsonFormat(pattern="dd/MM/yyyy HH:mm")
@@ -44,7 +55,7 @@ public class Pedido implements Serializable {
 	
 	public Pedido() {}
 
-	public Pedido(Integer id, Date instante, Cliente cliente, Endereco enderecoDeEntrega) {
+	public Pedido(Long id, Date instante, Cliente cliente, Endereco enderecoDeEntrega) {
 		super();
 		this.id = id;
 		this.instante = instante;
@@ -60,11 +71,11 @@ public class Pedido implements Serializable {
 		return soma;
 	}
 
-	public Integer getId() {
+	public Long getId() {
 		return id;
 	}
 
-	public void setId(Integer id) {
+	public void setId(Long id) {
 		this.id = id;
 	}
 
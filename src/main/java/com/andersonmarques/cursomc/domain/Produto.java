@@ -6,19 +6,34 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import javax.persistence.Cacheable;
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
 import javax.persistence.OneToMany;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.andersonmarques.cursomc.utils.Normalizador;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 
 @Entity
+@Cacheable
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE, region="produto")
+@Table(indexes={
+		@Index(name="idx_produto_nome_normalizado", columnList="nomeNormalizado"),
+		@Index(name="idx_produto_versao", columnList="versao")})
 public class Produto implements Serializable {
 	private static final long serialVersionUID = 1L;
 	
@@ -27,11 +42,22 @@ public class Produto implements Serializable {
 	private Integer id;
 	private String nome;
 	private Double preco;
+	
+	//Nome sem acento e em minúsculas, gravado junto com o nome para as buscas usarem o índice
+	@JsonIgnore
+	private String nomeNormalizado;
+	
+	//Versão dos produtos (contador compartilhado, na ordem dos commits) da última alteração do produto ou das suas categorias.
+	//Gravada pelo CatalogoListener, nunca pelo Hibernate, e usada como marca d'água na exportação incremental
+	@JsonIgnore
+	@Column(insertable=false, updatable=false)
+	private Long versao;
 
 	//Essa anotação corrige o problema de referencia cíclica, informando que a "referencia da frente já foi chamada".
 	@JsonIgnore
 	//Anotação para definir relacionamento Muitos para muitos, Cria uma entidade chamada Produto_Categoria,
 	//onde ela faz o join do produto_id onde ele for igual ao categoria_id
+	@Cache(usage=CacheConcurrencyStrategy.READ_WRITE, region="produto.categorias")
 	@ManyToMany
 	@JoinTable(name="PRODUTO_CATEGORIA",
 		joinColumns = @JoinColumn(name="produto_id"),
@@ -79,6 +105,25 @@ public class Produto implements Serializable {
 	public void setNome(String nome) {
 		this.nome = nome;
 	}
+	
+	public String getNomeNormalizado() {
+		return nomeNormalizado;
+	}
+	
+	public Long getVersao() {
+		return versao;
+	}
+	
+	public void setVersao(Long versao) {
+		this.versao = versao;
+	}
+	
+	//Mantém o nome normalizado atualizado em toda gravação
+	@PrePersist
+	@PreUpdate
+	private void antesDeGravar() {
+		nomeNormalizado = Normalizador.normalizar(nome);
+	}
 
 	public Double getPreco() {
 		return preco;
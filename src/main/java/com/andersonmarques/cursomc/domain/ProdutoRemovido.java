@@ -0,0 +1,71 @@
+package com.andersonmarques.cursomc.domain;
+
+import java.io.Serializable;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+//Registro de produto removido, gravado pelo CatalogoListener com a versão da remoção.
+//Sem ele a exportação incremental ("since") não teria como avisar o parceiro que o produto deixou de existir.
+@Entity
+@Table(indexes={@Index(name="idx_produto_removido_versao", columnList="versao")})
+public class ProdutoRemovido implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	//Mesmo id do produto removido
+	@Id
+	private Integer id;
+
+	private Long versao;
+
+	public ProdutoRemovido() {}
+
+	public ProdutoRemovido(Integer id, Long versao) {
+		super();
+		this.id = id;
+		this.versao = versao;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public Long getVersao() {
+		return versao;
+	}
+
+	public void setVersao(Long versao) {
+		this.versao = versao;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((id == null) ? 0 : id.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ProdutoRemovido other = (ProdutoRemovido) obj;
+		if (id == null) {
+			if (other.id != null)
+				return false;
+		} else if (!id.equals(other.id))
+			return false;
+		return true;
+	}
+}
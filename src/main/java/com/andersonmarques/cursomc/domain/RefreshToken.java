@@ -0,0 +1,117 @@
+package com.andersonmarques.cursomc.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+//Credencial de longa duração usada só para pedir um novo token de acesso (POST /auth/refresh_token).
+//O valor entregue ao cliente não é gravado, só o hash SHA-256 dele, então quem ler a tabela não consegue usá-lo.
+//Cada uso troca a credencial por outra da mesma família; a usada fica marcada até expirar para detectar reuso.
+@Entity
+@Table(indexes={@Index(name="idx_refresh_token_familia", columnList="familia"),
+		@Index(name="idx_refresh_token_cliente", columnList="clienteId"),
+		@Index(name="idx_refresh_token_expira_em", columnList="expiraEm")})
+public class RefreshToken implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	@Column(length=64)
+	private String hash;
+
+	@Column(length=36)
+	private String familia;
+	private Long clienteId;
+	private Boolean usado;
+	private Date criadoEm;
+	private Date expiraEm;
+
+	public RefreshToken() {}
+
+	public RefreshToken(String hash, String familia, Long clienteId, Date criadoEm, Date expiraEm) {
+		super();
+		this.hash = hash;
+		this.familia = familia;
+		this.clienteId = clienteId;
+		this.usado = false;
+		this.criadoEm = criadoEm;
+		this.expiraEm = expiraEm;
+	}
+
+	public String getHash() {
+		return hash;
+	}
+
+	public void setHash(String hash) {
+		this.hash = hash;
+	}
+
+	public String getFamilia() {
+		return familia;
+	}
+
+	public void setFamilia(String familia) {
+		this.familia = familia;
+	}
+
+	public Long getClienteId() {
+		return clienteId;
+	}
+
+	public void setClienteId(Long clienteId) {
+		this.clienteId = clienteId;
+	}
+
+	public Boolean getUsado() {
+		return usado;
+	}
+
+	public void setUsado(Boolean usado) {
+		this.usado = usado;
+	}
+
+	public Date getCriadoEm() {
+		return criadoEm;
+	}
+
+	public void setCriadoEm(Date criadoEm) {
+		this.criadoEm = criadoEm;
+	}
+
+	public Date getExpiraEm() {
+		return expiraEm;
+	}
+
+	public void setExpiraEm(Date expiraEm) {
+		this.expiraEm = expiraEm;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((hash == null) ? 0 : hash.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		RefreshToken other = (RefreshToken) obj;
+		if (hash == null) {
+			if (other.hash != null)
+				return false;
+		} else if (!hash.equals(other.hash))
+			return false;
+		return true;
+	}
+}
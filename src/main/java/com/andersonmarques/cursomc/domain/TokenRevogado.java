@@ -0,0 +1,85 @@
+package com.andersonmarques.cursomc.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+//Revogação de JWT gravada no banco, compartilhada por todas as instâncias da aplicação.
+//A chave é "t:<id do token>" (um token, no logout) ou "c:<id do cliente>" (todos os tokens do cliente
+//emitidos antes de revogadoEm, na troca de senha). Depois de expiraEm nenhum token afetado vale mais e a linha pode sair.
+@Entity
+@Table(indexes={@Index(name="idx_token_revogado_revogado_em", columnList="revogadoEm"),
+		@Index(name="idx_token_revogado_expira_em", columnList="expiraEm")})
+public class TokenRevogado implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	@Column(length=60)
+	private String chave;
+
+	private Date revogadoEm;
+	private Date expiraEm;
+
+	public TokenRevogado() {}
+
+	public TokenRevogado(String chave, Date revogadoEm, Date expiraEm) {
+		super();
+		this.chave = chave;
+		this.revogadoEm = revogadoEm;
+		this.expiraEm = expiraEm;
+	}
+
+	public String getChave() {
+		return chave;
+	}
+
+	public void setChave(String chave) {
+		this.chave = chave;
+	}
+
+	public Date getRevogadoEm() {
+		return revogadoEm;
+	}
+
+	public void setRevogadoEm(Date revogadoEm) {
+		this.revogadoEm = revogadoEm;
+	}
+
+	public Date getExpiraEm() {
+		return expiraEm;
+	}
+
+	public void setExpiraEm(Date expiraEm) {
+		this.expiraEm = expiraEm;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((chave == null) ? 0 : chave.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		TokenRevogado other = (TokenRevogado) obj;
+		if (chave == null) {
+			if (other.chave != null)
+				return false;
+		} else if (!chave.equals(other.chave))
+			return false;
+		return true;
+	}
+}
@@ -0,0 +1,69 @@
+package com.andersonmarques.cursomc.domain;
+
+import java.io.Serializable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+//Contador de versão compartilhado por todas as instâncias da aplicação ("produtos", "categorias", "localidades").
+//É incrementado na mesma transação que altera os dados, então o valor segue a ordem dos commits.
+@Entity
+public class Versao implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	@Column(length=30)
+	private String chave;
+
+	private Long valor;
+
+	public Versao() {}
+
+	public Versao(String chave, Long valor) {
+		super();
+		this.chave = chave;
+		this.valor = valor;
+	}
+
+	public String getChave() {
+		return chave;
+	}
+
+	public void setChave(String chave) {
+		this.chave = chave;
+	}
+
+	public Long getValor() {
+		return valor;
+	}
+
+	public void setValor(Long valor) {
+		this.valor = valor;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((chave == null) ? 0 : chave.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		Versao other = (Versao) obj;
+		if (chave == null) {
+			if (other.chave != null)
+				return false;
+		} else if (!chave.equals(other.chave))
+			return false;
+		return true;
+	}
+}
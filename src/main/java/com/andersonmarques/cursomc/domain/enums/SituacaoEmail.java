@@ -0,0 +1,35 @@
+package com.andersonmarques.cursomc.domain.enums;
+
+public enum SituacaoEmail {
+	PENDENTE(1, "Aguardando envio"),
+	FALHOU(2, "Envio cancelado após várias tentativas");
+
+	private Integer cod;
+	private String descricao;
+	
+	private SituacaoEmail(Integer cod, String descricao)  {
+		this.cod = cod;
+		this.descricao = descricao;
+	}
+
+	public Integer getCod() {
+		return cod;
+	}
+
+	public String getDescricao() {
+		return descricao;
+	}
+	
+	public static SituacaoEmail toEnum(Integer cod) {
+		if(cod == null) {
+			return null;
+		}
+		
+		for(SituacaoEmail e : SituacaoEmail.values()) {
+			if(cod.equals(e.cod)) {
+				return e;
+			}
+		}
+		throw new IllegalArgumentException("Não foi encontrado o código informado");
+	}
+}
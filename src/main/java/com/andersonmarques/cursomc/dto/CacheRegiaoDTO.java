@@ -0,0 +1,71 @@
+package com.andersonmarques.cursomc.dto;
+
+import java.io.Serializable;
+
+//Estatísticas de uma região do cache de segundo nível do Hibernate
+public class CacheRegiaoDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private String regiao;
+	private long hits;
+	private long misses;
+	private long puts;
+	private long elementos;
+
+	public CacheRegiaoDTO() {}
+
+	public CacheRegiaoDTO(String regiao, long hits, long misses, long puts, long elementos) {
+		super();
+		this.regiao = regiao;
+		this.hits = hits;
+		this.misses = misses;
+		this.puts = puts;
+		this.elementos = elementos;
+	}
+
+	//Fração das leituras atendidas pelo cache (0 quando ainda não houve leitura)
+	public double getTaxaAcerto() {
+		long leituras = hits + misses;
+		return leituras == 0 ? 0 : (double) hits / leituras;
+	}
+
+	public String getRegiao() {
+		return regiao;
+	}
+
+	public void setRegiao(String regiao) {
+		this.regiao = regiao;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public void setHits(long hits) {
+		this.hits = hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public void setMisses(long misses) {
+		this.misses = misses;
+	}
+
+	public long getPuts() {
+		return puts;
+	}
+
+	public void setPuts(long puts) {
+		this.puts = puts;
+	}
+
+	public long getElementos() {
+		return elementos;
+	}
+
+	public void setElementos(long elementos) {
+		this.elementos = elementos;
+	}
+}
@@ -24,6 +24,12 @@ public class CategoriaDTO implements Serializable{
 		id = objeto.getId();
 		nome = objeto.getNome();
 	}
+	
+	//Usado nas consultas que selecionam direto no DTO (SELECT new ...), sem carregar a entidade
+	public CategoriaDTO(Integer id, String nome) {
+		this.id = id;
+		this.nome = nome;
+	}
 
 	public Integer getId() {
 		return id;
@@ -2,6 +2,8 @@ package com.andersonmarques.cursomc.dto;
 
 import com.andersonmarques.cursomc.domain.Cliente;
 import com.andersonmarques.cursomc.services.validation.ClienteUpdate;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import org.hibernate.validator.constraints.Length;
 
 import javax.validation.constraints.Email;
@@ -12,7 +14,8 @@ import java.io.Serializable;
 public class ClienteDTO  implements Serializable{
 	private static final long serialVersionUID = 1L;
 	
-	private Integer id;
+	@JsonSerialize(using=ToStringSerializer.class)
+	private Long id;
 	
 	@NotEmpty(message="Preechimento obrigatório")
 	@Length(min=5, max=150, message="O Campo deve conter de 5 a 150 caracteres")
@@ -31,11 +34,19 @@ public class ClienteDTO  implements Serializable{
 		this.email = cliente.getEmail();
 	}
 
-	public Integer getId() {
+	//Usado nas consultas que selecionam direto no DTO (SELECT new ...), sem carregar a entidade
+	public ClienteDTO(Long id, String nome, String email) {
+		super();
+		this.id = id;
+		this.nome = nome;
+		this.email = email;
+	}
+
+	public Long getId() {
 		return id;
 	}
 
-	public void setId(Integer id) {
+	public void setId(Long id) {
 		this.id = id;
 	}
 
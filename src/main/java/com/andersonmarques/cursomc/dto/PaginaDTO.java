@@ -0,0 +1,99 @@
+package com.andersonmarques.cursomc.dto;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.Slice;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+//Página sem total de elementos, usada na paginação por cursor e nas páginas sem count.
+//O campo "next" é o cursor da próxima página (nulo na última).
+//O "totalAproximado" vem de um contador atualizado periodicamente, pode estar um pouco atrasado.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PaginaDTO<T> implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private List<T> content;
+	private Integer size;
+	private boolean hasNext;
+	private String next;
+	private Integer page;
+	private Long totalAproximado;
+
+	public PaginaDTO() {}
+
+	//Página por número, montada a partir de um Slice (sem a consulta de count)
+	public PaginaDTO(Slice<T> slice, Long totalAproximado) {
+		this(slice.getContent(), slice.getSize(), slice.hasNext(), null);
+		this.page = slice.getNumber();
+		this.totalAproximado = totalAproximado;
+	}
+
+	public PaginaDTO(List<T> content, Integer size, boolean hasNext, String next) {
+		super();
+		this.content = content;
+		this.size = size;
+		this.hasNext = hasNext;
+		this.next = next;
+	}
+
+	//Converte o conteúdo mantendo as informações da página
+	public <R> PaginaDTO<R> map(Function<? super T, ? extends R> conversor) {
+		List<R> convertidos = content.stream().map(conversor).collect(Collectors.toList());
+		PaginaDTO<R> pagina = new PaginaDTO<>(convertidos, size, hasNext, next);
+		pagina.setPage(page);
+		pagina.setTotalAproximado(totalAproximado);
+		return pagina;
+	}
+
+	public List<T> getContent() {
+		return content;
+	}
+
+	public void setContent(List<T> content) {
+		this.content = content;
+	}
+
+	public Integer getSize() {
+		return size;
+	}
+
+	public void setSize(Integer size) {
+		this.size = size;
+	}
+
+	public boolean isHasNext() {
+		return hasNext;
+	}
+
+	public void setHasNext(boolean hasNext) {
+		this.hasNext = hasNext;
+	}
+
+	public String getNext() {
+		return next;
+	}
+
+	public void setNext(String next) {
+		this.next = next;
+	}
+
+	public Integer getPage() {
+		return page;
+	}
+
+	public void setPage(Integer page) {
+		this.page = page;
+	}
+
+	public Long getTotalAproximado() {
+		return totalAproximado;
+	}
+
+	public void setTotalAproximado(Long totalAproximado) {
+		this.totalAproximado = totalAproximado;
+	}
+}
@@ -19,6 +19,12 @@ public class ProdutoDTO implements Serializable{
         preco = produto.getPreco();
     }
 
+    public ProdutoDTO(Integer id, String nome, Double preco) {
+        this.id = id;
+        this.nome = nome;
+        this.preco = preco;
+    }
+
     public Integer getId() {
         return id;
     }
@@ -0,0 +1,85 @@
+package com.andersonmarques.cursomc.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+//Linha da exportação do catálogo (NDJSON): o produto com os ids das categorias e a versão,
+//o parceiro guarda a maior versão recebida e usa no parâmetro "since" da próxima exportação.
+//Produto removido vem só com id, versão e removido=true
+public class ProdutoExportDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private Integer id;
+	private String nome;
+	private Double preco;
+	private List<Integer> categorias;
+	private Long versao;
+	private boolean removido;
+
+	public ProdutoExportDTO() {}
+
+	//Linha de produto removido
+	public ProdutoExportDTO(Integer id, Long versao) {
+		super();
+		this.id = id;
+		this.versao = versao;
+		this.removido = true;
+	}
+
+	public ProdutoExportDTO(Integer id, String nome, Double preco, List<Integer> categorias, Long versao) {
+		super();
+		this.id = id;
+		this.nome = nome;
+		this.preco = preco;
+		this.categorias = categorias;
+		this.versao = versao;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public String getNome() {
+		return nome;
+	}
+
+	public void setNome(String nome) {
+		this.nome = nome;
+	}
+
+	public Double getPreco() {
+		return preco;
+	}
+
+	public void setPreco(Double preco) {
+		this.preco = preco;
+	}
+
+	public List<Integer> getCategorias() {
+		return categorias;
+	}
+
+	public void setCategorias(List<Integer> categorias) {
+		this.categorias = categorias;
+	}
+
+	public Long getVersao() {
+		return versao;
+	}
+
+	public void setVersao(Long versao) {
+		this.versao = versao;
+	}
+
+	public boolean isRemovido() {
+		return removido;
+	}
+
+	public void setRemovido(boolean removido) {
+		this.removido = removido;
+	}
+}
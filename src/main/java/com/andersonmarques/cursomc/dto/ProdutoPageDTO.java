@@ -0,0 +1,24 @@
+package com.andersonmarques.cursomc.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+//Página da busca de produtos com as facetas: id da categoria -> quantidade de produtos com o nome buscado.
+//Assim a loja mostra "N resultados em X" sem fazer uma busca por categoria.
+public class ProdutoPageDTO extends PageImpl<ProdutoDTO> {
+	private static final long serialVersionUID = 1L;
+
+	private final Map<Integer, Integer> facetas;
+
+	public ProdutoPageDTO(List<ProdutoDTO> content, Pageable pageable, long total, Map<Integer, Integer> facetas) {
+		super(content, pageable, total);
+		this.facetas = facetas;
+	}
+
+	public Map<Integer, Integer> getFacetas() {
+		return facetas;
+	}
+}
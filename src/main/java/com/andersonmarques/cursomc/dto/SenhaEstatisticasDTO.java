@@ -0,0 +1,75 @@
+package com.andersonmarques.cursomc.dto;
+
+import java.io.Serializable;
+
+//Estatísticas da verificação de senha do login, tempos em milissegundos
+public class SenhaEstatisticasDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private long verificacoes;
+	private long rejeitadas;
+	private double tempoMedio;
+	private double tempoMaximo;
+	private int emExecucao;
+	private int naFila;
+
+	public SenhaEstatisticasDTO() {}
+
+	public SenhaEstatisticasDTO(long verificacoes, long rejeitadas, double tempoMedio, double tempoMaximo, int emExecucao, int naFila) {
+		super();
+		this.verificacoes = verificacoes;
+		this.rejeitadas = rejeitadas;
+		this.tempoMedio = tempoMedio;
+		this.tempoMaximo = tempoMaximo;
+		this.emExecucao = emExecucao;
+		this.naFila = naFila;
+	}
+
+	public long getVerificacoes() {
+		return verificacoes;
+	}
+
+	public void setVerificacoes(long verificacoes) {
+		this.verificacoes = verificacoes;
+	}
+
+	public long getRejeitadas() {
+		return rejeitadas;
+	}
+
+	public void setRejeitadas(long rejeitadas) {
+		this.rejeitadas = rejeitadas;
+	}
+
+	public double getTempoMedio() {
+		return tempoMedio;
+	}
+
+	public void setTempoMedio(double tempoMedio) {
+		this.tempoMedio = tempoMedio;
+	}
+
+	public double getTempoMaximo() {
+		return tempoMaximo;
+	}
+
+	public void setTempoMaximo(double tempoMaximo) {
+		this.tempoMaximo = tempoMaximo;
+	}
+
+	public int getEmExecucao() {
+		return emExecucao;
+	}
+
+	public void setEmExecucao(int emExecucao) {
+		this.emExecucao = emExecucao;
+	}
+
+	public int getNaFila() {
+		return naFila;
+	}
+
+	public void setNaFila(int naFila) {
+		this.naFila = naFila;
+	}
+}
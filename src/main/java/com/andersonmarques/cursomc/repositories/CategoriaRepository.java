@@ -1,13 +1,53 @@
 package com.andersonmarques.cursomc.repositories;
 
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.andersonmarques.cursomc.domain.Categoria;
+import com.andersonmarques.cursomc.dto.CategoriaDTO;
 
 //Essa interface com a anotação @Repository, permite realizar buscas no banco de dados, ela estende do JpaRepository e informa
 //Qual o tipo da classe/objeto que será buscado e qual é o ID desse objeto, neste caso nós definimos como Integer. 
 @Repository
 public interface CategoriaRepository extends JpaRepository<Categoria, Integer>{
 
+	//As listagens selecionam direto no DTO, sem colocar as entidades no contexto de persistência
+	@Transactional(readOnly = true)
+	@Query("SELECT new com.andersonmarques.cursomc.dto.CategoriaDTO(obj.id, obj.nome) FROM Categoria obj")
+	List<CategoriaDTO> findAllDTO();
+	
+	//Busca pelo começo do nome sem acento e em minúsculas, o LIKE 'prefixo%' usa o índice da coluna.
+	//O prefixo chega escapado com Normalizador.escaparLike
+	@Transactional(readOnly = true)
+	@Query("SELECT new com.andersonmarques.cursomc.dto.CategoriaDTO(obj.id, obj.nome) FROM Categoria obj WHERE obj.nomeNormalizado LIKE :prefixo% ESCAPE '!'")
+	List<CategoriaDTO> findDTOByNomeNormalizadoStartingWith(@Param("prefixo") String prefixo);
+	
+	@Transactional(readOnly = true)
+	@Query(value="SELECT new com.andersonmarques.cursomc.dto.CategoriaDTO(obj.id, obj.nome) FROM Categoria obj",
+			countQuery="SELECT COUNT(obj) FROM Categoria obj")
+	Page<CategoriaDTO> findPageDTO(Pageable pageable);
+	
+	//Retornando Slice o Spring Data não faz a consulta de count, só busca um item a mais para saber se há próxima página
+	@Transactional(readOnly = true)
+	@Query("SELECT new com.andersonmarques.cursomc.dto.CategoriaDTO(obj.id, obj.nome) FROM Categoria obj")
+	Slice<CategoriaDTO> findSliceDTO(Pageable pageable);
+	
+	//Linhas gravadas antes da coluna nomeNormalizado existir (banco com ddl-auto=none), preenchidas na inicialização
+	@Transactional(readOnly = true)
+	@Query("SELECT obj.id, obj.nome FROM Categoria obj WHERE obj.nomeNormalizado IS NULL")
+	List<Object[]> findIdNomeByNomeNormalizadoIsNull(Pageable pageable);
+	
+	@Transactional
+	@Modifying
+	@Query("UPDATE Categoria obj SET obj.nomeNormalizado = :nomeNormalizado WHERE obj.id = :id")
+	int atualizarNomeNormalizado(@Param("id") Integer id, @Param("nomeNormalizado") String nomeNormalizado);
 }
@@ -15,7 +15,13 @@ import com.andersonmarques.cursomc.domain.Cidade;
 @Repository
 public interface CidadeRepository extends JpaRepository<Cidade, Integer>{
 	
+	//Só usada enquanto as localidades ainda não foram carregadas em memória (ver EstadoService)
 	@Transactional(readOnly = true)
 	@Query("SELECT obj FROM Cidade obj WHERE obj.estado.id = :id ORDER BY obj.nome")
 	List<Cidade> findCidades(@Param("id") Integer id);
+
+	//Todas as cidades como {estado id, cidade id, nome}, usada para carregar os estados e cidades em memória
+	@Transactional(readOnly = true)
+	@Query("SELECT obj.estado.id, obj.id, obj.nome FROM Cidade obj ORDER BY obj.estado.id, obj.nome")
+	List<Object[]> findEstadoIdNome();
 }
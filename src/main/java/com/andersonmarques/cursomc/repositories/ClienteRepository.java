@@ -1,18 +1,40 @@
 package com.andersonmarques.cursomc.repositories;
 
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.andersonmarques.cursomc.domain.Cliente;
+import com.andersonmarques.cursomc.dto.ClienteDTO;
 import org.springframework.transaction.annotation.Transactional;
 
 //Essa interface com a anotação @Repository, permite realizar buscas no banco de dados, ela estende do JpaRepository e informa
 //Qual o tipo da classe/objeto que será buscado e qual é o ID desse objeto, neste caso nós definimos como Integer. 
 @Repository
-public interface ClienteRepository extends JpaRepository<Cliente, Integer>{
+public interface ClienteRepository extends JpaRepository<Cliente, Long>{
 
     //Com base no nome da variavel email ele faz uma busca no banco de dados.
     @Transactional(readOnly = true)
     Cliente findByEmail(String email);
 
+    //As listagens selecionam direto no DTO, sem colocar as entidades no contexto de persistência
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.andersonmarques.cursomc.dto.ClienteDTO(obj.id, obj.nome, obj.email) FROM Cliente obj")
+    List<ClienteDTO> findAllDTO();
+
+    @Transactional(readOnly = true)
+    @Query(value="SELECT new com.andersonmarques.cursomc.dto.ClienteDTO(obj.id, obj.nome, obj.email) FROM Cliente obj",
+            countQuery="SELECT COUNT(obj) FROM Cliente obj")
+    Page<ClienteDTO> findPageDTO(Pageable pageable);
+
+    //Página sem a consulta de count
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.andersonmarques.cursomc.dto.ClienteDTO(obj.id, obj.nome, obj.email) FROM Cliente obj")
+    Slice<ClienteDTO> findSliceDTO(Pageable pageable);
+
 }
@@ -0,0 +1,30 @@
+package com.andersonmarques.cursomc.repositories;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.andersonmarques.cursomc.domain.EmailPendente;
+
+@Repository
+public interface EmailPendenteRepository extends JpaRepository<EmailPendente, Long>{
+
+	//Emails pendentes cujo horário de envio já chegou, os mais antigos primeiro
+	@Transactional(readOnly = true)
+	@Query("SELECT obj FROM EmailPendente obj WHERE obj.situacao = :situacao AND obj.proximaTentativa <= :agora ORDER BY obj.proximaTentativa")
+	List<EmailPendente> findProntos(@Param("situacao") Integer situacao, @Param("agora") Date agora, Pageable pageable);
+
+	//Reserva o email para este nó empurrando a próxima tentativa para frente.
+	//Só um nó consegue (a linha tem que estar como foi lida), retorna 0 para quem perdeu.
+	@Transactional
+	@Modifying
+	@Query("UPDATE EmailPendente obj SET obj.proximaTentativa = :reserva WHERE obj.id = :id AND obj.proximaTentativa = :lida")
+	int reservar(@Param("id") Long id, @Param("lida") Date lida, @Param("reserva") Date reserva);
+}
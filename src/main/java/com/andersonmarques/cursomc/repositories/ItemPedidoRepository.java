@@ -1,7 +1,11 @@
 package com.andersonmarques.cursomc.repositories;
 
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.andersonmarques.cursomc.domain.ItemPedido;
 
@@ -10,4 +14,8 @@ import com.andersonmarques.cursomc.domain.ItemPedido;
 @Repository
 public interface ItemPedidoRepository extends JpaRepository<ItemPedido, Integer>{
 
+	//Linhas (produto_id, quantidade total pedida), usado como popularidade no autocompletar
+	@Transactional(readOnly = true)
+	@Query("SELECT obj.id.produto.id, SUM(obj.quantidade) FROM ItemPedido obj GROUP BY obj.id.produto.id")
+	List<Object[]> findQuantidadePorProduto();
 }
@@ -0,0 +1,140 @@
+package com.andersonmarques.cursomc.repositories;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.andersonmarques.cursomc.dto.PaginaDTO;
+import com.andersonmarques.cursomc.services.exceptions.CursorException;
+import com.andersonmarques.cursomc.utils.Cursor;
+
+//Paginação por chave (keyset/seek) para qualquer entidade com atributo "id".
+//Em vez de OFFSET a consulta continua a partir do último item lido: WHERE (campo, id) > (valor, id do cursor),
+//assim o custo de uma página não cresce conforme o cliente avança na lista, desde que a entidade tenha
+//um índice (campo, id) para cada campo ordenável (com as colunas do filtro na frente).
+@Repository
+public class KeysetQuery {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	//Filtro adicional da consulta (ex: só os pedidos do cliente logado)
+	public interface Filtro<T> {
+		Predicate aplicar(CriteriaBuilder cb, Root<T> root);
+	}
+
+	//O que a consulta devolve em cada linha, ver entidade() e dto()
+	public interface Selecao<T, R> {
+		Selection<R> aplicar(CriteriaBuilder cb, Root<T> root);
+	}
+
+	//A própria entidade, com as associações para um informadas buscadas no mesmo SELECT (sem uma consulta por linha).
+	//Coleções não entram: com fetch join o limite da página passaria a ser aplicado em memória
+	public static <T> Selecao<T, T> entidade(String... associacoes) {
+		return (cb, root) -> {
+			for (String associacao : associacoes) {
+				root.fetch(associacao, JoinType.LEFT);
+			}
+			return root;
+		};
+	}
+
+	//DTO montado na própria consulta (SELECT new), sem carregar a entidade nem as associações EAGER dela.
+	//O DTO precisa de um construtor com os campos nessa ordem e de getters para o id e os campos ordenáveis
+	public static <T, R> Selecao<T, R> dto(Class<R> tipo, String... campos) {
+		return (cb, root) -> {
+			Selection<?>[] selecoes = new Selection<?>[campos.length];
+			for (int i = 0; i < campos.length; i++) {
+				selecoes[i] = root.get(campos[i]);
+			}
+			return cb.construct(tipo, selecoes);
+		};
+	}
+
+	//"ordenaveis" são os únicos campos aceitos em orderBy: o valor do campo vai para o cursor devolvido ao cliente,
+	//então um campo que não deve sair da API (ex: senha) nunca pode ser usado
+	@Transactional(readOnly = true)
+	public <T, R> PaginaDTO<R> buscar(Class<T> tipo, Class<R> resultado, Selecao<T, R> selecao, Filtro<T> filtro,
+			List<String> ordenaveis, String orderBy, String direction, String cursor, Integer size) {
+		if (!ordenaveis.contains(orderBy)) {
+			throw new CursorException("Campo de ordenação inválido: " + orderBy);
+		}
+		Direction direcao = Direction.valueOf(direction);
+		Cursor atual = Cursor.decode(cursor, orderBy, direcao.name());
+
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<R> query = cb.createQuery(resultado);
+		Root<T> root = query.from(tipo);
+
+		Path<Object> campo = root.get(orderBy);
+		Path<Object> id = root.get("id");
+
+		Predicate where = filtro == null ? cb.conjunction() : filtro.aplicar(cb, root);
+		if (atual != null) {
+			where = cb.and(where, depoisDoCursor(cb, campo, id, atual, direcao, "id".equals(orderBy)));
+		}
+		query.select(selecao.aplicar(cb, root)).where(where);
+		if ("id".equals(orderBy)) {
+			query.orderBy(ordem(cb, id, direcao));
+		} else {
+			query.orderBy(ordem(cb, campo, direcao), ordem(cb, id, direcao));
+		}
+
+		//Busca um item a mais só para saber se existe próxima página, sem count
+		List<R> linhas = entityManager.createQuery(query).setMaxResults(size + 1).getResultList();
+		boolean hasNext = linhas.size() > size;
+		if (hasNext) {
+			linhas = linhas.subList(0, size);
+		}
+
+		String next = null;
+		if (hasNext) {
+			BeanWrapperImpl ultimo = new BeanWrapperImpl(linhas.get(linhas.size() - 1));
+			next = Cursor.encode(orderBy, direcao.name(), ultimo.getPropertyValue("id"), ultimo.getPropertyValue(orderBy));
+		}
+		return new PaginaDTO<>(linhas, size, hasNext, next);
+	}
+
+	//Itens que vêm depois do cursor na ordenação (campo, id), no formato campo >= valor AND (campo > valor OR id > id do cursor):
+	//a primeira condição é uma faixa no começo do índice (campo, id), então a busca começa no ponto certo do índice
+	//em vez de percorrer e ordenar tudo. Considera os nulos primeiro no ASC e por último no DESC, como no H2 e no MySQL.
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Predicate depoisDoCursor(CriteriaBuilder cb, Path<Object> campo, Path<Object> id, Cursor cursor, Direction direcao, boolean somenteId) {
+		Comparable idCursor = (Comparable) cursor.getId(id.getJavaType());
+		Expression<Comparable> idExp = (Expression) id;
+		Predicate idDepois = direcao.isAscending() ? cb.greaterThan(idExp, idCursor) : cb.lessThan(idExp, idCursor);
+		if (somenteId) {
+			return idDepois;
+		}
+
+		Expression<Comparable> campoExp = (Expression) campo;
+		if (cursor.isValorNulo()) {
+			Predicate empate = cb.and(cb.isNull(campo), idDepois);
+			return direcao.isAscending() ? cb.or(empate, cb.isNotNull(campo)) : empate;
+		}
+		Comparable valor = (Comparable) cursor.getValor(campo.getJavaType());
+		Predicate faixa = direcao.isAscending() ? cb.greaterThanOrEqualTo(campoExp, valor) : cb.lessThanOrEqualTo(campoExp, valor);
+		Predicate campoDepois = direcao.isAscending() ? cb.greaterThan(campoExp, valor) : cb.lessThan(campoExp, valor);
+		Predicate depois = cb.and(faixa, cb.or(campoDepois, idDepois));
+		return direcao.isAscending() ? depois : cb.or(depois, cb.isNull(campo));
+	}
+
+	private static Order ordem(CriteriaBuilder cb, Expression<?> expressao, Direction direcao) {
+		return direcao.isAscending() ? cb.asc(expressao) : cb.desc(expressao);
+	}
+}
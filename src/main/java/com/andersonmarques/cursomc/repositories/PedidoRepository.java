@@ -1,8 +1,13 @@
 package com.andersonmarques.cursomc.repositories;
 
+import java.util.Optional;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -12,8 +17,21 @@ import com.andersonmarques.cursomc.domain.Pedido;
 //Essa interface com a anotação @Repository, permite realizar buscas no banco de dados, ela estende do JpaRepository e informa
 //Qual o tipo da classe/objeto que será buscado e qual é o ID desse objeto, neste caso nós definimos como Integer. 
 @Repository
-public interface PedidoRepository extends JpaRepository<Pedido, Integer>{
+public interface PedidoRepository extends JpaRepository<Pedido, Long>{
 	
 	@Transactional(readOnly = true)
 	Page<Pedido> findByCliente(Cliente cliente, Pageable pegable);
+	
+	//Página sem a consulta de count
+	@Transactional(readOnly = true)
+	Slice<Pedido> findSliceByCliente(Cliente cliente, Pageable pegable);
+	
+	//Quantidade de pedidos de um cliente, usado pelo contador aproximado
+	@Transactional(readOnly = true)
+	long countByClienteId(Long clienteId);
+	
+	//Pedido já com os itens carregados, usado para montar o email fora da transação
+	@Transactional(readOnly = true)
+	@Query("SELECT DISTINCT obj FROM Pedido obj LEFT JOIN FETCH obj.itens WHERE obj.id = :id")
+	Optional<Pedido> findComItens(@Param("id") Long id);
 }
@@ -0,0 +1,24 @@
+package com.andersonmarques.cursomc.repositories;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.andersonmarques.cursomc.domain.ProdutoRemovido;
+
+@Repository
+public interface ProdutoRemovidoRepository extends JpaRepository<ProdutoRemovido, Integer>{
+
+	//Remoções depois da versão informada, lidas com cursor como os produtos da exportação
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+	@Query("SELECT obj FROM ProdutoRemovido obj WHERE obj.versao > :since ORDER BY obj.id")
+	Stream<ProdutoRemovido> streamByVersaoGreaterThan(@Param("since") Long since);
+}
@@ -2,15 +2,24 @@ package com.andersonmarques.cursomc.repositories;
 
 import com.andersonmarques.cursomc.domain.Categoria;
 import com.andersonmarques.cursomc.domain.Produto;
+import com.andersonmarques.cursomc.dto.ProdutoDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 //Essa interface com a anotação @Repository, permite realizar buscas no banco de dados, ela estende do JpaRepository e informa
 //Qual o tipo da classe/objeto que será buscado e qual é o ID desse objeto, neste caso nós definimos como Integer. 
@@ -19,12 +28,83 @@ public interface ProdutoRepository extends JpaRepository<Produto, Integer>{
 
     //Faz uma busca com o JPQL para retornar uma página de produtos
     //cat é o nome de referencia do obj.categoria
+    //O nome recebido já deve estar normalizado (sem acento e em minúsculas), igual à coluna nomeNormalizado
+    //Sem filtro de preço os limites vêm nulos e a condição não se aplica, assim os produtos sem preço continuam aparecendo
+    //O SELECT new monta o ProdutoDTO direto, sem carregar as entidades no contexto de persistência
     @Transactional(readOnly = true)
-    @Query("SELECT DISTINCT obj FROM Produto obj INNER JOIN obj.categorias cat WHERE obj.nome LIKE %:nome% AND cat IN :categorias")
-    //Aqui eu informo que o parâmetro nome vai receber o conteúdo da string nome e o parâmetro categorias vai receber o conteúdo da lista de categorias
-    Page<Produto> findDistinctByNomeContainingAndCategoriasIn(
+    @Query(value="SELECT DISTINCT new com.andersonmarques.cursomc.dto.ProdutoDTO(obj.id, obj.nome, obj.preco) FROM Produto obj INNER JOIN obj.categorias cat WHERE obj.nomeNormalizado LIKE %:nome% AND cat IN :categorias AND (:minPreco IS NULL OR obj.preco >= :minPreco) AND (:maxPreco IS NULL OR obj.preco <= :maxPreco)",
+            countQuery="SELECT COUNT(DISTINCT obj) FROM Produto obj INNER JOIN obj.categorias cat WHERE obj.nomeNormalizado LIKE %:nome% AND cat IN :categorias AND (:minPreco IS NULL OR obj.preco >= :minPreco) AND (:maxPreco IS NULL OR obj.preco <= :maxPreco)")
+    Page<ProdutoDTO> findDistinctByNomeContainingAndCategoriasIn(
             @Param("nome") String nome,
             @Param("categorias") List<Categoria> categorias,
+            @Param("minPreco") Double minPreco,
+            @Param("maxPreco") Double maxPreco,
+            Pageable pageRequest);
+
+    //Sem filtro de nome não há por que aplicar o LIKE
+    @Transactional(readOnly = true)
+    @Query(value="SELECT DISTINCT new com.andersonmarques.cursomc.dto.ProdutoDTO(obj.id, obj.nome, obj.preco) FROM Produto obj INNER JOIN obj.categorias cat WHERE cat IN :categorias AND (:minPreco IS NULL OR obj.preco >= :minPreco) AND (:maxPreco IS NULL OR obj.preco <= :maxPreco)",
+            countQuery="SELECT COUNT(DISTINCT obj) FROM Produto obj INNER JOIN obj.categorias cat WHERE cat IN :categorias AND (:minPreco IS NULL OR obj.preco >= :minPreco) AND (:maxPreco IS NULL OR obj.preco <= :maxPreco)")
+    Page<ProdutoDTO> findDistinctByCategoriasIn(
+            @Param("categorias") List<Categoria> categorias,
+            @Param("minPreco") Double minPreco,
+            @Param("maxPreco") Double maxPreco,
+            Pageable pageRequest);
+
+    //Mesmas buscas retornando Slice, sem o COUNT DISTINCT sobre o join
+    @Transactional(readOnly = true)
+    @Query("SELECT DISTINCT new com.andersonmarques.cursomc.dto.ProdutoDTO(obj.id, obj.nome, obj.preco) FROM Produto obj INNER JOIN obj.categorias cat WHERE obj.nomeNormalizado LIKE %:nome% AND cat IN :categorias AND (:minPreco IS NULL OR obj.preco >= :minPreco) AND (:maxPreco IS NULL OR obj.preco <= :maxPreco)")
+    Slice<ProdutoDTO> findSliceByNomeContainingAndCategoriasIn(
+            @Param("nome") String nome,
+            @Param("categorias") List<Categoria> categorias,
+            @Param("minPreco") Double minPreco,
+            @Param("maxPreco") Double maxPreco,
+            Pageable pageRequest);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT DISTINCT new com.andersonmarques.cursomc.dto.ProdutoDTO(obj.id, obj.nome, obj.preco) FROM Produto obj INNER JOIN obj.categorias cat WHERE cat IN :categorias AND (:minPreco IS NULL OR obj.preco >= :minPreco) AND (:maxPreco IS NULL OR obj.preco <= :maxPreco)")
+    Slice<ProdutoDTO> findSliceByCategoriasIn(
+            @Param("categorias") List<Categoria> categorias,
+            @Param("minPreco") Double minPreco,
+            @Param("maxPreco") Double maxPreco,
             Pageable pageRequest);
 
+    //Busca apenas as colunas usadas pelo catálogo em memória, sem carregar as entidades
+    @Transactional(readOnly = true)
+    @Query("SELECT obj.id, obj.nome, obj.preco, obj.nomeNormalizado, obj.versao FROM Produto obj ORDER BY obj.id")
+    List<Object[]> findIdNomePreco();
+
+    @Transactional(readOnly = true)
+    @Query("SELECT obj.id, cat.id FROM Produto obj INNER JOIN obj.categorias cat ORDER BY obj.id, cat.id")
+    List<Object[]> findProdutoCategoria();
+
+    //Linhas gravadas antes da coluna nomeNormalizado existir (banco com ddl-auto=none), preenchidas na inicialização
+    @Transactional(readOnly = true)
+    @Query("SELECT obj.id, obj.nome FROM Produto obj WHERE obj.nomeNormalizado IS NULL")
+    List<Object[]> findIdNomeByNomeNormalizadoIsNull(Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Produto obj SET obj.nomeNormalizado = :nomeNormalizado WHERE obj.id = :id")
+    int atualizarNomeNormalizado(@Param("id") Integer id, @Param("nomeNormalizado") String nomeNormalizado);
+
+    //Exportação: lê os produtos com cursor do banco, de 500 em 500 linhas (fetch size),
+    //o Stream só pode ser usado dentro de uma transação e deve ser fechado no final
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT obj FROM Produto obj WHERE obj.versao > :since ORDER BY obj.id")
+    Stream<Produto> streamByVersaoGreaterThan(@Param("since") Long since);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT obj FROM Produto obj ORDER BY obj.id")
+    Stream<Produto> streamAll();
+
+    //Categorias dos mesmos produtos, na mesma ordem, para juntar com o stream de produtos sem N+1
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT obj.id, cat.id FROM Produto obj INNER JOIN obj.categorias cat WHERE obj.versao > :since ORDER BY obj.id, cat.id")
+    Stream<Object[]> streamProdutoCategoriaByVersaoGreaterThan(@Param("since") Long since);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT obj.id, cat.id FROM Produto obj INNER JOIN obj.categorias cat ORDER BY obj.id, cat.id")
+    Stream<Object[]> streamProdutoCategoria();
+
 }
@@ -0,0 +1,38 @@
+package com.andersonmarques.cursomc.repositories;
+
+import java.util.Date;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.andersonmarques.cursomc.domain.RefreshToken;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, String>{
+
+	//Marca a credencial como usada se ainda não foi e não expirou.
+	//Com duas requisições usando a mesma credencial só uma recebe 1
+	@Transactional
+	@Modifying
+	@Query("UPDATE RefreshToken obj SET obj.usado = true WHERE obj.hash = :hash AND obj.usado = false AND obj.expiraEm > :agora")
+	int marcarUsado(@Param("hash") String hash, @Param("agora") Date agora);
+
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM RefreshToken obj WHERE obj.familia = :familia")
+	int removerFamilia(@Param("familia") String familia);
+
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM RefreshToken obj WHERE obj.clienteId = :clienteId")
+	int removerCliente(@Param("clienteId") Long clienteId);
+
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM RefreshToken obj WHERE obj.expiraEm < :agora")
+	int removerExpirados(@Param("agora") Date agora);
+}
@@ -0,0 +1,30 @@
+package com.andersonmarques.cursomc.repositories;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.andersonmarques.cursomc.domain.TokenRevogado;
+
+@Repository
+public interface TokenRevogadoRepository extends JpaRepository<TokenRevogado, String>{
+
+	//Revogações que ainda afetam algum token válido
+	@Transactional(readOnly = true)
+	List<TokenRevogado> findByExpiraEmAfter(Date agora);
+
+	//Revogações feitas a partir do instante informado, inclusive por outras instâncias
+	@Transactional(readOnly = true)
+	List<TokenRevogado> findByRevogadoEmGreaterThanEqual(Date desde);
+
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM TokenRevogado obj WHERE obj.expiraEm < :agora")
+	int removerExpiradas(@Param("agora") Date agora);
+}
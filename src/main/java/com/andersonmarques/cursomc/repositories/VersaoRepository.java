@@ -0,0 +1,11 @@
+package com.andersonmarques.cursomc.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.andersonmarques.cursomc.domain.Versao;
+
+@Repository
+public interface VersaoRepository extends JpaRepository<Versao, String>{
+
+}
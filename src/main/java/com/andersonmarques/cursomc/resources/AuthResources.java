@@ -1,20 +1,25 @@
 package com.andersonmarques.cursomc.resources;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.andersonmarques.cursomc.dto.EmailDTO;
+import com.andersonmarques.cursomc.dto.SenhaEstatisticasDTO;
 import com.andersonmarques.cursomc.security.JWTUtil;
-import com.andersonmarques.cursomc.security.UserSS;
+import com.andersonmarques.cursomc.security.VerificadorSenha;
 import com.andersonmarques.cursomc.services.AuthService;
-import com.andersonmarques.cursomc.services.UserService;
+import com.andersonmarques.cursomc.services.RefreshTokenService;
+import com.andersonmarques.cursomc.services.RefreshTokenService.Renovacao;
 
 @RestController
 @RequestMapping(value="/auth")
@@ -24,21 +29,48 @@ public class AuthResources {
 	private JWTUtil jwtUtil;
 	@Autowired
 	private AuthService authService;
+	@Autowired
+	private VerificadorSenha verificadorSenha;
+	@Autowired
+	private RefreshTokenService refreshTokenService;
 	
+	//Troca o refresh token recebido no login por um novo token de acesso e um novo refresh token.
+	//Não precisa do token de acesso (que pode já ter expirado) nem da senha
 	@RequestMapping(value = "/refresh_token", method = RequestMethod.POST)
-	public ResponseEntity<Void> refreshToken(HttpServletResponse response) {
-		UserSS user = UserService.authenticated();
-		String token = jwtUtil.generateToken(user.getUsername());
+	public ResponseEntity<Void> refreshToken(@RequestHeader(value = "Refresh-Token", required = false) String refreshToken, HttpServletResponse response) {
+		Renovacao renovacao = refreshTokenService.renovar(refreshToken);
+		String token = jwtUtil.generateToken(renovacao.getUser());
 		
 		response.addHeader("Authorization", "Bearer " + token);
-		response.addHeader("access-control-expose-headers", "Authorization");
+		response.addHeader("Refresh-Token", renovacao.getRefreshToken());
+		response.addHeader("access-control-expose-headers", "Authorization, Refresh-Token");
 
 		return ResponseEntity.noContent().build();
 	}
 	
+	//Revoga o token usado na requisição, ele deixa de valer em todas as instâncias, e o refresh token se for enviado
+	@RequestMapping(value = "/logout", method = RequestMethod.POST)
+	public ResponseEntity<Void> logout(@RequestHeader(value = "Refresh-Token", required = false) String refreshToken, HttpServletRequest request) {
+		String header = request.getHeader("Authorization");
+		if(header != null && header.startsWith("Bearer ")) {
+			jwtUtil.revogarToken(header.substring(7));
+		}
+		if(refreshToken != null) {
+			refreshTokenService.revogar(refreshToken);
+		}
+		return ResponseEntity.noContent().build();
+	}
+	
 	@RequestMapping(value = "/forgot", method = RequestMethod.POST)
 	public ResponseEntity<Void> forgot (@Valid @RequestBody EmailDTO objDTO) {
 		authService.sandNewPassword(objDTO.getEmail());
 		return ResponseEntity.noContent().build();
 	}
+	
+	//Tempo das verificações de senha do login e ocupação do pool, apenas administradores
+	@PreAuthorize("hasAnyRole('ADMIN')")
+	@RequestMapping(value = "/estatisticas", method = RequestMethod.GET)
+	public ResponseEntity<SenhaEstatisticasDTO> estatisticas() {
+		return ResponseEntity.ok().body(verificadorSenha.estatisticas());
+	}
 }
@@ -0,0 +1,29 @@
+package com.andersonmarques.cursomc.resources;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.andersonmarques.cursomc.dto.CacheRegiaoDTO;
+import com.andersonmarques.cursomc.services.CacheService;
+
+@RestController
+@RequestMapping(value="/cache")
+public class CacheResources {
+
+	@Autowired
+	private CacheService service;
+
+	//Estatísticas do cache de segundo nível, apenas administradores
+	@PreAuthorize("hasAnyRole('ADMIN')")
+	@RequestMapping(method=RequestMethod.GET)
+	public ResponseEntity<List<CacheRegiaoDTO>> estatisticas() {
+		List<CacheRegiaoDTO> regioes = service.estatisticas();
+		return ResponseEntity.ok().body(regioes);
+	}
+}
@@ -2,12 +2,12 @@ package com.andersonmarques.cursomc.resources;
 
 import java.net.URI;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -16,11 +16,15 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import com.andersonmarques.cursomc.domain.Categoria;
 import com.andersonmarques.cursomc.dto.CategoriaDTO;
+import com.andersonmarques.cursomc.dto.PaginaDTO;
 import com.andersonmarques.cursomc.services.CategoriaService;
+import com.andersonmarques.cursomc.services.VersaoService;
+import com.andersonmarques.cursomc.utils.URL;
 
 //Anotação do controlador rest
 @RestController
@@ -30,15 +34,24 @@ public class CategoriaResources {
 	@Autowired
 	private CategoriaService service;
 	
+	@Autowired
+	private VersaoService versaoService;
+	
 	
      //Associando a função ao Rest com método de get.
 	 //O value é o id que será informado na hora de buscar alguma informação
 	@RequestMapping(value="/{id}", method=RequestMethod.GET)
 	 //O Tipo ResponseEntity é a resposta da busca, neste caso ele retorna uma categoria ou uma exception
-	public ResponseEntity<Categoria> find(@PathVariable Integer id) {
+	public ResponseEntity<Categoria> find(@PathVariable Integer id, WebRequest request) {
 		
+		//A categoria vem com a lista de produtos, então qualquer alteração de produto também muda o ETag.
+		//Se o cliente já tem essa versão responde 304 sem consultar o banco.
+		String etag = versaoService.etag(VersaoService.CATEGORIAS, VersaoService.PRODUTOS);
+		if (request.checkNotModified(etag)) {
+			return null;
+		}
 		Categoria obj = service.find(id);
-		return ResponseEntity.ok().body(obj);
+		return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(obj);
 		
 	}
 	
@@ -87,34 +100,52 @@ public class CategoriaResources {
 	
 	@RequestMapping(method=RequestMethod.GET)
 	//Neste caso ele retorna todas as categoria cadastradas ou uma exception
-	public ResponseEntity<List<CategoriaDTO>> findAll () {
+	//Com o parâmetro nome retorna só as categorias que começam com ele ("eletro" encontra "Eletrônicos")
+	public ResponseEntity<List<CategoriaDTO>> findAll (@RequestParam(value="nome", defaultValue="") String nome, WebRequest request) {
 		
-		//FindAll retorna uma LISTA de categorias
-		List<Categoria> objs = service.findAll();
-		
-		//Faz uma lista secundaria, que vai "mapear" cada item da lista objs 
-		//será criado uma categoriaDTO, depois o collect transforma em lista
-		List<CategoriaDTO> objDTOs = objs.stream().map(objeto -> new CategoriaDTO(objeto)).collect(Collectors.toList());
-		return ResponseEntity.ok().body(objDTOs);
+		//O ETag é o mesmo com ou sem o nome, o cache do cliente já é separado por URL
+		if (request.checkNotModified(versaoService.etag(VersaoService.CATEGORIAS))) {
+			return null;
+		}
+		//A consulta já retorna os DTOs, sem carregar as entidades
+		List<CategoriaDTO> objDTOs = nome.isEmpty() ? service.findAll() : service.findByNome(URL.decodeParam(nome));
+		return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(objDTOs);
 	}
 	
 	
 	
 	//Vai retornar as categorias de acordo com página
+	//Com count=false a página vem sem o total exato (sem a consulta de count), o padrão fica no application.properties
 	@RequestMapping(value="/page", method=RequestMethod.GET)
-	public ResponseEntity<Page<CategoriaDTO>> findPage (
+	public ResponseEntity<?> findPage (
 		//Usa parâmetros opcionais, primeiro definimos qual é a variável que vai receber o valor e depois passamos um valor padrão
 			@RequestParam(value="page", defaultValue="0") Integer page, 
 			@RequestParam(value="linesPerPage", defaultValue="24") Integer linesPerPage, 
 			@RequestParam(value="orderBy", defaultValue="nome") String orderBy, 
-			@RequestParam(value="direction", defaultValue="ASC") String direction) {
+			@RequestParam(value="direction", defaultValue="ASC") String direction,
+			@RequestParam(value="count", defaultValue="${paginacao.count.categorias}") boolean count) {
+		
+		if (!count) {
+			return ResponseEntity.ok().body(service.findSlice(page, linesPerPage, orderBy, direction));
+		}
 		
-		//FindAll retorna uma LISTA de categorias
-		Page<Categoria> objs = service.findPage(page, linesPerPage, orderBy, direction);
+		//A consulta já retorna os DTOs, sem carregar as entidades
+		Page<CategoriaDTO> objDTOs = service.findPage(page, linesPerPage, orderBy, direction);
+		return ResponseEntity.ok().body(objDTOs);
+	}
+	
+	
+	
+	//Mesma listagem paginada por cursor, usada quando o parâmetro "cursor" é informado (vazio na primeira página)
+	//A resposta não tem total de elementos, o campo "next" é o cursor da próxima página
+	@RequestMapping(value="/page", method=RequestMethod.GET, params="cursor")
+	public ResponseEntity<PaginaDTO<CategoriaDTO>> findPageCursor (
+			@RequestParam(value="cursor") String cursor, 
+			@RequestParam(value="linesPerPage", defaultValue="24") Integer linesPerPage, 
+			@RequestParam(value="orderBy", defaultValue="nome") String orderBy, 
+			@RequestParam(value="direction", defaultValue="ASC") String direction) {
 		
-		//Faz uma lista secundaria, que vai "mapear" cada item da lista objs seguindo os valores estabelecidos como parâmetro
-		//será criado uma categoriaDTO para cada objeto da Page
-		Page<CategoriaDTO> objDTOs = objs.map(objeto -> new CategoriaDTO(objeto));
+		PaginaDTO<CategoriaDTO> objDTOs = service.findPageCursor(cursor, linesPerPage, orderBy, direction);
 		return ResponseEntity.ok().body(objDTOs);
 	}
 	
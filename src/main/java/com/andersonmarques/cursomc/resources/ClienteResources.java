@@ -2,7 +2,6 @@ package com.andersonmarques.cursomc.resources;
 
 import java.net.URI;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import javax.validation.Valid;
 
@@ -22,6 +21,7 @@ import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import com.andersonmarques.cursomc.domain.Cliente;
 import com.andersonmarques.cursomc.dto.ClienteDTO;
 import com.andersonmarques.cursomc.dto.ClienteNewDTO;
+import com.andersonmarques.cursomc.dto.PaginaDTO;
 import com.andersonmarques.cursomc.services.ClienteService;
 
 //Anotação do controlador rest
@@ -36,7 +36,7 @@ public class ClienteResources {
 	 //O value é o id que será informado na hora de buscar alguma informação
 	@RequestMapping(value="/{id}", method=RequestMethod.GET)
 	 //O Tipo ResponseEntity é a resposta da busca, neste caso ele um cliente ou uma exception
-	public ResponseEntity<Cliente> find(@PathVariable Integer id) {
+	public ResponseEntity<Cliente> find(@PathVariable Long id) {
 		
 		Cliente obj = service.find(id);
 		return ResponseEntity.ok().body(obj);
@@ -71,7 +71,7 @@ public class ClienteResources {
 	
 	//função que vai receber em formato Json e ATUALIZAR o nome de uma cliente já existente
 	@RequestMapping(value="/{id}", method=RequestMethod.PUT)
-	public ResponseEntity<Void> update (@Valid @RequestBody ClienteDTO objDTO, @PathVariable Integer id){
+	public ResponseEntity<Void> update (@Valid @RequestBody ClienteDTO objDTO, @PathVariable Long id){
 		Cliente obj = service.fromDTO(objDTO);
 		obj.setId(id);
 		obj = service.update(obj);
@@ -83,7 +83,7 @@ public class ClienteResources {
 	@PreAuthorize("hasAnyRole('ADMIN')")
 	//função que vai receber em formato Json e remover o objeto
 	@RequestMapping(value="/{id}", method=RequestMethod.DELETE)
-	public ResponseEntity<Void> delete (@PathVariable Integer id) {
+	public ResponseEntity<Void> delete (@PathVariable Long id) {
 		service.delete(id);
 		return ResponseEntity.noContent().build();
 	}
@@ -94,12 +94,8 @@ public class ClienteResources {
 	//Neste caso ele retorna todas os cliente cadastrado ou uma exception
 	public ResponseEntity<List<ClienteDTO>> findAll () {
 		
-		//FindAll retorna uma LISTA de clientes
-		List<Cliente> objs = service.findAll();
-		
-		//Faz uma lista secundaria, que vai "mapear" cada item da lista objs 
-		//será criado um clienteDTO, depois o collect transforma em lista
-		List<ClienteDTO> objDTOs = objs.stream().map(objeto -> new ClienteDTO(objeto)).collect(Collectors.toList());
+		//A consulta já retorna os DTOs, sem carregar as entidades
+		List<ClienteDTO> objDTOs = service.findAll();
 		return ResponseEntity.ok().body(objDTOs);
 	}
 	
@@ -107,20 +103,35 @@ public class ClienteResources {
 
 	@PreAuthorize("hasAnyRole('ADMIN')")
 	//Vai retornar as clientes de acordo com página
+	//Com count=false a página vem sem o total exato (sem a consulta de count), o padrão fica no application.properties
 	@RequestMapping(value="/page", method=RequestMethod.GET)
-	public ResponseEntity<Page<ClienteDTO>> findPage (
+	public ResponseEntity<?> findPage (
 			//Usa parâmetros opcionais, primeiro definimos qual é a variável que vai receber o valor e depois passamos um valor padrão
 			@RequestParam(value="page", defaultValue="0") Integer page, 
 			@RequestParam(value="linesPerPage", defaultValue="24") Integer linesPerPage, 
 			@RequestParam(value="orderBy", defaultValue="nome") String orderBy, 
-			@RequestParam(value="direction", defaultValue="ASC") String direction) {
+			@RequestParam(value="direction", defaultValue="ASC") String direction,
+			@RequestParam(value="count", defaultValue="${paginacao.count.clientes}") boolean count) {
+		
+		if (!count) {
+			return ResponseEntity.ok().body(service.findSlice(page, linesPerPage, orderBy, direction));
+		}
 		
-		//FindAll retorna uma LISTA de clientes
-		Page<Cliente> objs = service.findPage(page, linesPerPage, orderBy, direction);
+		//A consulta já retorna os DTOs, sem carregar as entidades
+		Page<ClienteDTO> objDTOs = service.findPage(page, linesPerPage, orderBy, direction);
+		return ResponseEntity.ok().body(objDTOs);
+	}
+	
+	@PreAuthorize("hasAnyRole('ADMIN')")
+	//Mesma listagem paginada por cursor, usada quando o parâmetro "cursor" é informado (vazio na primeira página)
+	@RequestMapping(value="/page", method=RequestMethod.GET, params="cursor")
+	public ResponseEntity<PaginaDTO<ClienteDTO>> findPageCursor (
+			@RequestParam(value="cursor") String cursor, 
+			@RequestParam(value="linesPerPage", defaultValue="24") Integer linesPerPage, 
+			@RequestParam(value="orderBy", defaultValue="nome") String orderBy, 
+			@RequestParam(value="direction", defaultValue="ASC") String direction) {
 		
-		//Faz uma lista secundaria, que vai "mapear" cada item da lista objs seguindo os valores estabelecidos como parâmetro
-		//será criado uma clienteDTO para cada objeto da Page
-		Page<ClienteDTO> objDTOs = objs.map(objeto -> new ClienteDTO(objeto));
+		PaginaDTO<ClienteDTO> objDTOs = service.findPageCursor(cursor, linesPerPage, orderBy, direction);
 		return ResponseEntity.ok().body(objDTOs);
 	}
 	
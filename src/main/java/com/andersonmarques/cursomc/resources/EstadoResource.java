@@ -1,20 +1,18 @@
 package com.andersonmarques.cursomc.resources;
 
-import java.util.List;
-import java.util.stream.Collectors;
-
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
-import com.andersonmarques.cursomc.domain.Cidade;
-import com.andersonmarques.cursomc.domain.Estado;
-import com.andersonmarques.cursomc.dto.CidadeDTO;
-import com.andersonmarques.cursomc.services.CidadeService;
 import com.andersonmarques.cursomc.services.EstadoService;
+import com.andersonmarques.cursomc.services.VersaoService;
 
 @RestController
 @RequestMapping(value="/estados")
@@ -22,24 +20,40 @@ public class EstadoResource {
 
 	@Autowired
 	private EstadoService estadoService;
-	
+
 	@Autowired
-	private CidadeService cidadeService;
-	
-	
+	private VersaoService versaoService;
+
+
+	//O JSON já vem pronto da memória, a resposta só copia os bytes
 	@RequestMapping(method = RequestMethod.GET)
-	public ResponseEntity<List<Estado>> findAll(){
-		List<Estado> estados = estadoService.findAll();
-		
-		return ResponseEntity.ok().body(estados);
+	public ResponseEntity<byte[]> findAll(WebRequest request){
+		//Se o cliente já tem essa versão responde 304 sem consultar o banco
+		if (request.checkNotModified(versaoService.etag(estadoService.getVersao()))) {
+			return null;
+		}
+		byte[] estados = estadoService.findAllJson();
+
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).cacheControl(CacheControl.noCache()).body(estados);
 	}
-	
-	
+
+
 	//Buscar cidades
 	@RequestMapping(value="/{estado_id}/cidades", method=RequestMethod.GET)
-	public ResponseEntity<List<CidadeDTO>> findCidades(@PathVariable Integer estado_id){
-		List<Cidade> objs = cidadeService.findAll(estado_id);
-		List<CidadeDTO> objDTOs = objs.stream().map(objeto -> new CidadeDTO(objeto)).collect(Collectors.toList());
-		return ResponseEntity.ok().body(objDTOs);
+	public ResponseEntity<byte[]> findCidades(@PathVariable Integer estado_id, WebRequest request){
+		if (request.checkNotModified(versaoService.etag(estadoService.getVersao()))) {
+			return null;
+		}
+		byte[] cidades = estadoService.findCidadesJson(estado_id);
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).cacheControl(CacheControl.noCache()).body(cidades);
+	}
+
+
+	//Recarrega os estados e cidades em todas as instâncias depois de uma carga feita direto no banco, apenas administradores
+	@PreAuthorize("hasAnyRole('ADMIN')")
+	@RequestMapping(value="/recarga", method=RequestMethod.POST)
+	public ResponseEntity<Void> recarregar(){
+		estadoService.recarregar();
+		return ResponseEntity.noContent().build();
 	}
 }
@@ -16,6 +16,7 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import com.andersonmarques.cursomc.domain.Pedido;
+import com.andersonmarques.cursomc.dto.PaginaDTO;
 import com.andersonmarques.cursomc.services.PedidoService;
 
 //Anotação do controlador rest
@@ -31,7 +32,7 @@ public class PedidoResources {
 	 //O value é o id que será informado na hora de buscar alguma informação
 	@RequestMapping(value="/{id}", method=RequestMethod.GET)
 	 //O Tipo ResponseEntity é a resposta da busca
-	public ResponseEntity<Pedido> find(@PathVariable Integer id) {
+	public ResponseEntity<Pedido> find(@PathVariable Long id) {
 		
 		Pedido obj = service.find(id);
 		return ResponseEntity.ok().body(obj);
@@ -53,16 +54,34 @@ public class PedidoResources {
 	}
 	
 	//Vai retornar as Pedidos de acordo com página
+	//Com count=false a página vem sem o total exato (sem a consulta de count), o padrão fica no application.properties
 		@RequestMapping(method=RequestMethod.GET)
-		public ResponseEntity<Page<Pedido>> findPage (
+		public ResponseEntity<?> findPage (
 			//Usa parâmetros opcionais, primeiro definimos qual é a variável que vai receber o valor e depois passamos um valor padrão
 				@RequestParam(value="page", defaultValue="0") Integer page, 
 				@RequestParam(value="linesPerPage", defaultValue="24") Integer linesPerPage, 
 				@RequestParam(value="orderBy", defaultValue="instante") String orderBy, 
-				@RequestParam(value="direction", defaultValue="DESC") String direction) {
+				@RequestParam(value="direction", defaultValue="DESC") String direction,
+				@RequestParam(value="count", defaultValue="${paginacao.count.pedidos}") boolean count) {
+			
+			if (!count) {
+				return ResponseEntity.ok().body(service.findSlice(page, linesPerPage, orderBy, direction));
+			}
 			
 			//FindAll retorna uma LISTA de Pedidos
 			Page<Pedido> objs = service.findPage(page, linesPerPage, orderBy, direction);
 			return ResponseEntity.ok().body(objs);
 		}
+	
+	//Mesma listagem paginada por cursor, usada quando o parâmetro "cursor" é informado (vazio na primeira página)
+	@RequestMapping(method=RequestMethod.GET, params="cursor")
+	public ResponseEntity<PaginaDTO<Pedido>> findPageCursor (
+			@RequestParam(value="cursor") String cursor, 
+			@RequestParam(value="linesPerPage", defaultValue="24") Integer linesPerPage, 
+			@RequestParam(value="orderBy", defaultValue="instante") String orderBy, 
+			@RequestParam(value="direction", defaultValue="DESC") String direction) {
+		
+		PaginaDTO<Pedido> objs = service.findPageCursor(cursor, linesPerPage, orderBy, direction);
+		return ResponseEntity.ok().body(objs);
+	}
 }
@@ -1,16 +1,21 @@
 package com.andersonmarques.cursomc.resources;
 
-import com.andersonmarques.cursomc.domain.Produto;
+import com.andersonmarques.cursomc.dto.PaginaDTO;
 import com.andersonmarques.cursomc.dto.ProdutoDTO;
 import com.andersonmarques.cursomc.services.ProdutoService;
 import com.andersonmarques.cursomc.utils.URL;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.util.List;
 
+import javax.servlet.http.HttpServletResponse;
+
 //Anotação do controlador rest
 @RestController
 @RequestMapping(value="/produtos")
@@ -24,33 +29,82 @@ public class ProdutoResources {
 	 //O value é o id que será informado na hora de buscar alguma informação
 	@RequestMapping(value="/{id}", method=RequestMethod.GET)
 	 //O Tipo ResponseEntity é a resposta da busca
-	public ResponseEntity<Produto> find(@PathVariable Integer id) {
+	public ResponseEntity<ProdutoDTO> find(@PathVariable Integer id, WebRequest request) {
+
+		//Se o cliente já tem essa versão responde 304 sem buscar nada
+		String etag = service.etag(id);
+		if (etag != null && request.checkNotModified(etag)) {
+			return null;
+		}
+		//Lido do catálogo em memória, o JSON é o mesmo da entidade (id, nome e preço)
+		ProdutoDTO obj = service.findDTO(id);
+		return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(obj);
+
+	}
+
+	//Autocompletar da caixa de busca: nomes de produtos que começam com o prefixo, os mais pedidos primeiro
+	@RequestMapping(value="/suggest", method=RequestMethod.GET)
+	public ResponseEntity<List<String>> suggest(
+			@RequestParam(value="prefixo", defaultValue="") String prefixo,
+			@RequestParam(value="quantidade", defaultValue="10") Integer quantidade) {
 
-		Produto obj = service.find(id);
-		return ResponseEntity.ok().body(obj);
+		List<String> nomes = service.suggest(URL.decodeParam(prefixo), quantidade);
+		return ResponseEntity.ok().body(nomes);
+	}
 
+	//Exportação do catálogo inteiro para os parceiros, em NDJSON (um produto por linha) escrito direto na resposta.
+	//Com "since" só vêm os produtos alterados depois dessa versão (a maior "versao" da exportação anterior)
+	//e os removidos depois dela, com "removido": true
+	@RequestMapping(value="/export", method=RequestMethod.GET)
+	public void export(@RequestParam(value="since", required=false) Long since, HttpServletResponse response) throws IOException {
+		response.setContentType("application/x-ndjson");
+		response.setCharacterEncoding("UTF-8");
+		service.exportar(since, response.getOutputStream());
 	}
 
 	//Vai retornar as categorias de acordo com página
+	//Com count=false a página vem sem o total exato (sem a consulta de count), o padrão fica no application.properties
 	@RequestMapping(method=RequestMethod.GET)
-	public ResponseEntity<Page<ProdutoDTO>> findPage (
+	public ResponseEntity<?> findPage (
 			//Usa parâmetros opcionais, primeiro definimos qual é a variável que vai receber o valor e depois passamos um valor padrão
 			@RequestParam(value="nome", defaultValue="") String nome,
 			@RequestParam(value="categoria", defaultValue="") String categoria,
+			@RequestParam(value="minPreco", required=false) Double minPreco,
+			@RequestParam(value="maxPreco", required=false) Double maxPreco,
 			@RequestParam(value="page", defaultValue="0") Integer page,
 			@RequestParam(value="linesPerPage", defaultValue="24") Integer linesPerPage,
 			@RequestParam(value="orderBy", defaultValue="nome") String orderBy,
-			@RequestParam(value="direction", defaultValue="ASC") String direction) {
+			@RequestParam(value="direction", defaultValue="ASC") String direction,
+			@RequestParam(value="count", defaultValue="${paginacao.count.produtos}") boolean count) {
 
 		String nomeLimpo = URL.decodeParam(nome);
 		List<Integer> ids = URL.decodeURL(categoria);
 
-		//FindAll retorna uma LISTA de produtos
-		Page<Produto> objs = service.search(nomeLimpo, ids, page, linesPerPage, orderBy, direction);
+		if (!count) {
+			return ResponseEntity.ok().body(service.searchSlice(nomeLimpo, ids, minPreco, maxPreco, page, linesPerPage, orderBy, direction));
+		}
+
+		//A busca já devolve os DTOs, montados a partir do catálogo em memória
+		Page<ProdutoDTO> objDTOs = service.search(nomeLimpo, ids, minPreco, maxPreco, page, linesPerPage, orderBy, direction);
+		return ResponseEntity.ok().body(objDTOs);
+	}
+
+	//Mesma busca paginada por cursor, usada quando o parâmetro "cursor" é informado (vazio na primeira página)
+	@RequestMapping(method=RequestMethod.GET, params="cursor")
+	public ResponseEntity<PaginaDTO<ProdutoDTO>> findPageCursor (
+			@RequestParam(value="nome", defaultValue="") String nome,
+			@RequestParam(value="categoria", defaultValue="") String categoria,
+			@RequestParam(value="minPreco", required=false) Double minPreco,
+			@RequestParam(value="maxPreco", required=false) Double maxPreco,
+			@RequestParam(value="cursor") String cursor,
+			@RequestParam(value="linesPerPage", defaultValue="24") Integer linesPerPage,
+			@RequestParam(value="orderBy", defaultValue="nome") String orderBy,
+			@RequestParam(value="direction", defaultValue="ASC") String direction) {
+
+		String nomeLimpo = URL.decodeParam(nome);
+		List<Integer> ids = URL.decodeURL(categoria);
 
-		//Faz uma lista secundaria, que vai "mapear" cada item da lista objs seguindo os valores estabelecidos como parâmetro
-		//será criado uma categoriaDTO para cada objeto da Page
-		Page<ProdutoDTO> objDTOs = objs.map(obj -> new ProdutoDTO(obj));
+		PaginaDTO<ProdutoDTO> objDTOs = service.searchCursor(nomeLimpo, ids, minPreco, maxPreco, cursor, linesPerPage, orderBy, direction);
 		return ResponseEntity.ok().body(objDTOs);
 	}
 }
@@ -13,9 +13,13 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.andersonmarques.cursomc.services.exceptions.AuthorizationException;
+import com.andersonmarques.cursomc.services.exceptions.CursorException;
 import com.andersonmarques.cursomc.services.exceptions.DataIntegrityException;
 import com.andersonmarques.cursomc.services.exceptions.FileException;
 import com.andersonmarques.cursomc.services.exceptions.ObjectNotFoundException;
+import com.andersonmarques.cursomc.services.exceptions.OrdenacaoException;
+import com.andersonmarques.cursomc.services.exceptions.RecargaException;
+import com.andersonmarques.cursomc.services.exceptions.RefreshTokenException;
 
 //Anotação que permite fazer a manipulação das exceptions
 @ControllerAdvice
@@ -69,6 +73,38 @@ public class ResourcesExceptionHandler {
 		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(erro);
 	}
 	
+	//Informa qual a classe é o gatilho desse tratamento
+	@ExceptionHandler(CursorException.class)
+	public ResponseEntity<StandartError> cursor (CursorException errorException, HttpServletRequest request) {
+		
+		StandartError erro = new StandartError(System.currentTimeMillis(), HttpStatus.BAD_REQUEST.value(), "Cursor inválido", errorException.getMessage(), request.getRequestURI());
+		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(erro);
+	}
+	
+	//Informa qual a classe é o gatilho desse tratamento
+	@ExceptionHandler(OrdenacaoException.class)
+	public ResponseEntity<StandartError> ordenacao (OrdenacaoException errorException, HttpServletRequest request) {
+		
+		StandartError erro = new StandartError(System.currentTimeMillis(), HttpStatus.BAD_REQUEST.value(), "Ordenação inválida", errorException.getMessage(), request.getRequestURI());
+		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(erro);
+	}
+	
+	//Informa qual a classe é o gatilho desse tratamento
+	@ExceptionHandler(RefreshTokenException.class)
+	public ResponseEntity<StandartError> refreshToken (RefreshTokenException errorException, HttpServletRequest request) {
+		
+		StandartError erro = new StandartError(System.currentTimeMillis(), HttpStatus.UNAUTHORIZED.value(), "Não autorizado", errorException.getMessage(), request.getRequestURI());
+		return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(erro);
+	}
+	
+	//Informa qual a classe é o gatilho desse tratamento
+	@ExceptionHandler(RecargaException.class)
+	public ResponseEntity<StandartError> recarga (RecargaException errorException, HttpServletRequest request) {
+		
+		StandartError erro = new StandartError(System.currentTimeMillis(), HttpStatus.SERVICE_UNAVAILABLE.value(), "Recarga não concluída", errorException.getMessage(), request.getRequestURI());
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(erro);
+	}
+	
 	//Informa qual a classe é o gatilho desse tratamento
 	@ExceptionHandler(AmazonServiceException.class)
 	public ResponseEntity<StandartError> amazonService (AmazonServiceException errorException, HttpServletRequest request) {
@@ -17,18 +17,26 @@ import org.springframework.security.web.authentication.AuthenticationFailureHand
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 import com.andersonmarques.cursomc.dto.CredenciaisDTO;
+import com.andersonmarques.cursomc.services.RefreshTokenService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
  
 public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilter {
+    
+    //Leitor criado uma vez só e compartilhado entre as requisições (é thread-safe)
+    private static final ObjectReader CREDENCIAIS_READER = new ObjectMapper().readerFor(CredenciaisDTO.class);
  
     private AuthenticationManager authenticationManager;
     
     private JWTUtil jwtUtil;
+    
+    private RefreshTokenService refreshTokenService;
  
-    public JWTAuthenticationFilter(AuthenticationManager authenticationManager, JWTUtil jwtUtil) {
+    public JWTAuthenticationFilter(AuthenticationManager authenticationManager, JWTUtil jwtUtil, RefreshTokenService refreshTokenService) {
         super.setAuthenticationFailureHandler(new JWTAuthenticationFailureHandler());
         this.authenticationManager = authenticationManager;
         this.jwtUtil = jwtUtil;
+        this.refreshTokenService = refreshTokenService;
     }
     
     @Override
@@ -36,7 +44,7 @@ public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilte
                                                 HttpServletResponse res) throws AuthenticationException {
  
         try {
-            CredenciaisDTO creds = new ObjectMapper().readValue(req.getInputStream(), CredenciaisDTO.class);
+            CredenciaisDTO creds = CREDENCIAIS_READER.readValue(req.getInputStream());
             UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(creds.getEmail(), creds.getSenha(), new ArrayList<>());
             Authentication auth = authenticationManager.authenticate(authToken);
             return auth;
@@ -51,10 +59,12 @@ public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilte
                                             HttpServletResponse res,
                                             FilterChain chain,
                                             Authentication auth) throws IOException, ServletException {
-        String username = ((UserSS) auth.getPrincipal()).getUsername();
-        String token = jwtUtil.generateToken(username);
+        UserSS user = (UserSS) auth.getPrincipal();
+        String token = jwtUtil.generateToken(user);
         res.addHeader("Authorization", "Bearer " + token);
-        res.addHeader("access-control-expose-headers", "Authorization");
+        //O token de acesso dura poucos minutos, o refresh token serve para pedir outro sem enviar a senha
+        res.addHeader("Refresh-Token", refreshTokenService.criar(user.getId()));
+        res.addHeader("access-control-expose-headers", "Authorization, Refresh-Token");
     }
     
     private class JWTAuthenticationFailureHandler implements AuthenticationFailureHandler {
@@ -62,17 +72,24 @@ public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilte
         @Override
         public void onAuthenticationFailure(HttpServletRequest request, HttpServletResponse response, AuthenticationException exception)
                 throws IOException, ServletException {
-            response.setStatus(401);
             response.setContentType("application/json"); 
-            response.getWriter().append(json());
+            //Pool de verificação de senha cheio: recusa rápido, o cliente tenta de novo depois
+            if (exception instanceof LoginSobrecarregadoException) {
+                response.setStatus(503);
+                response.setHeader("Retry-After", "1");
+                response.getWriter().append(json(503, "Serviço indisponível", exception.getMessage()));
+                return;
+            }
+            response.setStatus(401);
+            response.getWriter().append(json(401, "Não autorizado", "Email ou senha inválidos"));
         }
         
-        private String json() {
+        private String json(int status, String error, String message) {
             long date = new Date().getTime();
             return "{\"timestamp\": " + date + ", "
-                + "\"status\": 401, "
-                + "\"error\": \"Não autorizado\", "
-                + "\"message\": \"Email ou senha inválidos\", "
+                + "\"status\": " + status + ", "
+                + "\"error\": \"" + error + "\", "
+                + "\"message\": \"" + message + "\", "
                 + "\"path\": \"/login\"}";
         }
     }
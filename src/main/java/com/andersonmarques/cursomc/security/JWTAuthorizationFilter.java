@@ -11,21 +11,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
+import io.jsonwebtoken.Claims;
+
 public class JWTAuthorizationFilter extends BasicAuthenticationFilter {
 
 	@Autowired
 	private JWTUtil jwtUtils;
-	@Autowired
-	private UserDetailsService userDetailsService;
 	
-	public JWTAuthorizationFilter(AuthenticationManager authenticationManager, JWTUtil jwtUtils, UserDetailsService userDetailsService) {
+	public JWTAuthorizationFilter(AuthenticationManager authenticationManager, JWTUtil jwtUtils) {
 		super(authenticationManager);
 		this.jwtUtils = jwtUtils;
-		this.userDetailsService = userDetailsService;
 	}
 
 	@Override
@@ -44,9 +41,10 @@ public class JWTAuthorizationFilter extends BasicAuthenticationFilter {
 	}
 
 	private UsernamePasswordAuthenticationToken getAuthentication(String token) {
-		if(jwtUtils.tokenValido(token)) {
-			String username = jwtUtils.getUsername(token);
-			UserDetails user = userDetailsService.loadUserByUsername(username);
+		//Uma validação só, o usuário é montado com o id, email e perfis do próprio token, sem ir ao banco
+		Claims claims = jwtUtils.getClaimsValidas(token);
+		UserSS user = claims != null ? jwtUtils.getUser(claims) : null;
+		if(user != null) {
 			return new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
 		}
 		return null;
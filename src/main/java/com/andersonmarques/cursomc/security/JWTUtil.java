@@ -1,10 +1,31 @@
 package com.andersonmarques.cursomc.security;
 
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import com.andersonmarques.cursomc.domain.enums.Perfil;
+import com.andersonmarques.cursomc.services.RefreshTokenService;
+import com.andersonmarques.cursomc.services.RevogacaoService;
+
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
@@ -18,39 +39,155 @@ public class JWTUtil {
 	
 	@Value("${jwt.expiration}")
 	private long expiration;
+	
+	//Quantidade máxima de tokens já verificados guardados em memória
+	@Value("${jwt.cache.tamanho}")
+	private int tamanhoCache;
+	
+	//Chave montada uma vez só, em vez de um secret.getBytes() a cada token
+	private Key chave;
+	
+	//Tokens já verificados, pelo hash SHA-256 do token. Um token repetido não passa de novo pelo HMAC nem pelo parse do JSON
+	private final Map<String, Claims> verificados = new ConcurrentHashMap<>();
+	
+	@Autowired
+	private RevogacaoService revogacaoService;
+	@Autowired
+	private RefreshTokenService refreshTokenService;
+	
+	@PostConstruct
+	public void iniciar() {
+		chave = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), SignatureAlgorithm.HS512.getJcaName());
+	}
 
-	//Gera um token
-	public String generateToken(String userName) {
+	//Gera um token com o id e os perfis do cliente, assim as requisições não precisam buscar o cliente no banco
+	public String generateToken(UserSS user) {
+		long agora = System.currentTimeMillis();
+		List<Integer> perfis = user.getAuthorities().stream()
+				.map(x -> perfilPorDescricao(x.getAuthority()).getCod()).collect(Collectors.toList());
 		return Jwts.builder()
-				.setSubject(userName)
-				.setExpiration(new Date(System.currentTimeMillis() + expiration))
-				.signWith(SignatureAlgorithm.HS512, secret.getBytes()).compact();
+				.setId(UUID.randomUUID().toString())
+				.setSubject(user.getUsername())
+				.claim("id", user.getId().toString())
+				.claim("perfis", perfis)
+				.setIssuedAt(new Date(agora))
+				.setExpiration(new Date(agora + expiration))
+				.signWith(SignatureAlgorithm.HS512, chave).compact();
 	}
 	
-	public boolean tokenValido(String token) {
-		Claims claims = getClaims(token);
+	//Monta o usuário autenticado só com as claims de um token já validado
+	public UserSS getUser(Claims claims) {
+		try {
+			Set<Perfil> perfis = new HashSet<>();
+			for(Object cod : claims.get("perfis", List.class)) {
+				perfis.add(Perfil.toEnum(((Number) cod).intValue()));
+			}
+			return new UserSS(Long.valueOf(claims.get("id", String.class)), claims.getSubject(), null, perfis);
+		}catch(RuntimeException e) {
+			//Token sem as claims esperadas (por exemplo gerado por uma versão anterior)
+			return null;
+		}
+	}
+	
+	//Invalida os tokens já emitidos para o cliente (troca de senha, de email ou cliente removido), ele precisa fazer login de novo
+	public void revogarTokens(Long clienteId) {
+		//Depois do tempo de expiração nenhum token antigo vale mais, a revogação pode sair
+		revogacaoService.revogarCliente(clienteId, new Date(System.currentTimeMillis() + expiration));
+		refreshTokenService.revogarCliente(clienteId);
+	}
+	
+	//Invalida só este token (logout)
+	public void revogarToken(String token) {
+		Claims claims = getClaimsValidas(token);
+		if(claims != null && claims.getId() != null) {
+			revogacaoService.revogarToken(claims.getId(), claims.getExpiration());
+			verificados.remove(hash(token));
+		}
+	}
+	
+	//Valida o token uma vez só e devolve as claims, ou null se o token for inválido ou estiver expirado
+	public Claims getClaimsValidas(String token) {
+		String hash = hash(token);
+		Claims claims = verificados.get(hash);
 		if(claims != null) {
-			String username = claims.getSubject();
-			Date expirationDate = claims.getExpiration();
-			Date now = new Date(System.currentTimeMillis());
-			if(username != null && expirationDate != null && now.before(expirationDate)) {
-				return true;
+			if(naoExpirou(claims) && !revogado(claims)) {
+				return claims;
 			}
+			verificados.remove(hash);
+			return null;
+		}
+		claims = getClaims(token);
+		if(claims == null || claims.getSubject() == null || !naoExpirou(claims) || revogado(claims)) {
+			return null;
+		}
+		if(verificados.size() >= tamanhoCache) {
+			liberarEspaco();
 		}
-		return false;
+		verificados.put(hash, claims);
+		return claims;
+	}
+	
+	public boolean tokenValido(String token) {
+		return getClaimsValidas(token) != null;
 	}
 	
 	public String getUsername(String token) {
-		Claims claims = getClaims(token);
+		Claims claims = getClaimsValidas(token);
 		if(claims != null) {
 			return claims.getSubject();
 		}
 		return null;
 	}
 
+	private boolean naoExpirou(Claims claims) {
+		Date expirationDate = claims.getExpiration();
+		return expirationDate != null && System.currentTimeMillis() < expirationDate.getTime();
+	}
+	
+	private boolean revogado(Claims claims) {
+		return revogacaoService.revogado(claims.getId(), idCliente(claims), claims.getIssuedAt());
+	}
+	
+	private Long idCliente(Claims claims) {
+		try {
+			return Long.valueOf(claims.get("id", String.class));
+		}catch(RuntimeException e) {
+			return null;
+		}
+	}
+	
+	private Perfil perfilPorDescricao(String descricao) {
+		for(Perfil perfil : Perfil.values()) {
+			if(perfil.getDescricao().equals(descricao)) {
+				return perfil;
+			}
+		}
+		throw new IllegalArgumentException("Perfil desconhecido: " + descricao);
+	}
+	
+	//Remove os expirados e, se ainda estiver cheio, descarta uma parte das entradas (esses tokens só são verificados de novo)
+	private void liberarEspaco() {
+		verificados.values().removeIf(claims -> !naoExpirou(claims));
+		int remover = verificados.size() - tamanhoCache * 3 / 4;
+		Iterator<String> it = verificados.keySet().iterator();
+		while(remover-- > 0 && it.hasNext()) {
+			it.next();
+			it.remove();
+		}
+	}
+	
+	private String hash(String token) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+		}catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
 	private Claims getClaims(String token) {
 		try {
-			return Jwts.parser().setSigningKey(secret.getBytes()).parseClaimsJws(token).getBody();
+			return Jwts.parser().setSigningKey(chave).parseClaimsJws(token).getBody();
 		}catch(Exception e) {
 			return null;
 		}
@@ -0,0 +1,86 @@
+package com.andersonmarques.cursomc.security;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+//Limite de requisições por chave (IP ou email) com token bucket: cada chave tem até "porMinuto" fichas,
+//cada requisição gasta uma e elas voltam aos poucos. A tabela é dividida em faixas com lock próprio,
+//então chaves diferentes quase nunca disputam o mesmo lock, e cada faixa tem tamanho máximo.
+//Quando a faixa enche, a chave usada há mais tempo sai (e o limite dela recomeça): uma chave nova nunca é recusada
+//por falta de espaço. IPs e emails ficam em tabelas separadas, então uma enxurrada de emails inventados só disputa
+//espaço com outros emails e não tira da tabela o limite por IP de quem está mandando.
+@Component
+public class LimiteRequisicoes {
+
+	public enum Tabela {
+		IP, EMAIL
+	}
+
+	private static final int FAIXAS = 64;
+
+	//Quantidade máxima de chaves guardadas em cada tabela (somando as faixas)
+	@Value("${limite.tabela}")
+	private int tamanhoTabela;
+
+	private final Faixa[][] faixas = new Faixa[Tabela.values().length][FAIXAS];
+
+	private static class Balde {
+		double fichas;
+		long atualizado;
+	}
+
+	//LinkedHashMap em ordem de acesso: a primeira chave é a usada há mais tempo
+	private static class Faixa extends LinkedHashMap<String, Balde> {
+		private static final long serialVersionUID = 1L;
+		private final int maximo;
+
+		Faixa(int maximo) {
+			super(16, 0.75f, true);
+			this.maximo = maximo;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Balde> maisAntiga) {
+			return size() > maximo;
+		}
+	}
+
+	@PostConstruct
+	public void iniciar() {
+		int porFaixa = Math.max(1, tamanhoTabela / FAIXAS);
+		for (Faixa[] tabela : faixas) {
+			for (int i = 0; i < FAIXAS; i++) {
+				tabela[i] = new Faixa(porFaixa);
+			}
+		}
+	}
+
+	//Gasta uma ficha da chave. Devolve 0 se a requisição pode seguir, ou quantos ms faltam para a próxima ficha
+	public long consumir(Tabela tabela, String chave, int porMinuto) {
+		int hash = chave.hashCode();
+		Faixa faixa = faixas[tabela.ordinal()][(hash ^ (hash >>> 16)) & (FAIXAS - 1)];
+		long agora = System.currentTimeMillis();
+		double porMs = porMinuto / 60000.0;
+		synchronized (faixa) {
+			Balde balde = faixa.get(chave);
+			if (balde == null) {
+				balde = new Balde();
+				balde.fichas = porMinuto;
+				faixa.put(chave, balde);
+			} else {
+				balde.fichas = Math.min(porMinuto, balde.fichas + (agora - balde.atualizado) * porMs);
+			}
+			balde.atualizado = agora;
+			if (balde.fichas >= 1) {
+				balde.fichas -= 1;
+				return 0;
+			}
+			return (long) Math.ceil((1 - balde.fichas) / porMs);
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package com.andersonmarques.cursomc.security;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.andersonmarques.cursomc.security.LimiteRequisicoes.Tabela;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+//Aplica o LimiteRequisicoes nos endpoints que fazem trabalho caro (BCrypt, gravação no banco, envio de email):
+//login, esqueci a senha e cadastro de cliente. Cada um tem um limite por IP e outro pelo email do corpo.
+//Roda antes do filtro de login, então requisição acima do limite recebe 429 sem ir ao banco nem calcular hash.
+public class LimiteRequisicoesFilter extends OncePerRequestFilter {
+
+	//Os corpos destes endpoints são pequenos, acima disso a requisição é recusada com 413
+	private static final int LIMITE_CORPO = 16 * 1024;
+
+	private static final ObjectReader JSON_READER = new ObjectMapper().reader();
+
+	private LimiteRequisicoes limite;
+
+	private Regra login;
+	private Regra forgot;
+	private Regra cadastro;
+
+	//Requisições por minuto por IP e por email de um endpoint
+	public static class Regra {
+		final String nome;
+		final int porIp;
+		final int porEmail;
+
+		public Regra(String nome, int porIp, int porEmail) {
+			this.nome = nome;
+			this.porIp = porIp;
+			this.porEmail = porEmail;
+		}
+	}
+
+	public LimiteRequisicoesFilter(LimiteRequisicoes limite, Regra login, Regra forgot, Regra cadastro) {
+		this.limite = limite;
+		this.login = login;
+		this.forgot = forgot;
+		this.cadastro = cadastro;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		Regra regra = regra(request);
+		if (regra == null) {
+			chain.doFilter(request, response);
+			return;
+		}
+		//Usa o IP da conexão: X-Forwarded-For vem do cliente e poderia ser trocado a cada tentativa
+		long espera = limite.consumir(Tabela.IP, regra.nome + ":" + request.getRemoteAddr(), regra.porIp);
+		RequisicaoComCorpo requisicao = null;
+		if (espera == 0) {
+			requisicao = new RequisicaoComCorpo(request);
+			if (!requisicao.completo) {
+				responder(response, request, 413, "Corpo muito grande", "O corpo da requisição passa de " + LIMITE_CORPO + " bytes");
+				return;
+			}
+			//Sem email legível (JSON inválido, campo faltando) conta numa chave só, senão bastaria omitir o email
+			//para escapar do limite por email
+			String email = requisicao.email();
+			espera = limite.consumir(Tabela.EMAIL, regra.nome + ":" + (email != null ? email : ""), regra.porEmail);
+		}
+		if (espera > 0) {
+			long segundos = Math.max(1, (espera + 999) / 1000);
+			response.setHeader("Retry-After", String.valueOf(segundos));
+			responder(response, request, 429, "Muitas requisições", "Limite de tentativas atingido, tente novamente em " + segundos + " segundo(s)");
+			return;
+		}
+		chain.doFilter(requisicao, response);
+	}
+
+	private void responder(HttpServletResponse response, HttpServletRequest request, int status, String erro, String mensagem) throws IOException {
+		response.setStatus(status);
+		response.setContentType("application/json");
+		response.setCharacterEncoding("UTF-8");
+		response.getWriter().append("{\"timestamp\": " + new Date().getTime() + ", "
+				+ "\"status\": " + status + ", "
+				+ "\"error\": \"" + erro + "\", "
+				+ "\"message\": \"" + mensagem + "\", "
+				+ "\"path\": \"" + request.getRequestURI() + "\"}");
+	}
+
+	private Regra regra(HttpServletRequest request) {
+		if (!"POST".equals(request.getMethod())) {
+			return null;
+		}
+		String caminho = request.getServletPath();
+		if ("/login".equals(caminho)) {
+			return login;
+		}
+		if (caminho.startsWith("/auth/forgot")) {
+			return forgot;
+		}
+		if ("/clientes".equals(caminho)) {
+			return cadastro;
+		}
+		return null;
+	}
+
+	//Guarda o corpo (até LIMITE_CORPO) para ler o email e devolve o mesmo corpo para o próximo filtro
+	private static class RequisicaoComCorpo extends HttpServletRequestWrapper {
+		private final byte[] corpo;
+		private final boolean completo;
+
+		RequisicaoComCorpo(HttpServletRequest request) throws IOException {
+			super(request);
+			InputStream entrada = request.getInputStream();
+			ByteArrayOutputStream lido = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int n = 0;
+			while (lido.size() <= LIMITE_CORPO && (n = entrada.read(buffer)) != -1) {
+				lido.write(buffer, 0, n);
+			}
+			corpo = lido.toByteArray();
+			completo = n == -1;
+		}
+
+		String email() {
+			if (corpo.length == 0) {
+				return null;
+			}
+			try {
+				JsonNode email = JSON_READER.readTree(new ByteArrayInputStream(corpo)).get("email");
+				return email != null && email.isTextual() ? email.asText().trim().toLowerCase() : null;
+			} catch (IOException e) {
+				//Corpo inválido, quem ler depois responde com o erro
+				return null;
+			}
+		}
+
+		//O corpo inteiro já está em memória, então a leitura nunca bloqueia
+		@Override
+		public ServletInputStream getInputStream() throws IOException {
+			ByteArrayInputStream entrada = new ByteArrayInputStream(corpo);
+			return new ServletInputStream() {
+				@Override
+				public int read() throws IOException {
+					return entrada.read();
+				}
+
+				@Override
+				public int read(byte[] b, int off, int len) throws IOException {
+					return entrada.read(b, off, len);
+				}
+
+				@Override
+				public boolean isFinished() {
+					return entrada.available() == 0;
+				}
+
+				@Override
+				public boolean isReady() {
+					return true;
+				}
+
+				//Leitura assíncrona: os dados já estão todos disponíveis, avisa na hora
+				@Override
+				public void setReadListener(ReadListener readListener) {
+					try {
+						if (!isFinished()) {
+							readListener.onDataAvailable();
+						}
+						if (isFinished()) {
+							readListener.onAllDataRead();
+						}
+					} catch (IOException e) {
+						readListener.onError(e);
+					}
+				}
+			};
+		}
+
+		@Override
+		public BufferedReader getReader() throws IOException {
+			String charset = getCharacterEncoding();
+			return new BufferedReader(new InputStreamReader(getInputStream(), charset != null ? charset : StandardCharsets.UTF_8.name()));
+		}
+	}
+}
@@ -0,0 +1,12 @@
+package com.andersonmarques.cursomc.security;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+//Login recusado porque o pool de verificação de senha está cheio, vira 503 em vez de 401
+public class LoginSobrecarregadoException extends AuthenticationServiceException {
+	private static final long serialVersionUID = 1L;
+
+	public LoginSobrecarregadoException(String msg) {
+		super(msg);
+	}
+}
@@ -0,0 +1,130 @@
+package com.andersonmarques.cursomc.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import com.andersonmarques.cursomc.dto.SenhaEstatisticasDTO;
+
+//Verificação de senha do login num pool próprio e limitado de threads.
+//O BCrypt é lento de propósito, então uma rajada de tentativas de login ocupava todas as threads do Tomcat
+//e o resto da API parava. Agora no máximo "threads" hashes rodam ao mesmo tempo e "fila" esperam,
+//o que passar disso é recusado na hora (503) e as outras requisições continuam sendo atendidas.
+//A thread do Tomcat ainda espera o resultado, então a espera é curta (poucos hashes) e quem não seria atendido
+//dentro dela, pelo tempo médio de um hash e o tamanho da fila, é recusado antes de entrar na fila.
+@Component
+public class VerificadorSenha implements PasswordEncoder {
+
+	//Mesma configuração do BCryptPasswordEncoder do SecurityConfig
+	private final BCryptPasswordEncoder bCryptPasswordEncoder = new BCryptPasswordEncoder();
+
+	@Value("${senha.threads}")
+	private int threads;
+	@Value("${senha.fila}")
+	private int fila;
+	//Tempo máximo (ms) que o login espera pela verificação, contando a fila
+	@Value("${senha.espera}")
+	private long espera;
+
+	private ThreadPoolExecutor executor;
+
+	private final LongAdder verificacoes = new LongAdder();
+	private final LongAdder rejeitadas = new LongAdder();
+	private final LongAdder tempoTotal = new LongAdder();
+	private final LongAccumulator tempoMaximo = new LongAccumulator(Math::max, 0);
+
+	@PostConstruct
+	public void iniciar() {
+		AtomicInteger contador = new AtomicInteger();
+		executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(fila), r -> {
+			Thread thread = new Thread(r, "bcrypt-" + contador.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}, new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	//Cadastro e troca de senha continuam na thread de quem chamou
+	@Override
+	public String encode(CharSequence rawPassword) {
+		return bCryptPasswordEncoder.encode(rawPassword);
+	}
+
+	@Override
+	public boolean matches(CharSequence rawPassword, String encodedPassword) {
+		if (!cabeNaEspera()) {
+			rejeitadas.increment();
+			throw new LoginSobrecarregadoException("Muitas tentativas de login ao mesmo tempo, tente novamente em instantes");
+		}
+		Future<Boolean> resultado;
+		try {
+			resultado = executor.submit(() -> {
+				long inicio = System.nanoTime();
+				try {
+					return bCryptPasswordEncoder.matches(rawPassword, encodedPassword);
+				} finally {
+					long tempo = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - inicio);
+					verificacoes.increment();
+					tempoTotal.add(tempo);
+					tempoMaximo.accumulate(tempo);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			rejeitadas.increment();
+			throw new LoginSobrecarregadoException("Muitas tentativas de login ao mesmo tempo, tente novamente em instantes");
+		}
+		try {
+			return resultado.get(espera, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			resultado.cancel(true);
+			//O ThreadPoolExecutor não tira da fila a tarefa cancelada, ela ocuparia a vaga e entraria na previsão da espera
+			executor.remove((Runnable) resultado);
+			rejeitadas.increment();
+			throw new LoginSobrecarregadoException("Tempo esgotado ao verificar a senha, tente novamente em instantes");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AuthenticationServiceException("Verificação de senha interrompida", e);
+		} catch (ExecutionException e) {
+			throw new AuthenticationServiceException("Falha ao verificar a senha", e.getCause());
+		}
+	}
+
+	//Tempo previsto até o fim da verificação: as rodadas de hashes na frente (rodando e na fila) mais o próprio hash
+	private boolean cabeNaEspera() {
+		long total = verificacoes.sum();
+		if (total == 0) {
+			return true;
+		}
+		double medio = tempoTotal.sum() / 1000.0 / total;
+		int naFrente = executor.getActiveCount() + executor.getQueue().size();
+		double previsto = (naFrente / threads + 1) * medio;
+		return previsto <= espera;
+	}
+
+	public SenhaEstatisticasDTO estatisticas() {
+		long total = verificacoes.sum();
+		double medio = total == 0 ? 0 : tempoTotal.sum() / 1000.0 / total;
+		return new SenhaEstatisticasDTO(total, rejeitadas.sum(), medio, tempoMaximo.get() / 1000.0,
+				executor.getActiveCount(), executor.getQueue().size());
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		executor.shutdownNow();
+	}
+}
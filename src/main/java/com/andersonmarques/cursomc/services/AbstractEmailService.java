@@ -1,18 +1,24 @@
 package com.andersonmarques.cursomc.services;
 
 import java.util.Date;
+import java.util.List;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.SimpleMailMessage;
 
 import com.andersonmarques.cursomc.domain.Cliente;
 import com.andersonmarques.cursomc.domain.Pedido;
+import com.andersonmarques.cursomc.services.template.PedidoTemplate;
 
 public abstract class AbstractEmailService implements EmailService{
 	
 	@Value("${default.sender}")
 	private String emailOrigem;
 	
+	@Autowired
+	private PedidoTemplate pedidoTemplate;
+	
 	@Override
 	public void sandOrderConfirmationEmail(Pedido pedido) {
 		SimpleMailMessage sMailMessage = prepareSimpleMailMessageFromPedido(pedido);
@@ -25,11 +31,21 @@ public abstract class AbstractEmailService implements EmailService{
 		simple.setFrom(emailOrigem);
 		simple.setSubject("Pedido confirmado! Código: "+pedido.getId());
 		simple.setSentDate(new Date(System.currentTimeMillis()));
-		simple.setText(pedido.toString());
+		simple.setText(pedidoTemplate.texto(pedido));
 		
 		return simple;
 	}
 	
+	//Mesmo conteúdo em HTML, para os envios que mandam as duas versões
+	protected String prepareHtmlFromPedido(Pedido pedido) {
+		return pedidoTemplate.html(pedido);
+	}
+	
+	//Um HTML com as confirmações de vários pedidos, cada uma já renderizada por prepareHtmlFromPedido
+	protected String juntarHtml(List<String> htmls) {
+		return pedidoTemplate.juntarHtml(htmls);
+	}
+	
 	@Override
 	public void sandNewPasswordEmail(Cliente cliente, String newPass) {
 		SimpleMailMessage simples = prepareNewPasswordEmail(cliente, newPass);
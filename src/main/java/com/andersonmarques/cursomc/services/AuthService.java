@@ -8,6 +8,7 @@ import org.springframework.stereotype.Service;
 
 import com.andersonmarques.cursomc.domain.Cliente;
 import com.andersonmarques.cursomc.repositories.ClienteRepository;
+import com.andersonmarques.cursomc.security.JWTUtil;
 import com.andersonmarques.cursomc.services.exceptions.ObjectNotFoundException;
 
 @Service
@@ -21,6 +22,9 @@ public class AuthService {
 	@Autowired
 	private EmailService emailService;
 	
+	@Autowired
+	private JWTUtil jwtUtil;
+	
 	private Random random = new Random();
 	
 	public void sandNewPassword(String email) {
@@ -33,6 +37,8 @@ public class AuthService {
 		cliente.setSenha(passwordEnconder.encode(newPass));
 		
 		clienteRepository.save(cliente);
+		//Quem tinha um token com a senha antiga precisa entrar de novo
+		jwtUtil.revogarTokens(cliente.getId());
 		emailService.sandNewPasswordEmail(cliente, newPass);
 	}
 
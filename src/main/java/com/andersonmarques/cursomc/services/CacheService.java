@@ -0,0 +1,71 @@
+package com.andersonmarques.cursomc.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.andersonmarques.cursomc.domain.Categoria;
+import com.andersonmarques.cursomc.domain.Cidade;
+import com.andersonmarques.cursomc.domain.Estado;
+import com.andersonmarques.cursomc.domain.Produto;
+import com.andersonmarques.cursomc.dto.CacheRegiaoDTO;
+
+@Service
+public class CacheService {
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	//Acertos, erros e tamanho de cada região do cache de segundo nível (entidades, coleções e consultas)
+	public List<CacheRegiaoDTO> estatisticas() {
+		Statistics estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		String[] regioes = estatisticas.getSecondLevelCacheRegionNames();
+		Arrays.sort(regioes);
+
+		List<CacheRegiaoDTO> lista = new ArrayList<>();
+		for (String regiao : regioes) {
+			SecondLevelCacheStatistics regiaoEstatisticas = estatisticas.getSecondLevelCacheStatistics(regiao);
+			if (regiaoEstatisticas != null) {
+				lista.add(new CacheRegiaoDTO(regiao, regiaoEstatisticas.getHitCount(), regiaoEstatisticas.getMissCount(),
+						regiaoEstatisticas.getPutCount(), regiaoEstatisticas.getElementCountInMemory()));
+			}
+		}
+		return lista;
+	}
+
+	//Tira do cache de segundo nível as entidades cobertas por um contador do VersaoService.
+	//O cache é local: quando outra instância altera os dados, o que está aqui ficou antigo e não pode
+	//ser respondido junto com o ETag novo
+	public void limpar(String chaveVersao) {
+		Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+		switch (chaveVersao) {
+		case VersaoService.PRODUTOS:
+			cache.evictEntityRegion(Produto.class);
+			cache.evictCollectionRegion(Produto.class.getName() + ".categorias");
+			break;
+		case VersaoService.CATEGORIAS:
+			cache.evictEntityRegion(Categoria.class);
+			break;
+		case VersaoService.LOCALIDADES:
+			cache.evictEntityRegion(Estado.class);
+			cache.evictEntityRegion(Cidade.class);
+			break;
+		default:
+			break;
+		}
+	}
+
+	//Tira um produto do cache de segundo nível depois de uma gravação feita por fora do Hibernate (ex: coluna versao)
+	public void limparProduto(Integer id) {
+		entityManagerFactory.unwrap(SessionFactory.class).getCache().evictEntity(Produto.class, id);
+	}
+}
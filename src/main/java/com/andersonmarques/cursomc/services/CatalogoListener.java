@@ -0,0 +1,214 @@
+package com.andersonmarques.cursomc.services;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.andersonmarques.cursomc.domain.Categoria;
+import com.andersonmarques.cursomc.domain.Cidade;
+import com.andersonmarques.cursomc.domain.Estado;
+import com.andersonmarques.cursomc.domain.Produto;
+
+//Escuta as gravações do Hibernate para manter o catálogo, os estados/cidades em memória e as versões dos ETags atualizados,
+//assim qualquer caminho que salve um produto (services, DBService...) é coberto.
+//As alterações de uma transação são juntadas e publicadas uma vez depois do commit: versões, marca dos produtos
+//para a exportação incremental e recarga dos dados em memória.
+@Component
+public class CatalogoListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+		PostCollectionRecreateEventListener, PostCollectionUpdateEventListener, PostCollectionRemoveEventListener {
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger LOG = LoggerFactory.getLogger(CatalogoListener.class);
+
+	//Chave das alterações da transação atual
+	private static final Object ALTERACOES = new Object();
+
+	@Autowired
+	private transient EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private transient JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private transient CatalogoService catalogoService;
+
+	@Autowired
+	private transient VersaoService versaoService;
+
+	@Autowired
+	private transient EstadoService estadoService;
+
+	@Autowired
+	private transient CacheService cacheService;
+
+	@PostConstruct
+	public void registrar() {
+		EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImpl.class)
+				.getServiceRegistry().getService(EventListenerRegistry.class);
+		registry.appendListeners(EventType.POST_INSERT, this);
+		registry.appendListeners(EventType.POST_UPDATE, this);
+		registry.appendListeners(EventType.POST_DELETE, this);
+		//A relação produto x categoria é gravada como coleção, sem evento na entidade
+		registry.appendListeners(EventType.POST_COLLECTION_RECREATE, this);
+		registry.appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+		registry.appendListeners(EventType.POST_COLLECTION_REMOVE, this);
+	}
+
+	@Override
+	public void onPostInsert(PostInsertEvent event) {
+		verificar(event.getEntity(), false);
+	}
+
+	@Override
+	public void onPostUpdate(PostUpdateEvent event) {
+		verificar(event.getEntity(), false);
+	}
+
+	@Override
+	public void onPostDelete(PostDeleteEvent event) {
+		verificar(event.getEntity(), true);
+	}
+
+	@Override
+	public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+		verificarColecao(event);
+	}
+
+	@Override
+	public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+		verificarColecao(event);
+	}
+
+	@Override
+	public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+		verificarColecao(event);
+	}
+
+	private void verificarColecao(AbstractCollectionEvent event) {
+		verificar(event.getAffectedOwnerOrNull(), false);
+	}
+
+	//Chaves do VersaoService e produtos alterados numa transação
+	private static class Alteracoes {
+		final Set<String> chaves = new TreeSet<>();
+		//Id do produto -> removido
+		final Map<Integer, Boolean> produtos = new TreeMap<>();
+	}
+
+	private void verificar(Object entidade, boolean removido) {
+		//Só as entidades cobertas pelos ETags e pelos dados em memória, pedidos, clientes, tokens etc. são ignorados
+		String chave;
+		if (entidade instanceof Produto) {
+			chave = VersaoService.PRODUTOS;
+		} else if (entidade instanceof Categoria) {
+			chave = VersaoService.CATEGORIAS;
+		} else if (entidade instanceof Estado || entidade instanceof Cidade) {
+			chave = VersaoService.LOCALIDADES;
+		} else {
+			return;
+		}
+		boolean transacao = TransactionSynchronizationManager.isSynchronizationActive();
+		Alteracoes alteracoes = transacao ? alteracoesDaTransacao() : new Alteracoes();
+		alteracoes.chaves.add(chave);
+		if (entidade instanceof Produto) {
+			alteracoes.produtos.merge(((Produto) entidade).getId(), removido, Boolean::logicalOr);
+		}
+		if (!transacao) {
+			publicar(alteracoes);
+		}
+	}
+
+	private Alteracoes alteracoesDaTransacao() {
+		Alteracoes alteracoes = (Alteracoes) TransactionSynchronizationManager.getResource(ALTERACOES);
+		if (alteracoes == null) {
+			Alteracoes novas = new Alteracoes();
+			alteracoes = novas;
+			TransactionSynchronizationManager.bindResource(ALTERACOES, novas);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					publicar(novas);
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(ALTERACOES);
+				}
+			});
+		}
+		return alteracoes;
+	}
+
+	//Os dados já estão commitados: incrementa as versões e, na mesma transação curta, marca os produtos com a versão nova.
+	//A recarga vem depois, então o catálogo em memória já lê os produtos com a marca nova.
+	//A marca é gravada por fora do Hibernate: o Produto que o commit deixou no cache de segundo nível tem a versão antiga
+	//e sai do cache depois que a marca foi commitada (quem ler antes disso e guardar no cache também é tirado)
+	private void publicar(Alteracoes alteracoes) {
+		try {
+			versaoService.incrementar(alteracoes.chaves, versoes -> {
+				Long versao = versoes.get(VersaoService.PRODUTOS);
+				alteracoes.produtos.forEach((id, removido) -> gravarVersao(id, versao, removido));
+			});
+			alteracoes.produtos.keySet().forEach(cacheService::limparProduto);
+		} catch (RuntimeException e) {
+			LOG.error("Falha ao registrar a versão das alterações " + alteracoes.chaves, e);
+		}
+		if (alteracoes.chaves.contains(VersaoService.PRODUTOS) || alteracoes.chaves.contains(VersaoService.CATEGORIAS)) {
+			catalogoService.notificarAlteracao();
+		}
+		if (alteracoes.chaves.contains(VersaoService.LOCALIDADES)) {
+			estadoService.notificarAlteracao();
+		}
+	}
+
+	//A coluna não é gravada pelo Hibernate, só aqui. Produto removido vira um registro em ProdutoRemovido com a versão da remoção
+	private void gravarVersao(Integer id, long versao, boolean removido) {
+		if (removido) {
+			jdbcTemplate.update("INSERT INTO produto_removido (versao, id) VALUES (?, ?)", versao, id);
+		} else {
+			jdbcTemplate.update("UPDATE produto SET versao = ? WHERE id = ?", versao, id);
+		}
+	}
+
+	@Override
+	public boolean requiresPostCommitHandling(EntityPersister persister) {
+		return false;
+	}
+
+	//No Hibernate 5.2 este ainda é o método abstrato da interface (o novo só chama ele), então precisa existir
+	//até a atualização do Hibernate; o aviso de depreciação não tem como ser evitado de outro jeito
+	@Override
+	@SuppressWarnings("deprecation")
+	public boolean requiresPostCommitHanding(EntityPersister persister) {
+		return requiresPostCommitHandling(persister);
+	}
+}
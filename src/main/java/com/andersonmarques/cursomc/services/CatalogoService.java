@@ -0,0 +1,122 @@
+package com.andersonmarques.cursomc.services;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.andersonmarques.cursomc.repositories.CategoriaRepository;
+import com.andersonmarques.cursomc.repositories.ItemPedidoRepository;
+import com.andersonmarques.cursomc.repositories.ProdutoRepository;
+import com.andersonmarques.cursomc.services.index.CatalogoSnapshot;
+import com.andersonmarques.cursomc.utils.Normalizador;
+
+@Service
+public class CatalogoService {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CatalogoService.class);
+
+	private static final int LOTE_NORMALIZACAO = 500;
+
+	@Autowired
+	private ProdutoRepository produtoRepository;
+	@Autowired
+	private CategoriaRepository categoriaRepository;
+	@Autowired
+	private ItemPedidoRepository itemPedidoRepository;
+	@Autowired
+	private VersaoService versaoService;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	//Snapshot atual com a versão dos produtos (VersaoService.PRODUTOS) lida junto com ele
+	private SnapshotRecarregavel<CatalogoSnapshot> catalogo;
+
+	@PostConstruct
+	public void iniciar() {
+		catalogo = new SnapshotRecarregavel<>(VersaoService.PRODUTOS, "o catálogo", versaoService, transactionManager,
+				() -> CatalogoSnapshot.of(produtoRepository.findIdNomePreco(),
+						produtoRepository.findProdutoCategoria(), itemPedidoRepository.findQuantidadePorProduto()),
+				novo -> "Catálogo carregado com " + novo.size() + " produtos");
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void carregarAoIniciar() {
+		normalizarNomesPendentes();
+		catalogo.recarregar();
+	}
+
+	//Em banco criado antes da coluna nomeNormalizado (ddl-auto=none) as linhas antigas ficam com a coluna nula
+	//e as buscas por nome não acham esses produtos e categorias. Preenche em lotes, com o mesmo Normalizador das gravações;
+	//o UPDATE em JPQL não passa pelo listener, então não muda versões nem dispara recarga
+	private void normalizarNomesPendentes() {
+		try {
+			int produtos = normalizar(produtoRepository::findIdNomeByNomeNormalizadoIsNull, produtoRepository::atualizarNomeNormalizado);
+			int categorias = normalizar(categoriaRepository::findIdNomeByNomeNormalizadoIsNull, categoriaRepository::atualizarNomeNormalizado);
+			if (produtos + categorias > 0) {
+				LOG.info("Nome normalizado preenchido em " + produtos + " produto(s) e " + categorias + " categoria(s)");
+			}
+		} catch (RuntimeException e) {
+			LOG.error("Falha ao preencher o nome normalizado dos produtos e categorias", e);
+		}
+	}
+
+	private int normalizar(Function<Pageable, List<Object[]>> pendentes, BiFunction<Integer, String, Integer> atualizar) {
+		TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+		int total = 0;
+		List<Object[]> lote;
+		while (!(lote = pendentes.apply(PageRequest.of(0, LOTE_NORMALIZACAO))).isEmpty()) {
+			List<Object[]> linhas = lote;
+			transacao.execute(status -> {
+				for (Object[] linha : linhas) {
+					atualizar.apply((Integer) linha[0], Normalizador.normalizar((String) linha[1]));
+				}
+				return null;
+			});
+			total += lote.size();
+		}
+		return total;
+	}
+
+	//null enquanto não foi carregado
+	public CatalogoSnapshot getSnapshot() {
+		return catalogo.get();
+	}
+
+	//Chamado pelo CatalogoListener depois do commit de uma alteração de produto ou categoria
+	public void notificarAlteracao() {
+		catalogo.agendarRecarga();
+	}
+
+	//Pega as alterações feitas em outra instância
+	@Scheduled(fixedDelayString = "${versao.intervalo}", initialDelayString = "${versao.intervalo}")
+	public void verificarVersao() {
+		catalogo.verificarVersao();
+	}
+
+	//Pedidos novos não recarregam o catálogo (seria uma recarga por pedido), então a popularidade usada
+	//no autocompletar é recalculada de tempos em tempos, trocando só o índice de sugestões
+	@Scheduled(fixedDelayString = "${catalogo.popularidade.intervalo}")
+	public void verificarPopularidade() {
+		catalogo.agendarAtualizacao(atual -> atual.comPopularidade(itemPedidoRepository.findQuantidadePorProduto()));
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		catalogo.encerrar();
+	}
+}
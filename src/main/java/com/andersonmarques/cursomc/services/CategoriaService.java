@@ -1,5 +1,6 @@
 package com.andersonmarques.cursomc.services;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,16 +13,26 @@ import org.springframework.stereotype.Service;
 
 import com.andersonmarques.cursomc.domain.Categoria;
 import com.andersonmarques.cursomc.dto.CategoriaDTO;
+import com.andersonmarques.cursomc.dto.PaginaDTO;
 import com.andersonmarques.cursomc.repositories.CategoriaRepository;
+import com.andersonmarques.cursomc.repositories.KeysetQuery;
 import com.andersonmarques.cursomc.services.exceptions.DataIntegrityException;
 import com.andersonmarques.cursomc.services.exceptions.ObjectNotFoundException;
+import com.andersonmarques.cursomc.utils.Normalizador;
 
 @Service
 public class CategoriaService {
 	
+	//Campos aceitos em orderBy na paginação por cursor
+	private static final List<String> ORDENAVEIS_CURSOR = Arrays.asList("id", "nome");
+	
 	//Essa anotação Autowired instância automaticamente a classe CategoriaRepository
 	@Autowired 
 	private CategoriaRepository repositorio;
+	@Autowired
+	private KeysetQuery keysetQuery;
+	@Autowired
+	private ContagemService contagemService;
 	
 	//Faz a busca no repositório com base no id
 	public Categoria find (Integer id) {
@@ -61,16 +72,33 @@ public class CategoriaService {
 		}
 	}
 	
-	//Retorna todas as categorias
-	public List<Categoria> findAll(){
-		return repositorio.findAll();
+	//Retorna todas as categorias, já como DTO
+	public List<CategoriaDTO> findAll(){
+		return repositorio.findAllDTO();
+	}
+	
+	//Categorias cujo nome começa com o texto, sem diferenciar acentos e maiúsculas
+	public List<CategoriaDTO> findByNome(String nome){
+		return repositorio.findDTOByNomeNormalizadoStartingWith(Normalizador.escaparLike(Normalizador.normalizar(nome)));
 	}
 	
 	//Buscar informações das categorias dividido em paginação
-	public Page<Categoria> findPage(Integer page, Integer linesPerPage, String orderBy, String direction) {
+	public Page<CategoriaDTO> findPage(Integer page, Integer linesPerPage, String orderBy, String direction) {
 		//É preciso fazer a conversão de String para Direction na hora de informar o valor
 		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
-		return repositorio.findAll(pageRequest);
+		return repositorio.findPageDTO(pageRequest);
+	}
+	
+	//Paginação sem a consulta de count, o total é o aproximado do contador
+	public PaginaDTO<CategoriaDTO> findSlice(Integer page, Integer linesPerPage, String orderBy, String direction) {
+		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
+		return new PaginaDTO<>(repositorio.findSliceDTO(pageRequest), contagemService.getTotalCategorias());
+	}
+	
+	//Paginação por cursor, continua a partir do último item da página anterior
+	public PaginaDTO<CategoriaDTO> findPageCursor(String cursor, Integer linesPerPage, String orderBy, String direction) {
+		return keysetQuery.buscar(Categoria.class, CategoriaDTO.class, KeysetQuery.dto(CategoriaDTO.class, "id", "nome"),
+				null, ORDENAVEIS_CURSOR, orderBy, direction, cursor, linesPerPage);
 	}
 	
 	//Retorna uma categoria a partir de um DTO
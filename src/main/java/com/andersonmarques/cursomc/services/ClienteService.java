@@ -2,6 +2,7 @@ package com.andersonmarques.cursomc.services;
 
 import java.awt.image.BufferedImage;
 import java.net.URI;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,8 +24,11 @@ import com.andersonmarques.cursomc.domain.enums.Perfil;
 import com.andersonmarques.cursomc.domain.enums.TipoCliente;
 import com.andersonmarques.cursomc.dto.ClienteDTO;
 import com.andersonmarques.cursomc.dto.ClienteNewDTO;
+import com.andersonmarques.cursomc.dto.PaginaDTO;
 import com.andersonmarques.cursomc.repositories.ClienteRepository;
 import com.andersonmarques.cursomc.repositories.EnderecoRepository;
+import com.andersonmarques.cursomc.repositories.KeysetQuery;
+import com.andersonmarques.cursomc.security.JWTUtil;
 import com.andersonmarques.cursomc.security.UserSS;
 import com.andersonmarques.cursomc.services.exceptions.AuthorizationException;
 import com.andersonmarques.cursomc.services.exceptions.DataIntegrityException;
@@ -33,6 +37,9 @@ import com.andersonmarques.cursomc.services.exceptions.ObjectNotFoundException;
 @Service
 public class ClienteService {
 	
+	//Campos aceitos em orderBy na paginação por cursor (nunca a senha)
+	private static final List<String> ORDENAVEIS_CURSOR = Arrays.asList("id", "nome", "email");
+	
 	//Essa anotação Autowired instância automaticamente a classe ClienteRepository
 	@Autowired 
 	private ClienteRepository repositorio;
@@ -44,6 +51,12 @@ public class ClienteService {
 	private S3Service s3Service;
 	@Autowired
 	private ImageService imageService;
+	@Autowired
+	private KeysetQuery keysetQuery;
+	@Autowired
+	private ContagemService contagemService;
+	@Autowired
+	private JWTUtil jwtUtil;
 	
 	@Value("${img.prefix.cliente.profile}")
 	private String prefix;
@@ -52,7 +65,7 @@ public class ClienteService {
 	private Integer size;
 	
 	//Faz a busca no repositório com base no id
-	public Cliente find(Integer id) {
+	public Cliente find(Long id) {
 		UserSS user = UserService.authenticated();
 		if((user == null || !user.hasRole(Perfil.ADMIN)) && !id.equals(user.getId())) {
 			throw new AuthorizationException("Acesso negado");
@@ -79,25 +92,32 @@ public class ClienteService {
 	//Atualiza o cliente no repositório
 	public Cliente update(Cliente obj) {
 		Cliente clienteExistente = find(obj.getId());
+		boolean trocouEmail = !clienteExistente.getEmail().equals(obj.getEmail());
 		
 		//Atualiza os campos do cliente antigo com base no novo objeto
 		updateData(clienteExistente, obj);
-		return repositorio.save(clienteExistente);
+		clienteExistente = repositorio.save(clienteExistente);
+		//O email vai dentro do token, os tokens com o email antigo deixam de valer
+		if(trocouEmail) {
+			jwtUtil.revogarTokens(clienteExistente.getId());
+		}
+		return clienteExistente;
 	}
 	
 	//Remover um cliente com base no ID
-	public void delete (Integer id) {
+	public void delete (Long id) {
 		find(id);
 		try {
 			repositorio.deleteById(id);
+			jwtUtil.revogarTokens(id);
 		}catch(DataIntegrityViolationException erro) {
 			throw new DataIntegrityException("Não é possível remover cliente com entidades relacionadas");
 		}
 	}
 	
 	//Retorna todas os cliente
-	public List<Cliente> findAll(){
-		return repositorio.findAll();
+	public List<ClienteDTO> findAll(){
+		return repositorio.findAllDTO();
 	}
 	
 	//Buscar cliente por email
@@ -117,10 +137,23 @@ public class ClienteService {
 	}
 		
 	//Buscar informações dos cliente dividido em paginação
-	public Page<Cliente> findPage(Integer page, Integer linesPerPage, String orderBy, String direction) {
+	public Page<ClienteDTO> findPage(Integer page, Integer linesPerPage, String orderBy, String direction) {
 		//É preciso fazer a conversão de String para Direction na hora de informar o valor
 		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
-		return repositorio.findAll(pageRequest);
+		return repositorio.findPageDTO(pageRequest);
+	}
+	
+	//Paginação sem a consulta de count, o total é o aproximado do contador
+	public PaginaDTO<ClienteDTO> findSlice(Integer page, Integer linesPerPage, String orderBy, String direction) {
+		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
+		return new PaginaDTO<>(repositorio.findSliceDTO(pageRequest), contagemService.getTotalClientes());
+	}
+	
+	//Paginação por cursor, continua a partir do último item da página anterior
+	//O DTO sai direto da consulta, sem carregar os perfis (EAGER) de cada cliente
+	public PaginaDTO<ClienteDTO> findPageCursor(String cursor, Integer linesPerPage, String orderBy, String direction) {
+		return keysetQuery.buscar(Cliente.class, ClienteDTO.class, KeysetQuery.dto(ClienteDTO.class, "id", "nome", "email"),
+				null, ORDENAVEIS_CURSOR, orderBy, direction, cursor, linesPerPage);
 	}
 	
 	//Retorna um cliente a partir de um DTO
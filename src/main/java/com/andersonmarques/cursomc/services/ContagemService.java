@@ -0,0 +1,178 @@
+package com.andersonmarques.cursomc.services;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.andersonmarques.cursomc.repositories.CategoriaRepository;
+import com.andersonmarques.cursomc.repositories.ClienteRepository;
+import com.andersonmarques.cursomc.repositories.PedidoRepository;
+
+//Totais aproximados das listagens paginadas sem count.
+//Os counts gerais rodam em segundo plano de tempos em tempos, as requisições só leem o último valor.
+//O total de pedidos é por cliente e fica num cache com tamanho máximo. A listagem nunca faz o count: devolve o valor
+//guardado (ou nenhum total, na primeira listagem do cliente) e pede a contagem em segundo plano quando o valor
+//não existe ou passou do mesmo intervalo das outras contagens. Cada pedido novo soma um no valor guardado.
+@Service
+public class ContagemService {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ContagemService.class);
+
+	//Contagens de pedidos esperando a thread, as que passarem disso são pedidas de novo na próxima listagem
+	private static final int FILA = 1000;
+
+	@Autowired
+	private CategoriaRepository categoriaRepository;
+	@Autowired
+	private ClienteRepository clienteRepository;
+	@Autowired
+	private PedidoRepository pedidoRepository;
+
+	//Clientes com o total de pedidos guardado
+	@Value("${paginacao.contagem.pedidos.tamanho}")
+	private int tamanhoPedidos;
+
+	@Value("${paginacao.contagem.intervalo}")
+	private long intervalo;
+
+	//Nulos enquanto a primeira contagem não terminou
+	private volatile Long totalCategorias;
+	private volatile Long totalClientes;
+
+	private static class Contagem {
+		final long total;
+		final long calculadaEm;
+
+		Contagem(long total, long calculadaEm) {
+			this.total = total;
+			this.calculadaEm = calculadaEm;
+		}
+	}
+
+	//Clientes em ordem de acesso, o usado há mais tempo sai quando passa do tamanho máximo
+	private Map<Long, Contagem> pedidosPorCliente;
+
+	//Clientes com contagem já na fila, o mesmo cliente não entra duas vezes
+	private final Set<Long> pendentes = ConcurrentHashMap.newKeySet();
+
+	private final ThreadPoolExecutor contagens = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+			new LinkedBlockingQueue<>(FILA), r -> {
+				Thread thread = new Thread(r, "contagem-pedidos");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	@PostConstruct
+	public void iniciar() {
+		pedidosPorCliente = new LinkedHashMap<Long, Contagem>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Contagem> eldest) {
+				return size() > tamanhoPedidos;
+			}
+		};
+	}
+
+	@Scheduled(fixedDelayString = "${paginacao.contagem.intervalo}")
+	public void atualizar() {
+		try {
+			totalCategorias = categoriaRepository.count();
+			totalClientes = clienteRepository.count();
+		} catch (RuntimeException e) {
+			//Mantém os valores anteriores até a próxima execução
+			LOG.error("Falha ao atualizar as contagens", e);
+		}
+	}
+
+	public Long getTotalCategorias() {
+		return totalCategorias;
+	}
+
+	public Long getTotalClientes() {
+		return totalClientes;
+	}
+
+	//Nulo enquanto a primeira contagem do cliente não terminou
+	public Long getTotalPedidos(Long clienteId) {
+		Contagem contagem;
+		synchronized (pedidosPorCliente) {
+			contagem = pedidosPorCliente.get(clienteId);
+		}
+		if (contagem == null || System.currentTimeMillis() - contagem.calculadaEm >= intervalo) {
+			agendarContagem(clienteId);
+		}
+		return contagem == null ? null : contagem.total;
+	}
+
+	//Chamado na inserção do pedido, soma depois do commit só se o cliente já tem total guardado
+	public void registrarPedido(Long clienteId) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					somarPedido(clienteId);
+				}
+			});
+		} else {
+			somarPedido(clienteId);
+		}
+	}
+
+	private void somarPedido(Long clienteId) {
+		synchronized (pedidosPorCliente) {
+			Contagem contagem = pedidosPorCliente.get(clienteId);
+			if (contagem != null) {
+				pedidosPorCliente.put(clienteId, new Contagem(contagem.total + 1, contagem.calculadaEm));
+			}
+		}
+	}
+
+	private void agendarContagem(Long clienteId) {
+		if (!pendentes.add(clienteId)) {
+			return;
+		}
+		try {
+			contagens.execute(() -> contarPedidos(clienteId));
+		} catch (RejectedExecutionException e) {
+			//Fila cheia
+			pendentes.remove(clienteId);
+		}
+	}
+
+	private void contarPedidos(Long clienteId) {
+		try {
+			long agora = System.currentTimeMillis();
+			long total = pedidoRepository.countByClienteId(clienteId);
+			synchronized (pedidosPorCliente) {
+				pedidosPorCliente.put(clienteId, new Contagem(total, agora));
+			}
+		} catch (RuntimeException e) {
+			LOG.error("Falha ao contar os pedidos do cliente " + clienteId, e);
+		} finally {
+			pendentes.remove(clienteId);
+		}
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		contagens.shutdownNow();
+	}
+}
@@ -0,0 +1,211 @@
+package com.andersonmarques.cursomc.services;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.andersonmarques.cursomc.domain.EmailPendente;
+import com.andersonmarques.cursomc.domain.Pedido;
+import com.andersonmarques.cursomc.domain.enums.SituacaoEmail;
+import com.andersonmarques.cursomc.repositories.EmailPendenteRepository;
+import com.andersonmarques.cursomc.repositories.PedidoRepository;
+
+//Envio em segundo plano dos emails de confirmação gravados na caixa de saída (EmailPendente).
+//Uma thread coordenadora busca os emails prontos e distribui entre no máximo "concorrencia" threads de envio.
+//As threads de envio só carregam o pedido e entregam ao EmailService, sem esperar o email sair (o SMTP pode juntar
+//confirmações numa janela); o resultado é gravado quando o envio termina. No máximo "simultaneos" emails ficam
+//entregues esperando o resultado, acima disso a coordenadora espera antes de reservar mais.
+//Em caso de erro o email volta para a fila com espera exponencial, até o limite de tentativas.
+@Service
+public class EmailOutboxService {
+
+	private static final Logger LOG = LoggerFactory.getLogger(EmailOutboxService.class);
+
+	//Maior espera entre duas tentativas
+	private static final long ESPERA_MAXIMA = TimeUnit.HOURS.toMillis(1);
+
+	@Autowired
+	private EmailPendenteRepository emailPendenteRepository;
+	@Autowired
+	private PedidoRepository pedidoRepository;
+	@Autowired
+	private EmailService emailService;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Value("${email.outbox.intervalo}")
+	private long intervalo;
+	@Value("${email.outbox.concorrencia}")
+	private int concorrencia;
+	@Value("${email.outbox.lote}")
+	private int lote;
+	@Value("${email.outbox.tentativas}")
+	private int tentativas;
+	@Value("${email.outbox.espera}")
+	private long espera;
+	//Tempo que um email fica reservado para o nó que está enviando, se o nó cair outro envia depois disso
+	@Value("${email.outbox.reserva}")
+	private long reserva;
+	@Value("${email.outbox.simultaneos}")
+	private int simultaneos;
+
+	//Uma thread só busca e distribui, então duas buscas nunca rodam ao mesmo tempo neste nó
+	private final ScheduledExecutorService coordenador = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "email-outbox");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private ExecutorService envios;
+	private Semaphore entregues;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void iniciar() {
+		entregues = new Semaphore(simultaneos);
+		AtomicInteger contador = new AtomicInteger();
+		envios = Executors.newFixedThreadPool(concorrencia, r -> {
+			Thread thread = new Thread(r, "email-envio-" + contador.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		coordenador.scheduleWithFixedDelay(this::processarComSeguranca, 0, intervalo, TimeUnit.MILLISECONDS);
+	}
+
+	//Grava o email na mesma transação do pedido. Depois do commit a coordenadora é acordada,
+	//sem esperar o próximo ciclo, mas fora da requisição que criou o pedido.
+	public void registrarConfirmacao(Pedido pedido) {
+		emailPendenteRepository.save(new EmailPendente(null, pedido.getId(), new Date()));
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					acordar();
+				}
+			});
+		} else {
+			acordar();
+		}
+	}
+
+	private void acordar() {
+		if (envios != null) {
+			coordenador.execute(this::processarComSeguranca);
+		}
+	}
+
+	//Exceção dentro de scheduleWithFixedDelay cancelaria os próximos ciclos
+	private void processarComSeguranca() {
+		try {
+			processar();
+		} catch (RuntimeException e) {
+			LOG.error("Falha ao processar a caixa de saída de emails", e);
+		}
+	}
+
+	private void processar() {
+		List<EmailPendente> prontos;
+		do {
+			Date agora = new Date();
+			prontos = emailPendenteRepository.findProntos(SituacaoEmail.PENDENTE.getCod(), agora, PageRequest.of(0, lote));
+			try {
+				for (EmailPendente email : prontos) {
+					//A vaga é pega antes da reserva, para a reserva não correr enquanto a coordenadora espera
+					entregues.acquire();
+					//Outro nó pode ter pego o mesmo email, só envia quem conseguiu reservar.
+					//Reservado ele sai da próxima busca, então a coordenadora não precisa esperar a entrega
+					if (emailPendenteRepository.reservar(email.getId(), email.getProximaTentativa(), new Date(System.currentTimeMillis() + reserva)) == 1) {
+						envios.execute(() -> enviar(email));
+					} else {
+						entregues.release();
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		} while (prontos.size() == lote);
+	}
+
+	private void enviar(EmailPendente email) {
+		CompletableFuture<Void> envio;
+		try {
+			//O pedido é carregado com os itens numa transação curta, o envio acontece sem conexão com o banco aberta
+			TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+			transacao.setReadOnly(true);
+			Pedido pedido = transacao.execute(status -> pedidoRepository.findComItens(email.getPedidoId()).orElse(null));
+			envio = pedido != null ? emailService.sandOrderConfirmationEmailAsync(pedido) : CompletableFuture.completedFuture(null);
+		} catch (RuntimeException e) {
+			envio = new CompletableFuture<>();
+			envio.completeExceptionally(e);
+		}
+		//O envio termina na thread do SMTP, a gravação do resultado volta para uma thread de envio desta classe
+		envio.whenCompleteAsync((ok, erro) -> concluir(email, erro), envios);
+	}
+
+	private void concluir(EmailPendente email, Throwable erro) {
+		try {
+			if (erro == null) {
+				emailPendenteRepository.deleteById(email.getId());
+			} else {
+				falhou(email, erro instanceof CompletionException && erro.getCause() != null ? erro.getCause() : erro);
+			}
+		} catch (RuntimeException e) {
+			falhou(email, e);
+		} finally {
+			entregues.release();
+		}
+	}
+
+	private void falhou(EmailPendente email, Throwable erro) {
+		int tentativa = email.getTentativas() + 1;
+		email.setTentativas(tentativa);
+		String mensagem = String.valueOf(erro.getMessage());
+		email.setUltimoErro(mensagem.length() > 500 ? mensagem.substring(0, 500) : mensagem);
+		if (tentativa >= tentativas) {
+			email.setSituacao(SituacaoEmail.FALHOU);
+			LOG.error("Email do pedido " + email.getPedidoId() + " não enviado após " + tentativa + " tentativas", erro);
+		} else {
+			//Espera dobra a cada tentativa, com uma variação aleatória para os reenvios não chegarem todos juntos
+			long proxima = Math.min(espera << Math.min(tentativa - 1, 30), ESPERA_MAXIMA);
+			proxima += ThreadLocalRandom.current().nextLong(proxima / 4 + 1);
+			email.setProximaTentativa(new Date(System.currentTimeMillis() + proxima));
+			LOG.warn("Falha ao enviar o email do pedido " + email.getPedidoId() + " (tentativa " + tentativa + "): " + mensagem);
+		}
+		try {
+			emailPendenteRepository.save(email);
+		} catch (RuntimeException e) {
+			//A reserva expira e o email é tentado de novo
+			LOG.error("Não foi possível registrar a falha do email " + email.getId(), e);
+		}
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		coordenador.shutdownNow();
+		if (envios != null) {
+			envios.shutdownNow();
+		}
+	}
+}
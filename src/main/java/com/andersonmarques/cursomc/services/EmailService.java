@@ -1,5 +1,7 @@
 package com.andersonmarques.cursomc.services;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.stereotype.Service;
 
@@ -11,6 +13,19 @@ public interface EmailService {
 
 	void sandOrderConfirmationEmail(Pedido pedido);
 	
+	//Sem esperar o envio: o resultado completa quando o email saiu ou falhou (usado pela caixa de saída).
+	//Quem não tem envio assíncrono envia na hora
+	default CompletableFuture<Void> sandOrderConfirmationEmailAsync(Pedido pedido) {
+		CompletableFuture<Void> resultado = new CompletableFuture<>();
+		try {
+			sandOrderConfirmationEmail(pedido);
+			resultado.complete(null);
+		} catch (RuntimeException e) {
+			resultado.completeExceptionally(e);
+		}
+		return resultado;
+	}
+	
 	void sandEmail(SimpleMailMessage email);
 	
 	void sandNewPasswordEmail(Cliente cliente, String newPass);
@@ -1,20 +1,116 @@
 package com.andersonmarques.cursomc.services;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import com.andersonmarques.cursomc.domain.Estado;
+import com.andersonmarques.cursomc.dto.CidadeDTO;
+import com.andersonmarques.cursomc.repositories.CidadeRepository;
 import com.andersonmarques.cursomc.repositories.EstadoRepository;
+import com.andersonmarques.cursomc.services.exceptions.RecargaException;
+import com.andersonmarques.cursomc.services.index.LocalidadesSnapshot;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 @Service
 public class EstadoService {
+
 	@Autowired
 	private EstadoRepository estadoRepository;
-	
+	@Autowired
+	private CidadeRepository cidadeRepository;
+	@Autowired
+	private ObjectMapper objectMapper;
+	@Autowired
+	private VersaoService versaoService;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	@Autowired
+	private CacheService cacheService;
+
+	//Estados e cidades carregados na inicialização, com a versão das localidades (VersaoService.LOCALIDADES)
+	//lida junto, que entra no ETag
+	private SnapshotRecarregavel<LocalidadesSnapshot> localidades;
+
+	@PostConstruct
+	public void iniciar() {
+		localidades = new SnapshotRecarregavel<>(VersaoService.LOCALIDADES, "os estados e cidades", versaoService, transactionManager,
+				() -> LocalidadesSnapshot.of(estadoRepository.findAllByOrderByNome(), cidadeRepository.findEstadoIdNome(), objectMapper),
+				novo -> "Localidades carregadas com " + novo.getTotalEstados() + " estados e " + novo.getTotalCidades() + " cidades");
+	}
+
 	//Buscar todos os estados
 	public List<Estado> findAll(){
-		return estadoRepository.findAll();
+		return estadoRepository.findAllByOrderByNome();
+	}
+
+	//JSON de /estados, só vai ao banco se os dados ainda não foram carregados
+	public byte[] findAllJson() {
+		LocalidadesSnapshot atual = localidades.get();
+		return atual != null ? atual.getEstados() : json(findAll());
+	}
+
+	//JSON de /estados/{id}/cidades
+	public byte[] findCidadesJson(Integer estadoId) {
+		LocalidadesSnapshot atual = localidades.get();
+		if (atual != null) {
+			return atual.getCidades(estadoId);
+		}
+		return json(cidadeRepository.findCidades(estadoId).stream().map(CidadeDTO::new).collect(Collectors.toList()));
+	}
+
+	public long getVersao() {
+		return localidades.get() == null ? versaoService.getVersao(VersaoService.LOCALIDADES) : localidades.getVersao();
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void carregarAoIniciar() {
+		localidades.recarregar();
+	}
+
+	//Chamado pelo CatalogoListener depois do commit de uma alteração de estado ou cidade
+	public void notificarAlteracao() {
+		localidades.agendarRecarga();
+	}
+
+	//Pega as alterações feitas em outra instância
+	@Scheduled(fixedDelayString = "${versao.intervalo}", initialDelayString = "${versao.intervalo}")
+	public void verificarVersao() {
+		localidades.verificarVersao();
+	}
+
+	//Depois de uma carga de dados feita por fora da aplicação (script no banco), que não passa pelo CatalogoListener.
+	//Incrementa a versão compartilhada para as outras instâncias recarregarem e os clientes baixarem de novo,
+	//limpa o cache de segundo nível desta instância e recarrega aqui antes de responder
+	public void recarregar() {
+		versaoService.incrementar(Collections.singleton(VersaoService.LOCALIDADES), versoes -> {});
+		cacheService.limpar(VersaoService.LOCALIDADES);
+		if (!localidades.recarregar()) {
+			throw new RecargaException("Não foi possível recarregar os estados e cidades, o snapshot anterior continua valendo");
+		}
+	}
+
+	private byte[] json(Object valor) {
+		try {
+			return objectMapper.writeValueAsBytes(valor);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Não foi possível gerar o JSON", e);
+		}
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		localidades.encerrar();
 	}
 }
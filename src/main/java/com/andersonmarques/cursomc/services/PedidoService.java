@@ -1,7 +1,11 @@
 package com.andersonmarques.cursomc.services;
 
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -14,8 +18,11 @@ import com.andersonmarques.cursomc.domain.Cliente;
 import com.andersonmarques.cursomc.domain.ItemPedido;
 import com.andersonmarques.cursomc.domain.PagamentoComBoleto;
 import com.andersonmarques.cursomc.domain.Pedido;
+import com.andersonmarques.cursomc.domain.Produto;
 import com.andersonmarques.cursomc.domain.enums.EstadoPagamento;
+import com.andersonmarques.cursomc.dto.PaginaDTO;
 import com.andersonmarques.cursomc.repositories.ItemPedidoRepository;
+import com.andersonmarques.cursomc.repositories.KeysetQuery;
 import com.andersonmarques.cursomc.repositories.PagamentoRepository;
 import com.andersonmarques.cursomc.repositories.PedidoRepository;
 import com.andersonmarques.cursomc.security.UserSS;
@@ -25,6 +32,9 @@ import com.andersonmarques.cursomc.services.exceptions.ObjectNotFoundException;
 @Service
 public class PedidoService {
 	
+	//Campos aceitos em orderBy na paginação por cursor
+	private static final List<String> ORDENAVEIS_CURSOR = Arrays.asList("id", "instante");
+	
 	//Essa anotação Autowired instância automaticamente a classe PedidoRepository
 	@Autowired 
 	private PedidoRepository repositorio;
@@ -39,10 +49,14 @@ public class PedidoService {
 	@Autowired
 	private ClienteService clienteService;
 	@Autowired
-	private EmailService emailService;
+	private EmailOutboxService emailOutboxService;
+	@Autowired
+	private KeysetQuery keysetQuery;
+	@Autowired
+	private ContagemService contagemService;
 
 	//Faz a busca no repositório com base no id
-	public Pedido find(Integer id) {
+	public Pedido find(Long id) {
 		Optional<Pedido> objetoRecebido = repositorio.findById(id);
 		
 		//Se o objeto não for encontrado, é lançado uma exception através de uma lambda para informar o problema.
@@ -64,16 +78,22 @@ public class PedidoService {
 			boletoService.preeencherPagamentoComBoleto(pagto, obj.getInstante());
 		}
 		
+		//Todos os produtos do pedido numa consulta só, já validando os ids antes de gravar
+		Map<Integer, Produto> produtos = produtoService.findAllById(
+				obj.getItens().stream().map(ip -> ip.getProduto().getId()).collect(Collectors.toList()));
+		
 		repositorio.save(obj);
 		pagamentoRepository.save(obj.getPagamento());
 		for (ItemPedido ip :obj.getItens()) {
 			ip.setDesconto(0d);
-			ip.setProduto(produtoService.find(ip.getProduto().getId()));
+			ip.setProduto(produtos.get(ip.getProduto().getId()));
 			ip.setPreco(ip.getProduto().getPreco());
 			ip.setPedido(obj);
 		}
 		itemPedidoRepository.saveAll(obj.getItens());
-		emailService.sandOrderConfirmationEmail(obj);
+		contagemService.registrarPedido(obj.getCliente().getId());
+		//O email só é gravado na caixa de saída, o envio acontece depois do commit em segundo plano
+		emailOutboxService.registrarConfirmacao(obj);
 		return obj;
 	}
 	
@@ -90,4 +110,33 @@ public class PedidoService {
 		
 		return repositorio.findByCliente(cliente, pageRequest);
 	}
+	
+	//Paginação sem a consulta de count, o total é o aproximado do contador (ausente até a primeira contagem do cliente)
+	public PaginaDTO<Pedido> findSlice(Integer page, Integer linesPerPage, String orderBy, String direction) {
+		UserSS user = UserService.authenticated();
+		if(user == null) {
+			throw new AuthorizationException("Usuário não autenticado");
+		}
+		
+		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
+		
+		Cliente cliente = clienteService.find(user.getId());
+		
+		return new PaginaDTO<>(repositorio.findSliceByCliente(cliente, pageRequest), contagemService.getTotalPedidos(cliente.getId()));
+	}
+	
+	//Paginação por cursor dos pedidos do cliente logado
+	public PaginaDTO<Pedido> findPageCursor(String cursor, Integer linesPerPage, String orderBy, String direction) {
+		UserSS user = UserService.authenticated();
+		if(user == null) {
+			throw new AuthorizationException("Usuário não autenticado");
+		}
+		
+		Cliente cliente = clienteService.find(user.getId());
+		
+		//Pagamento e endereço vêm no mesmo SELECT, o cliente é o mesmo já carregado acima
+		return keysetQuery.buscar(Pedido.class, Pedido.class, KeysetQuery.entidade("pagamento", "enderecoDeEntrega"),
+				(cb, root) -> cb.equal(root.get("cliente"), cliente),
+				ORDENAVEIS_CURSOR, orderBy, direction, cursor, linesPerPage);
+	}
 }
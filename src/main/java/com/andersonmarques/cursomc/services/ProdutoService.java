@@ -2,17 +2,44 @@ package com.andersonmarques.cursomc.services;
 
 import com.andersonmarques.cursomc.domain.Categoria;
 import com.andersonmarques.cursomc.domain.Produto;
+import com.andersonmarques.cursomc.domain.ProdutoRemovido;
+import com.andersonmarques.cursomc.dto.PaginaDTO;
+import com.andersonmarques.cursomc.dto.ProdutoExportDTO;
+import com.andersonmarques.cursomc.dto.ProdutoDTO;
 import com.andersonmarques.cursomc.repositories.CategoriaRepository;
+import com.andersonmarques.cursomc.repositories.ProdutoRemovidoRepository;
 import com.andersonmarques.cursomc.repositories.ProdutoRepository;
+import com.andersonmarques.cursomc.services.exceptions.CursorException;
 import com.andersonmarques.cursomc.services.exceptions.ObjectNotFoundException;
+import com.andersonmarques.cursomc.services.exceptions.OrdenacaoException;
+import com.andersonmarques.cursomc.services.index.CatalogoSnapshot;
+import com.andersonmarques.cursomc.utils.Cursor;
+import com.andersonmarques.cursomc.utils.Normalizador;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 @Service
 public class ProdutoService {
@@ -22,6 +49,18 @@ public class ProdutoService {
 	private ProdutoRepository produtoRepository;
 	@Autowired
 	private CategoriaRepository categoriaRepository;
+	@Autowired
+	private ProdutoRemovidoRepository produtoRemovidoRepository;
+	@Autowired
+	private CatalogoService catalogoService;
+	@Autowired
+	private VersaoService versaoService;
+	@Autowired
+	private ObjectMapper objectMapper;
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private static final int MAX_SUGESTOES = 50;
 	
 	//Faz a busca no produtoRepository com base no id
 	public Produto find(Integer id) {
@@ -33,12 +72,162 @@ public class ProdutoService {
 	}
 
 
-	public Page<Produto> search(String nome, List<Integer> ids, Integer page, Integer linesPerPage, String orderBy, String direction) {
+	//Busca vários produtos numa consulta só (IN), falha se algum id não existir
+	public Map<Integer, Produto> findAllById(Collection<Integer> ids) {
+		Map<Integer, Produto> produtos = new HashMap<>();
+		for (Produto produto : produtoRepository.findAllById(ids)) {
+			produtos.put(produto.getId(), produto);
+		}
+		if (produtos.size() < new HashSet<>(ids).size()) {
+			List<Integer> faltando = ids.stream().filter(id -> !produtos.containsKey(id)).distinct().collect(Collectors.toList());
+			throw new ObjectNotFoundException("O Objeto não foi contrado, ID: "+faltando+
+					", Produto: "+Produto.class.getName());
+		}
+		return produtos;
+	}
+
+	//ETag de /produtos/{id}: a versão da última alteração do próprio produto, lida de onde o corpo vai ser lido
+	//(o catálogo em memória, ou o banco enquanto ele não carregou). Alterar um produto não muda o ETag dos outros.
+	//Nulo se o produto não existe
+	public String etag(Integer id) {
+		CatalogoSnapshot catalogo = catalogoService.getSnapshot();
+		if (catalogo == null) {
+			return produtoRepository.findById(id)
+					.map(produto -> versaoService.etag(produto.getVersao() == null ? 0 : produto.getVersao()))
+					.orElse(null);
+		}
+		long versao = catalogo.versao(id);
+		return versao < 0 ? null : versaoService.etag(versao);
+	}
+
+	//Busca o produto no catálogo em memória, só vai ao banco se o catálogo ainda não foi carregado
+	public ProdutoDTO findDTO(Integer id) {
+		CatalogoSnapshot catalogo = catalogoService.getSnapshot();
+		if (catalogo == null) {
+			return new ProdutoDTO(find(id));
+		}
+		ProdutoDTO obj = catalogo.find(id);
+		if (obj == null) {
+			throw new ObjectNotFoundException("O Objeto não foi contrado, ID: "+id+
+					", Produto: "+Produto.class.getName());
+		}
+		return obj;
+	}
+
+	public Page<ProdutoDTO> search(String nome, List<Integer> ids, Double minPreco, Double maxPreco, Integer page, Integer linesPerPage, String orderBy, String direction) {
+		validarOrdenacao(orderBy);
 		//É preciso fazer a conversão de String para Direction na hora de informar o valor
 		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Sort.Direction.valueOf(direction), orderBy);
+
+		//Com o catálogo carregado a busca inteira é feita em memória
+		CatalogoSnapshot catalogo = catalogoService.getSnapshot();
+		if (catalogo != null) {
+			return catalogo.search(nome, ids, minPreco, maxPreco, pageRequest);
+		}
+
+		//Catálogo ainda não carregado
+		List<Categoria> categorias =  categoriaRepository.findAllById(ids);
+		if (nome.isEmpty()) {
+			return produtoRepository.findDistinctByCategoriasIn(categorias, minPreco, maxPreco, pageRequest);
+		}
+		return produtoRepository.findDistinctByNomeContainingAndCategoriasIn(Normalizador.normalizar(nome), categorias, minPreco, maxPreco, pageRequest);
+	}
+
+	//Busca sem a consulta de count. No catálogo em memória o total sai junto com a busca,
+	//só a busca pelo banco (catálogo não carregado) fica sem total
+	public PaginaDTO<ProdutoDTO> searchSlice(String nome, List<Integer> ids, Double minPreco, Double maxPreco, Integer page, Integer linesPerPage, String orderBy, String direction) {
+		validarOrdenacao(orderBy);
+		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Sort.Direction.valueOf(direction), orderBy);
+
+		CatalogoSnapshot catalogo = catalogoService.getSnapshot();
+		if (catalogo != null) {
+			Page<ProdutoDTO> pagina = catalogo.search(nome, ids, minPreco, maxPreco, pageRequest);
+			return new PaginaDTO<>(pagina, pagina.getTotalElements());
+		}
+
 		List<Categoria> categorias =  categoriaRepository.findAllById(ids);
+		if (nome.isEmpty()) {
+			return new PaginaDTO<>(produtoRepository.findSliceByCategoriasIn(categorias, minPreco, maxPreco, pageRequest), null);
+		}
+		return new PaginaDTO<>(produtoRepository.findSliceByNomeContainingAndCategoriasIn(Normalizador.normalizar(nome), categorias, minPreco, maxPreco, pageRequest), null);
+	}
+
+	//A busca só aceita os campos que o catálogo em memória sabe ordenar. Outro campo teria que ser ordenado pelo banco
+	//com todos os ids encontrados no IN, e com o catálogo ainda não carregado o resultado mudaria conforme a instância
+	private static void validarOrdenacao(String orderBy) {
+		if (!CatalogoSnapshot.isOrdenavel(orderBy)) {
+			throw new OrdenacaoException("Não é possível ordenar os produtos por " + orderBy + ", use nome, preco ou id");
+		}
+	}
+
+	//Autocompletar da busca, responde só com o catálogo em memória
+	public List<String> suggest(String prefixo, Integer quantidade) {
+		CatalogoSnapshot catalogo = catalogoService.getSnapshot();
+		if (catalogo == null) {
+			return new ArrayList<>();
+		}
+		return catalogo.sugerir(prefixo, Math.min(quantidade, MAX_SUGESTOES));
+	}
+
+	//Escreve o catálogo como NDJSON (um produto por linha), lendo do banco com cursor.
+	//Os produtos são desanexados depois de escritos, então a memória não cresce com o tamanho do catálogo.
+	//Com "since" só saem os produtos gravados depois dessa versão, seguidos dos removidos depois dela
+	@Transactional(readOnly = true)
+	public void exportar(Long since, OutputStream out) throws IOException {
+		try (Stream<Produto> produtos = since == null ? produtoRepository.streamAll() : produtoRepository.streamByVersaoGreaterThan(since);
+				Stream<Object[]> produtoCategoria = since == null ? produtoRepository.streamProdutoCategoria()
+						: produtoRepository.streamProdutoCategoriaByVersaoGreaterThan(since);
+				JsonGenerator gerador = objectMapper.getFactory().createGenerator(out)) {
+
+			//Os dois streams estão ordenados por produto, as categorias são juntadas andando nos dois ao mesmo tempo
+			Iterator<Object[]> categorias = produtoCategoria.iterator();
+			Object[] linha = categorias.hasNext() ? categorias.next() : null;
+
+			Iterator<Produto> iterator = produtos.iterator();
+			while (iterator.hasNext()) {
+				Produto produto = iterator.next();
+				while (linha != null && (Integer) linha[0] < produto.getId()) {
+					linha = categorias.hasNext() ? categorias.next() : null;
+				}
+				List<Integer> ids = new ArrayList<>();
+				while (linha != null && produto.getId().equals(linha[0])) {
+					ids.add((Integer) linha[1]);
+					linha = categorias.hasNext() ? categorias.next() : null;
+				}
+
+				gerador.writeObject(new ProdutoExportDTO(produto.getId(), produto.getNome(), produto.getPreco(), ids, produto.getVersao()));
+				gerador.writeRaw('\n');
+				entityManager.detach(produto);
+			}
+
+			if (since != null) {
+				try (Stream<ProdutoRemovido> removidos = produtoRemovidoRepository.streamByVersaoGreaterThan(since)) {
+					Iterator<ProdutoRemovido> iteratorRemovidos = removidos.iterator();
+					while (iteratorRemovidos.hasNext()) {
+						ProdutoRemovido removido = iteratorRemovidos.next();
+						gerador.writeObject(new ProdutoExportDTO(removido.getId(), removido.getVersao()));
+						gerador.writeRaw('\n');
+						entityManager.detach(removido);
+					}
+				}
+			}
+		}
+	}
 
-		return produtoRepository.findDistinctByNomeContainingAndCategoriasIn(nome, categorias, pageRequest);
+	//Busca paginada por cursor, feita sempre no catálogo em memória. Sem ele a requisição falha na hora em vez de
+	//carregar o catálogo inteiro (e segurar as outras requisições esperando a mesma carga); também não cai no banco,
+	//que ordena os nomes de outro jeito e não continuaria direito um cursor gerado pelo catálogo
+	public PaginaDTO<ProdutoDTO> searchCursor(String nome, List<Integer> ids, Double minPreco, Double maxPreco, String cursor, Integer linesPerPage, String orderBy, String direction) {
+		Sort.Direction direcao = Sort.Direction.valueOf(direction);
+		Cursor atual = Cursor.decode(cursor, orderBy, direcao.name());
 
+		if (!CatalogoSnapshot.isOrdenavel(orderBy)) {
+			throw new CursorException("Não é possível paginar por cursor ordenando por " + orderBy);
+		}
+		CatalogoSnapshot catalogo = catalogoService.getSnapshot();
+		if (catalogo == null) {
+			throw new CursorException("O catálogo ainda está sendo carregado, tente novamente em instantes");
+		}
+		return catalogo.searchCursor(nome, ids, minPreco, maxPreco, orderBy, direcao, atual, linesPerPage);
 	}
 }
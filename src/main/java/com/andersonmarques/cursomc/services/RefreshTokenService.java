@@ -0,0 +1,155 @@
+package com.andersonmarques.cursomc.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.andersonmarques.cursomc.domain.Cliente;
+import com.andersonmarques.cursomc.domain.RefreshToken;
+import com.andersonmarques.cursomc.repositories.ClienteRepository;
+import com.andersonmarques.cursomc.repositories.RefreshTokenRepository;
+import com.andersonmarques.cursomc.security.UserSS;
+import com.andersonmarques.cursomc.services.exceptions.RefreshTokenException;
+
+//Refresh tokens: valores aleatórios de 256 bits entregues no login, usados para pedir novos tokens de acesso
+//(que duram poucos minutos) sem enviar a senha de novo. Como o valor é aleatório, um SHA-256 basta para guardá-lo,
+//a renovação é uma busca pela chave primária e nunca passa pelo BCrypt.
+//Cada renovação troca a credencial (rotação); se uma credencial já trocada aparecer de novo, alguém tem uma cópia
+//e a família inteira é invalidada, obrigando um login.
+@Service
+public class RefreshTokenService {
+
+	private static final Logger LOG = LoggerFactory.getLogger(RefreshTokenService.class);
+
+	private static final long LIMPEZA = TimeUnit.HOURS.toMillis(1);
+
+	@Autowired
+	private RefreshTokenRepository repositorio;
+	@Autowired
+	private ClienteRepository clienteRepository;
+
+	@Value("${refresh.expiration}")
+	private long expiration;
+
+	private final SecureRandom random = new SecureRandom();
+
+	private final ScheduledExecutorService limpeza = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "refresh-token-limpeza");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	//Resultado da renovação: o usuário para gerar o token de acesso e a nova credencial
+	public static class Renovacao {
+		private final UserSS user;
+		private final String refreshToken;
+
+		public Renovacao(UserSS user, String refreshToken) {
+			this.user = user;
+			this.refreshToken = refreshToken;
+		}
+
+		public UserSS getUser() {
+			return user;
+		}
+
+		public String getRefreshToken() {
+			return refreshToken;
+		}
+	}
+
+	@PostConstruct
+	public void iniciar() {
+		limpeza.scheduleWithFixedDelay(this::removerExpirados, LIMPEZA, LIMPEZA, TimeUnit.MILLISECONDS);
+	}
+
+	//Credencial de uma família nova (login)
+	public String criar(Long clienteId) {
+		return criar(clienteId, UUID.randomUUID().toString());
+	}
+
+	//Troca a credencial por uma nova e devolve o cliente com os perfis atuais.
+	//A invalidação da família por reuso precisa ser gravada mesmo com a exceção
+	@Transactional(noRollbackFor = RefreshTokenException.class)
+	public Renovacao renovar(String token) {
+		if (token == null || token.isEmpty()) {
+			throw new RefreshTokenException("Refresh token não informado");
+		}
+		String hash = hash(token);
+		if (repositorio.marcarUsado(hash, new Date()) == 0) {
+			repositorio.findById(hash).filter(RefreshToken::getUsado).ifPresent(usado -> {
+				LOG.warn("Refresh token reutilizado, família do cliente " + usado.getClienteId() + " invalidada");
+				repositorio.removerFamilia(usado.getFamilia());
+			});
+			throw new RefreshTokenException("Refresh token inválido ou expirado");
+		}
+		RefreshToken atual = repositorio.findById(hash).get();
+		Cliente cliente = clienteRepository.findById(atual.getClienteId())
+				.orElseThrow(() -> new RefreshTokenException("Refresh token inválido ou expirado"));
+		UserSS user = new UserSS(cliente.getId(), cliente.getEmail(), null, cliente.getPerfis());
+		return new Renovacao(user, criar(cliente.getId(), atual.getFamilia()));
+	}
+
+	//Logout: a credencial e as que vieram dela deixam de valer
+	public void revogar(String token) {
+		repositorio.findById(hash(token)).ifPresent(atual -> repositorio.removerFamilia(atual.getFamilia()));
+	}
+
+	//Troca de senha, de email ou cliente removido
+	public void revogarCliente(Long clienteId) {
+		repositorio.removerCliente(clienteId);
+	}
+
+	private String criar(Long clienteId, String familia) {
+		byte[] bytes = new byte[32];
+		random.nextBytes(bytes);
+		String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+		Date agora = new Date();
+		repositorio.save(new RefreshToken(hash(token), familia, clienteId, agora, new Date(agora.getTime() + expiration)));
+		return token;
+	}
+
+	//Exceção dentro de scheduleWithFixedDelay cancelaria as próximas execuções
+	private void removerExpirados() {
+		try {
+			repositorio.removerExpirados(new Date());
+		} catch (RuntimeException e) {
+			LOG.error("Falha ao remover refresh tokens expirados", e);
+		}
+	}
+
+	private String hash(String token) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder(64);
+			for (byte b : digest) {
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		limpeza.shutdownNow();
+	}
+}
@@ -0,0 +1,164 @@
+package com.andersonmarques.cursomc.services;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.andersonmarques.cursomc.domain.TokenRevogado;
+import com.andersonmarques.cursomc.repositories.TokenRevogadoRepository;
+import com.andersonmarques.cursomc.utils.FiltroBloom;
+
+//Lista de JWTs revogados (logout e troca de senha) consultada em toda requisição autenticada sem ir ao banco.
+//As revogações ficam na tabela TokenRevogado, compartilhada pelas instâncias, e cada instância mantém em memória
+//um filtro de Bloom na frente do conjunto exato: quase todo token não revogado é liberado só com a leitura de alguns bits.
+//A cada "intervalo" as revogações novas das outras instâncias são lidas, e a cada "limpeza" as expiradas saem do banco
+//e o filtro é montado de novo (um filtro de Bloom não permite remover).
+@Service
+public class RevogacaoService {
+
+	private static final Logger LOG = LoggerFactory.getLogger(RevogacaoService.class);
+
+	//A busca incremental volta um pouco no tempo para pegar revogações gravadas com o relógio de outra instância
+	//um pouco atrasado ou com commit demorado. Ler a mesma revogação duas vezes não tem problema
+	private static final long MARGEM = TimeUnit.MINUTES.toMillis(1);
+	private static final double FALSO_POSITIVO = 0.01;
+
+	@Autowired
+	private TokenRevogadoRepository repositorio;
+
+	//Revogações esperadas ao mesmo tempo, define o tamanho do filtro
+	@Value("${revogacao.capacidade}")
+	private int capacidade;
+	@Value("${revogacao.intervalo}")
+	private long intervalo;
+	@Value("${revogacao.limpeza}")
+	private long limpeza;
+
+	//Filtro e conjunto exato trocados juntos quando o filtro é montado de novo
+	private static class Revogados {
+		final FiltroBloom filtro;
+		//Chave -> instante da revogação (ms)
+		final Map<String, Long> exatos = new ConcurrentHashMap<>();
+
+		Revogados(int capacidade) {
+			filtro = new FiltroBloom(capacidade, FALSO_POSITIVO);
+		}
+
+		void adicionar(String chave, long revogadoEm) {
+			//Primeiro o conjunto exato: quando o filtro disser que talvez exista, a chave já está lá
+			exatos.merge(chave, revogadoEm, Math::max);
+			filtro.adicionar(chave);
+		}
+	}
+
+	private volatile Revogados revogados;
+	//Usados só pela thread de atualização
+	private long ultimaLeitura;
+	private long ultimaLimpeza;
+
+	private final ScheduledExecutorService atualizacao = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "revogacao-jwt");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	//Carrega antes de a aplicação aceitar requisições, assim um token revogado antes de reiniciar continua recusado
+	@PostConstruct
+	public void iniciar() {
+		reconstruir();
+		atualizacao.scheduleWithFixedDelay(this::atualizarComSeguranca, intervalo, intervalo, TimeUnit.MILLISECONDS);
+	}
+
+	//Revoga um único token (logout)
+	public void revogarToken(String tokenId, Date expiraEm) {
+		salvar("t:" + tokenId, expiraEm);
+	}
+
+	//Revoga todos os tokens do cliente emitidos até agora
+	public void revogarCliente(Long clienteId, Date expiraEm) {
+		salvar("c:" + clienteId, expiraEm);
+	}
+
+	//O iat do token é em segundos, então a comparação com a revogação do cliente também. Um token emitido no mesmo
+	//segundo da revogação pode ter saído antes dela e é recusado; no pior caso um login logo depois precisa ser repetido
+	public boolean revogado(String tokenId, Long clienteId, Date emitidoEm) {
+		Revogados atual = revogados;
+		if (tokenId != null) {
+			String chave = "t:" + tokenId;
+			if (atual.filtro.talvezContem(chave) && atual.exatos.containsKey(chave)) {
+				return true;
+			}
+		}
+		if (clienteId != null) {
+			String chave = "c:" + clienteId;
+			if (atual.filtro.talvezContem(chave)) {
+				Long revogadoEm = atual.exatos.get(chave);
+				return revogadoEm != null && (emitidoEm == null || emitidoEm.getTime() / 1000 <= revogadoEm / 1000);
+			}
+		}
+		return false;
+	}
+
+	private void salvar(String chave, Date expiraEm) {
+		Date agora = new Date();
+		repositorio.save(new TokenRevogado(chave, agora, expiraEm));
+		//Vale nesta instância na hora, as outras pegam na próxima atualização
+		revogados.adicionar(chave, agora.getTime());
+	}
+
+	//Exceção dentro de scheduleWithFixedDelay cancelaria as próximas execuções
+	private void atualizarComSeguranca() {
+		try {
+			if (System.currentTimeMillis() - ultimaLimpeza >= limpeza) {
+				repositorio.removerExpiradas(new Date());
+				reconstruir();
+			} else {
+				atualizar();
+			}
+		} catch (RuntimeException e) {
+			LOG.error("Falha ao atualizar a lista de tokens revogados", e);
+		}
+	}
+
+	private void atualizar() {
+		long inicio = System.currentTimeMillis();
+		Revogados atual = revogados;
+		for (TokenRevogado token : repositorio.findByRevogadoEmGreaterThanEqual(new Date(ultimaLeitura - MARGEM))) {
+			atual.adicionar(token.getChave(), token.getRevogadoEm().getTime());
+		}
+		ultimaLeitura = inicio;
+	}
+
+	//Monta um filtro novo só com as revogações ainda válidas. Uma revogação feita durante a troca
+	//é recuperada pela próxima atualização, que lê a partir de antes do início desta carga
+	private void reconstruir() {
+		long inicio = System.currentTimeMillis();
+		List<TokenRevogado> tokens = repositorio.findByExpiraEmAfter(new Date(inicio));
+		Revogados novo = new Revogados(Math.max(capacidade, tokens.size() * 2));
+		for (TokenRevogado token : tokens) {
+			novo.adicionar(token.getChave(), token.getRevogadoEm().getTime());
+		}
+		revogados = novo;
+		ultimaLeitura = inicio;
+		ultimaLimpeza = inicio;
+		LOG.info(tokens.size() + " revogação(ões) de token carregada(s)");
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		atualizacao.shutdownNow();
+	}
+}
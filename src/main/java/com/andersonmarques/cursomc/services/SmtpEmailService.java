@@ -1,25 +1,349 @@
 package com.andersonmarques.cursomc.services;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMailMessage;
+import org.springframework.mail.javamail.MimeMessageHelper;
 
+import com.andersonmarques.cursomc.domain.Pedido;
+
+//Envio por SMTP com conexões reaproveitadas: cada thread de envio mantém a sua conexão aberta
+//e manda vários emails da fila na mesma sessão, em vez de abrir uma conexão por email.
+//Opcionalmente junta as confirmações de pedido do mesmo cliente que chegam dentro de uma janela num email só.
+//Nenhuma thread fica parada esperando a janela: o prazo de cada envio e o fechamento das janelas rodam no agendador.
+//O host, porta e usuário vêm das propriedades spring.mail.*, qualquer servidor SMTP local serve para testar.
 public class SmtpEmailService extends AbstractEmailService {
-	
-	//Não fiz a configuração para enviar o email com o gmail no properties
-	
-//	@Autowired
-//	private EmailService emailService;
-	
+
 	private static final Logger log = LoggerFactory.getLogger(SmtpEmailService.class);
-	
+
+	@Autowired
+	private JavaMailSenderImpl mailSender;
+
+	//Conexões abertas ao mesmo tempo (uma por thread de envio)
+	@Value("${smtp.conexoes}")
+	private int conexoes;
+	//Máximo de emails enviados seguidos na mesma sessão antes de olhar a fila de novo
+	@Value("${smtp.lote}")
+	private int lote;
+	//Conexão parada há mais tempo que isso (ms) é fechada
+	@Value("${smtp.ociosidade}")
+	private long ociosidade;
+	//Tempo máximo (ms) que um envio espera na fila, contado depois da janela do digest
+	@Value("${smtp.timeout}")
+	private long timeout;
+	//Janela (ms) para juntar as confirmações do mesmo cliente, 0 desliga
+	@Value("${smtp.digest.janela}")
+	private long janelaDigest;
+
+	private final BlockingQueue<Envio> fila = new LinkedBlockingQueue<>(10000);
+	private final List<Thread> threads = new ArrayList<>();
+	private volatile boolean ativo = true;
+
+	//Confirmações esperando a janela fechar, por destinatário
+	private final Map<String, Digest> digests = new HashMap<>();
+	//Fecha as janelas dos digests e cancela os envios que passaram do prazo
+	private final ScheduledExecutorService agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "smtp-agendador");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private static final int PENDENTE = 0;
+	private static final int ENVIANDO = 1;
+	private static final int CANCELADO = 2;
+
+	private static class Envio {
+		final MimeMessage mensagem;
+		final CompletableFuture<Void> resultado = new CompletableFuture<>();
+		//PENDENTE -> ENVIANDO pela thread de envio, ou PENDENTE -> CANCELADO por quem desistiu de esperar
+		final AtomicInteger estado = new AtomicInteger(PENDENTE);
+
+		Envio(MimeMessage mensagem) {
+			this.mensagem = mensagem;
+		}
+
+		//Só cancela o que ainda está na fila, depois disso o email pode já ter saído
+		boolean cancelar() {
+			if (!estado.compareAndSet(PENDENTE, CANCELADO)) {
+				return false;
+			}
+			resultado.completeExceptionally(new MailSendException("Envio cancelado, tempo esgotado"));
+			return true;
+		}
+	}
+
+	private static class Digest {
+		final List<SimpleMailMessage> mensagens = new ArrayList<>();
+		//HTML de cada confirmação, renderizado na chamada
+		final List<String> htmls = new ArrayList<>();
+		final CompletableFuture<Void> resultado = new CompletableFuture<>();
+		//Envio criado quando a janela fecha (null antes disso) e cancelamento antes de fechar, protegidos pelo lock de digests
+		Envio envio;
+		boolean cancelado;
+	}
+
+	@PostConstruct
+	public void iniciar() {
+		for (int i = 1; i <= conexoes; i++) {
+			Thread thread = new Thread(this::enviarDaFila, "smtp-envio-" + i);
+			thread.setDaemon(true);
+			thread.start();
+			threads.add(thread);
+		}
+	}
+
+	//Espera o envio terminar, assim uma falha chega em quem chamou (a caixa de saída tenta de novo)
 	@Override
 	public void sandEmail(SimpleMailMessage email) {
-		log.info("Simulando envio de email");
-//		emailService.sandEmail(email);
-		log.info("Email enviado");
+		Envio envio = enfileirar(email);
+		prazo(envio.resultado, timeout, envio::cancelar);
+		aguardar(envio.resultado);
+	}
+
+	@Override
+	public void sandOrderConfirmationEmail(Pedido pedido) {
+		aguardar(sandOrderConfirmationEmailAsync(pedido));
+	}
+
+	//Email com as versões texto e HTML, o cliente de email escolhe qual mostrar.
+	//Com a janela ligada o resultado só completa depois que ela fecha e o digest é enviado
+	@Override
+	public CompletableFuture<Void> sandOrderConfirmationEmailAsync(Pedido pedido) {
+		SimpleMailMessage mensagem = prepareSimpleMailMessageFromPedido(pedido);
+		String html = prepareHtmlFromPedido(pedido);
+		if (janelaDigest <= 0) {
+			Envio envio = enfileirar(criarMimeMessage(mensagem, html));
+			prazo(envio.resultado, timeout, envio::cancelar);
+			return envio.resultado;
+		}
+		String destinatario = pedido.getCliente().getEmail();
+		Digest digest;
+		synchronized (digests) {
+			digest = digests.get(destinatario);
+			if (digest == null) {
+				Digest novo = new Digest();
+				digest = novo;
+				digests.put(destinatario, novo);
+				agendador.schedule(() -> fecharDigest(destinatario, novo), janelaDigest, TimeUnit.MILLISECONDS);
+			}
+			digest.mensagens.add(mensagem);
+			digest.htmls.add(html);
+		}
+		Digest aguardado = digest;
+		prazo(digest.resultado, janelaDigest + timeout, () -> cancelarDigest(destinatario, aguardado));
+		return digest.resultado;
 	}
-	
-	
 
+	//Antes de a janela fechar o digest inteiro é cancelado (as outras confirmações dele também falham e voltam
+	//para a caixa de saída), depois vale o cancelamento do envio
+	private boolean cancelarDigest(String destinatario, Digest digest) {
+		Envio envio;
+		synchronized (digests) {
+			if (digest.envio == null) {
+				digest.cancelado = true;
+				digests.remove(destinatario, digest);
+				digest.resultado.completeExceptionally(new MailSendException("Envio cancelado, tempo esgotado"));
+				return true;
+			}
+			envio = digest.envio;
+		}
+		return envio.cancelar();
+	}
+
+	//Fecha a janela: uma confirmação vai como está, várias viram um email com todos os pedidos, em texto e em HTML
+	private void fecharDigest(String destinatario, Digest digest) {
+		synchronized (digests) {
+			digests.remove(destinatario, digest);
+			if (digest.cancelado) {
+				return;
+			}
+		}
+		try {
+			SimpleMailMessage mensagem = digest.mensagens.get(0);
+			String html = digest.htmls.get(0);
+			if (digest.mensagens.size() > 1) {
+				StringBuilder texto = new StringBuilder();
+				for (SimpleMailMessage confirmacao : digest.mensagens) {
+					texto.append(confirmacao.getSubject()).append("\n").append(confirmacao.getText()).append("\n");
+				}
+				mensagem = new SimpleMailMessage(mensagem);
+				mensagem.setSubject(digest.mensagens.size() + " pedidos confirmados!");
+				mensagem.setText(texto.toString());
+				html = juntarHtml(digest.htmls);
+			}
+			Envio envio = new Envio(criarMimeMessage(mensagem, html));
+			envio.resultado.whenComplete((ok, erro) -> {
+				if (erro == null) {
+					digest.resultado.complete(null);
+				} else {
+					digest.resultado.completeExceptionally(erro);
+				}
+			});
+			synchronized (digests) {
+				digest.envio = envio;
+			}
+			enfileirar(envio);
+		} catch (RuntimeException e) {
+			digest.resultado.completeExceptionally(e);
+		}
+	}
+
+	private MimeMessage criarMimeMessage(SimpleMailMessage simples, String html) {
+		MimeMessage mime = mailSender.createMimeMessage();
+		try {
+			MimeMessageHelper helper = new MimeMessageHelper(mime, true, "UTF-8");
+			helper.setTo(simples.getTo());
+			helper.setFrom(simples.getFrom());
+			helper.setSubject(simples.getSubject());
+			helper.setSentDate(simples.getSentDate());
+			helper.setText(simples.getText(), html);
+		} catch (MessagingException e) {
+			throw new MailPreparationException("Não foi possível montar o email: " + simples.getSubject(), e);
+		}
+		return mime;
+	}
+
+	private MimeMessage criarMimeMessage(SimpleMailMessage email) {
+		MimeMessage mime = mailSender.createMimeMessage();
+		email.copyTo(new MimeMailMessage(mime));
+		return mime;
+	}
+
+	private Envio enfileirar(SimpleMailMessage email) {
+		return enfileirar(criarMimeMessage(email));
+	}
+
+	private Envio enfileirar(MimeMessage mime) {
+		return enfileirar(new Envio(mime));
+	}
+
+	private Envio enfileirar(Envio envio) {
+		if (!fila.offer(envio)) {
+			throw new MailSendException("Fila de envio de emails cheia");
+		}
+		return envio;
+	}
+
+	//No fim do prazo o envio é cancelado se ainda estiver na fila, então a caixa de saída pode tentar de novo
+	//sem o email sair duas vezes. Se já começou a ser enviado o resultado fica para quando ele terminar: o envio
+	//de uma mensagem é limitado pelos timeouts da conexão SMTP (mail.smtp.timeout)
+	private void prazo(CompletableFuture<Void> resultado, long espera, BooleanSupplier cancelar) {
+		ScheduledFuture<?> agendado = agendador.schedule(() -> {
+			if (!resultado.isDone()) {
+				cancelar.getAsBoolean();
+			}
+		}, espera, TimeUnit.MILLISECONDS);
+		resultado.whenComplete((ok, erro) -> agendado.cancel(false));
+	}
+
+	private void aguardar(CompletableFuture<Void> resultado) {
+		try {
+			resultado.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MailSendException("Envio de email interrompido", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof MailSendException) {
+				throw (MailSendException) e.getCause();
+			}
+			throw new MailSendException("Falha ao enviar o email: " + e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	//Loop de cada thread de envio, com a sua própria conexão
+	private void enviarDaFila() {
+		Transport transport = null;
+		List<Envio> envios = new ArrayList<>();
+		while (ativo) {
+			try {
+				Envio primeiro = fila.poll(ociosidade, TimeUnit.MILLISECONDS);
+				if (primeiro == null) {
+					transport = fechar(transport);
+					continue;
+				}
+				envios.clear();
+				envios.add(primeiro);
+				fila.drainTo(envios, lote - 1);
+				int enviados = 0;
+				for (Envio envio : envios) {
+					//Cancelado por tempo esgotado enquanto esperava na fila
+					if (!envio.estado.compareAndSet(PENDENTE, ENVIANDO)) {
+						continue;
+					}
+					try {
+						if (transport == null || !transport.isConnected()) {
+							transport = conectar();
+						}
+						envio.mensagem.saveChanges();
+						transport.sendMessage(envio.mensagem, envio.mensagem.getAllRecipients());
+						envio.resultado.complete(null);
+						enviados++;
+					} catch (MessagingException | RuntimeException e) {
+						//Descarta a conexão, a próxima mensagem abre outra
+						transport = fechar(transport);
+						envio.resultado.completeExceptionally(e);
+					}
+				}
+				log.debug(enviados + " de " + envios.size() + " email(s) enviados na mesma sessão SMTP");
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		fechar(transport);
+	}
+
+	private Transport conectar() throws MessagingException {
+		String protocolo = mailSender.getProtocol() != null ? mailSender.getProtocol() : JavaMailSenderImpl.DEFAULT_PROTOCOL;
+		Transport transport = mailSender.getSession().getTransport(protocolo);
+		transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+		return transport;
+	}
+
+	private Transport fechar(Transport transport) {
+		if (transport != null) {
+			try {
+				transport.close();
+			} catch (MessagingException e) {
+				log.warn("Falha ao fechar a conexão SMTP: " + e.getMessage());
+			}
+		}
+		return null;
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		ativo = false;
+		agendador.shutdownNow();
+		for (Thread thread : threads) {
+			thread.interrupt();
+		}
+	}
 }
@@ -0,0 +1,120 @@
+package com.andersonmarques.cursomc.services;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+//Dados carregados do banco para a memória (catálogo, localidades), trocados por inteiro a cada recarga.
+//Guarda junto a versão do VersaoService lida com os dados: quando a versão compartilhada passa dela o snapshot está atrasado.
+//Uma única thread faz as recargas, várias alterações seguidas viram uma recarga só
+public class SnapshotRecarregavel<T> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SnapshotRecarregavel.class);
+
+	private final String chaveVersao;
+	//Usada nas mensagens de erro (ex: "o catálogo")
+	private final String descricao;
+	private final VersaoService versaoService;
+	private final TransactionTemplate transacao;
+	private final Supplier<T> carga;
+	private final Function<T, String> resumo;
+
+	//null enquanto não foi carregado. As leituras só fazem uma leitura volátil, sem lock e sem conexão com o banco
+	private volatile T snapshot;
+	private volatile long versao;
+
+	private final ExecutorService executor;
+	private final AtomicBoolean recargaAgendada = new AtomicBoolean();
+
+	//"carga" roda numa transação só de leitura, para o snapshot ser consistente; "resumo" monta a mensagem de log da carga
+	public SnapshotRecarregavel(String chaveVersao, String descricao, VersaoService versaoService,
+			PlatformTransactionManager transactionManager, Supplier<T> carga, Function<T, String> resumo) {
+		this.chaveVersao = chaveVersao;
+		this.descricao = descricao;
+		this.versaoService = versaoService;
+		this.carga = carga;
+		this.resumo = resumo;
+		transacao = new TransactionTemplate(transactionManager);
+		transacao.setReadOnly(true);
+		executor = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, chaveVersao + "-recarga");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public T get() {
+		return snapshot;
+	}
+
+	public long getVersao() {
+		return versao;
+	}
+
+	//Depois do commit de uma alteração feita nesta instância
+	public void agendarRecarga() {
+		if (recargaAgendada.compareAndSet(false, true)) {
+			executor.execute(() -> {
+				recargaAgendada.set(false);
+				recarregar();
+			});
+		}
+	}
+
+	//Alterações feitas em outra instância não geram evento aqui, só mudam a versão compartilhada.
+	//Roda na thread das recargas, depois de qualquer recarga já agendada. Também tenta de novo quando a carga inicial falhou
+	public void verificarVersao() {
+		executor.execute(() -> {
+			if (snapshot == null || versaoService.getVersao(chaveVersao) > versao) {
+				recarregar();
+			}
+		});
+	}
+
+	//Troca o snapshot por uma versão derivada dele, na thread das recargas (não roda enquanto não foi carregado)
+	public void agendarAtualizacao(UnaryOperator<T> atualizacao) {
+		executor.execute(() -> atualizar(atualizacao));
+	}
+
+	private synchronized void atualizar(UnaryOperator<T> atualizacao) {
+		try {
+			T atual = snapshot;
+			if (atual != null) {
+				snapshot = atualizacao.apply(atual);
+			}
+		} catch (RuntimeException e) {
+			LOG.error("Falha ao atualizar " + descricao, e);
+		}
+	}
+
+	//Devolve false se a carga falhou, nesse caso o snapshot anterior continua valendo
+	public synchronized boolean recarregar() {
+		try {
+			long[] lida = new long[1];
+			T novo = transacao.execute(status -> {
+				//Lida antes dos dados: os dados carregados já incluem todas as alterações até essa versão
+				lida[0] = versaoService.lerVersao(chaveVersao);
+				return carga.get();
+			});
+			snapshot = novo;
+			versao = lida[0];
+			LOG.info(resumo.apply(novo));
+			return true;
+		} catch (RuntimeException e) {
+			LOG.error("Falha ao recarregar " + descricao, e);
+			return false;
+		}
+	}
+
+	public void encerrar() {
+		executor.shutdownNow();
+	}
+}
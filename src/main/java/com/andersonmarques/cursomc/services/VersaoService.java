@@ -0,0 +1,168 @@
+package com.andersonmarques.cursomc.services;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.andersonmarques.cursomc.domain.Versao;
+import com.andersonmarques.cursomc.repositories.VersaoRepository;
+
+//Contadores de versão do catálogo e das localidades, usados para montar os ETags e para saber se os dados em memória estão atrasados.
+//Os contadores ficam na tabela Versao, compartilhada pelas instâncias: depois do commit de uma alteração quem gravou
+//incrementa a linha numa transação curta e separada, então gravações concorrentes não esperam umas pelas outras,
+//e cada instância relê a tabela a cada "intervalo".
+//O valor novo só existe depois que os dados foram commitados: quem calcula o ETag antes de ler os dados nunca recebe
+//um ETag novo junto com dados antigos, no pior caso recebe dados novos com o ETag antigo e baixa de novo depois.
+@Service
+public class VersaoService {
+
+	private static final Logger LOG = LoggerFactory.getLogger(VersaoService.class);
+
+	public static final String PRODUTOS = "produtos";
+	public static final String CATEGORIAS = "categorias";
+	//Estados e cidades
+	public static final String LOCALIDADES = "localidades";
+
+	@Autowired
+	private VersaoRepository repositorio;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	@Autowired
+	private CacheService cacheService;
+
+	@Value("${versao.intervalo}")
+	private long intervalo;
+
+	//Último valor conhecido por esta instância, nunca diminui
+	private final ConcurrentMap<String, Long> versoes = new ConcurrentHashMap<>();
+
+	private final ScheduledExecutorService atualizacao = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "versao-etag");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	//Sempre uma transação nova: o incremento roda depois do commit da alteração, quando ela já terminou
+	private TransactionTemplate transacao;
+
+	@PostConstruct
+	public void iniciar() {
+		transacao = new TransactionTemplate(transactionManager);
+		transacao.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		for (String chave : new String[] {PRODUTOS, CATEGORIAS, LOCALIDADES}) {
+			criarSeNecessario(chave);
+		}
+		atualizar();
+		atualizacao.scheduleWithFixedDelay(this::atualizarComSeguranca, intervalo, intervalo, TimeUnit.MILLISECONDS);
+	}
+
+	public long getVersao(String chave) {
+		Long versao = versoes.get(chave);
+		return versao == null ? 0 : versao;
+	}
+
+	//Lê o valor direto do banco, usado na mesma transação que carrega os dados em memória
+	public long lerVersao(String chave) {
+		return repositorio.findById(chave).map(Versao::getValor).orElse(0L);
+	}
+
+	//ETag forte com a versão atual de cada chave (ex: "\"12-3\"")
+	public String etag(String... chaves) {
+		long[] valores = new long[chaves.length];
+		for (int i = 0; i < chaves.length; i++) {
+			valores[i] = getVersao(chaves[i]);
+		}
+		return etag(valores);
+	}
+
+	//Mesmo formato, com versões que não vêm dos contadores desta instância (ex: versão do catálogo em memória)
+	public String etag(long... valores) {
+		StringBuilder etag = new StringBuilder("\"");
+		for (int i = 0; i < valores.length; i++) {
+			etag.append(i == 0 ? "" : "-").append(valores[i]);
+		}
+		return etag.append('"').toString();
+	}
+
+	//Incrementa cada chave uma vez, chamado pelo CatalogoListener depois do commit da alteração.
+	//As linhas ficam travadas só até o fim desta transação (sempre na mesma ordem, sem deadlock entre instâncias).
+	//"gravar" roda nela com os valores novos, então o que ele grava fica na mesma ordem dos contadores.
+	//Se a instância cair antes desta transação a alteração só aparece nos ETags na próxima alteração da mesma chave
+	public void incrementar(Collection<String> chaves, Consumer<Map<String, Long>> gravar) {
+		Map<String, Long> novas = transacao.execute(status -> {
+			Map<String, Long> valores = new TreeMap<>();
+			for (String chave : new TreeSet<>(chaves)) {
+				valores.put(chave, incrementar(chave));
+			}
+			gravar.accept(valores);
+			return valores;
+		});
+		novas.forEach((chave, valor) -> versoes.merge(chave, valor, Math::max));
+	}
+
+	private long incrementar(String chave) {
+		if (jdbcTemplate.update("UPDATE versao SET valor = valor + 1 WHERE chave = ?", chave) == 0) {
+			jdbcTemplate.update("INSERT INTO versao (chave, valor) VALUES (?, 1)", chave);
+		}
+		return jdbcTemplate.queryForObject("SELECT valor FROM versao WHERE chave = ?", Long.class, chave);
+	}
+
+	//Cria a linha antes da primeira alteração, senão duas instâncias poderiam tentar inserir ao mesmo tempo
+	private void criarSeNecessario(String chave) {
+		try {
+			if (!repositorio.existsById(chave)) {
+				repositorio.save(new Versao(chave, 0L));
+			}
+		} catch (DataIntegrityViolationException e) {
+			//Outra instância criou primeiro
+		}
+	}
+
+	//Exceção dentro de scheduleWithFixedDelay cancelaria as próximas execuções
+	private void atualizarComSeguranca() {
+		try {
+			atualizar();
+		} catch (RuntimeException e) {
+			LOG.error("Falha ao ler as versões do catálogo", e);
+		}
+	}
+
+	//Pega as alterações feitas pelas outras instâncias. O cache de segundo nível é limpo antes de o valor novo
+	//aparecer aqui, senão um ETag novo poderia sair com a entidade antiga do cache local
+	private void atualizar() {
+		for (Versao versao : repositorio.findAll()) {
+			if (versao.getValor() > getVersao(versao.getChave())) {
+				cacheService.limpar(versao.getChave());
+			}
+			versoes.merge(versao.getChave(), versao.getValor(), Math::max);
+		}
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		atualizacao.shutdownNow();
+	}
+}
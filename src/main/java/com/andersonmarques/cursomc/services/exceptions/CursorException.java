@@ -0,0 +1,15 @@
+package com.andersonmarques.cursomc.services.exceptions;
+
+
+public class CursorException extends RuntimeException{
+	private static final long serialVersionUID = 1L;
+
+	public CursorException(String descException) {
+		super(descException);
+	}
+	
+	public CursorException(String descException, Throwable throwable) {
+		super(descException, throwable);
+	}
+
+}
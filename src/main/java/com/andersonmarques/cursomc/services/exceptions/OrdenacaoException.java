@@ -0,0 +1,15 @@
+package com.andersonmarques.cursomc.services.exceptions;
+
+
+public class OrdenacaoException extends RuntimeException{
+	private static final long serialVersionUID = 1L;
+
+	public OrdenacaoException(String descException) {
+		super(descException);
+	}
+	
+	public OrdenacaoException(String descException, Throwable throwable) {
+		super(descException, throwable);
+	}
+
+}
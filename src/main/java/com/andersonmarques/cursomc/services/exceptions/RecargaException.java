@@ -0,0 +1,15 @@
+package com.andersonmarques.cursomc.services.exceptions;
+
+
+public class RecargaException extends RuntimeException{
+	private static final long serialVersionUID = 1L;
+
+	public RecargaException(String descException) {
+		super(descException);
+	}
+	
+	public RecargaException(String descException, Throwable throwable) {
+		super(descException, throwable);
+	}
+
+}
@@ -0,0 +1,15 @@
+package com.andersonmarques.cursomc.services.exceptions;
+
+
+public class RefreshTokenException extends RuntimeException{
+	private static final long serialVersionUID = 1L;
+
+	public RefreshTokenException(String descException) {
+		super(descException);
+	}
+	
+	public RefreshTokenException(String descException, Throwable throwable) {
+		super(descException, throwable);
+	}
+
+}
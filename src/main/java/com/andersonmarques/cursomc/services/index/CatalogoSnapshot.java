@@ -0,0 +1,456 @@
+package com.andersonmarques.cursomc.services.index;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import com.andersonmarques.cursomc.dto.PaginaDTO;
+import com.andersonmarques.cursomc.dto.ProdutoDTO;
+import com.andersonmarques.cursomc.dto.ProdutoPageDTO;
+import com.andersonmarques.cursomc.utils.Cursor;
+import com.andersonmarques.cursomc.utils.Normalizador;
+
+//Cópia imutável do catálogo usada nas leituras de /produtos.
+//Os produtos ficam em vetores primitivos ordenados por id, a "posição" de um produto é o índice nesses vetores.
+public class CatalogoSnapshot {
+
+	private final int[] ids;
+	private final String[] nomes;
+	//Nomes sem acento e em minúsculas, guardados para montar o autocompletar de novo quando a popularidade muda
+	private final String[] normalizados;
+	private final double[] precos;
+	//Versão da última alteração de cada produto (Produto.versao), usada no ETag de /produtos/{id}
+	private final long[] versoes;
+
+	//Ids das categorias de cada produto, ordenados
+	private final int[][] categorias;
+
+	//Produtos de cada categoria como bitmap das posições, o filtro por várias categorias vira um OR de bitmaps
+	private final Map<Integer, BitSet> produtosPorCategoria;
+	//Ids de todas as categorias com produtos, ordenados (índice dos contadores das facetas)
+	private final int[] categoriaIds;
+	//Facetas da busca sem nome e sem preço (todos os produtos), calculadas uma vez na montagem
+	private final Map<Integer, Integer> facetasTodos;
+
+	//Índice de nomes, os valores guardados são as posições dos produtos
+	private final TrigramIndex indiceNomes;
+
+	//Autocompletar por prefixo, com os produtos mais pedidos primeiro
+	private final SugestaoIndex sugestoes;
+
+	//Posição de cada produto na ordenação por nome/preço, usado para ordenar sem comparar Strings a cada busca
+	private final int[] rankNome;
+	private final int[] rankPreco;
+	private final int[] ordemNome;
+	private final int[] ordemPreco;
+	//Preços em ordem crescente (precosOrdenados[r] = precos[ordemPreco[r]]), as faixas de preço são buscas binárias nele
+	private final double[] precosOrdenados;
+
+	private final Collator collator;
+
+	private CatalogoSnapshot(int[] ids, String[] nomes, String[] normalizados, double[] precos, long[] versoes, int[][] categorias, long[] popularidade) {
+		this.ids = ids;
+		this.nomes = nomes;
+		this.normalizados = normalizados;
+		this.precos = precos;
+		this.versoes = versoes;
+		this.categorias = categorias;
+
+		this.produtosPorCategoria = new HashMap<>();
+		for (int pos = 0; pos < ids.length; pos++) {
+			for (int categoria : categorias[pos]) {
+				produtosPorCategoria.computeIfAbsent(categoria, c -> new BitSet(ids.length)).set(pos);
+			}
+		}
+		this.categoriaIds = produtosPorCategoria.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+		Map<Integer, Integer> facetas = new LinkedHashMap<>();
+		for (int categoria : categoriaIds) {
+			facetas.put(categoria, produtosPorCategoria.get(categoria).cardinality());
+		}
+		this.facetasTodos = Collections.unmodifiableMap(facetas);
+
+		int[] posicoes = new int[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			posicoes[i] = i;
+		}
+		this.indiceNomes = TrigramIndex.of(posicoes, normalizados);
+		this.sugestoes = SugestaoIndex.of(normalizados, nomes, popularidade);
+
+		this.collator = Collator.getInstance(new Locale("pt", "BR"));
+		Integer[] porNome = ordenar(ids.length, (a, b) -> {
+			int cmp = collator.compare(nomes[a], nomes[b]);
+			return cmp != 0 ? cmp : Integer.compare(ids[a], ids[b]);
+		});
+		Integer[] porPreco = ordenar(ids.length, (a, b) -> {
+			int cmp = Double.compare(precos[a], precos[b]);
+			return cmp != 0 ? cmp : Integer.compare(ids[a], ids[b]);
+		});
+		this.ordemNome = new int[ids.length];
+		this.ordemPreco = new int[ids.length];
+		this.rankNome = new int[ids.length];
+		this.rankPreco = new int[ids.length];
+		this.precosOrdenados = new double[ids.length];
+		for (int r = 0; r < ids.length; r++) {
+			ordemNome[r] = porNome[r];
+			ordemPreco[r] = porPreco[r];
+			rankNome[ordemNome[r]] = r;
+			rankPreco[ordemPreco[r]] = r;
+			precosOrdenados[r] = precos[ordemPreco[r]];
+		}
+	}
+
+	//Cópia com outro autocompletar, todo o resto é compartilhado (os vetores nunca são alterados)
+	private CatalogoSnapshot(CatalogoSnapshot base, SugestaoIndex sugestoes) {
+		this.ids = base.ids;
+		this.nomes = base.nomes;
+		this.normalizados = base.normalizados;
+		this.precos = base.precos;
+		this.versoes = base.versoes;
+		this.categorias = base.categorias;
+		this.produtosPorCategoria = base.produtosPorCategoria;
+		this.categoriaIds = base.categoriaIds;
+		this.facetasTodos = base.facetasTodos;
+		this.indiceNomes = base.indiceNomes;
+		this.sugestoes = sugestoes;
+		this.rankNome = base.rankNome;
+		this.rankPreco = base.rankPreco;
+		this.ordemNome = base.ordemNome;
+		this.ordemPreco = base.ordemPreco;
+		this.precosOrdenados = base.precosOrdenados;
+		this.collator = base.collator;
+	}
+
+	//produtos: linhas (id, nome, preco, nome normalizado, versao) ordenadas por id
+	//produtoCategoria: linhas (produto_id, categoria_id) ordenadas por produto e categoria
+	//popularidade: linhas (produto_id, quantidade pedida), produtos sem pedidos podem faltar
+	public static CatalogoSnapshot of(List<Object[]> produtos, List<Object[]> produtoCategoria, List<Object[]> popularidade) {
+		int n = produtos.size();
+		int[] ids = new int[n];
+		String[] nomes = new String[n];
+		String[] normalizados = new String[n];
+		double[] precos = new double[n];
+		long[] versoes = new long[n];
+		for (int i = 0; i < n; i++) {
+			Object[] linha = produtos.get(i);
+			ids[i] = (Integer) linha[0];
+			nomes[i] = linha[1] == null ? "" : (String) linha[1];
+			precos[i] = linha[2] == null ? 0d : (Double) linha[2];
+			//Linhas gravadas antes da coluna existir ainda não têm o nome normalizado
+			normalizados[i] = linha[3] == null ? Normalizador.normalizar(nomes[i]) : (String) linha[3];
+			versoes[i] = linha[4] == null ? 0 : (Long) linha[4];
+		}
+
+		int[][] categorias = new int[n][];
+		int linha = 0;
+		for (int i = 0; i < n; i++) {
+			int inicio = linha;
+			while (linha < produtoCategoria.size() && (Integer) produtoCategoria.get(linha)[0] == ids[i]) {
+				linha++;
+			}
+			categorias[i] = new int[linha - inicio];
+			for (int j = inicio; j < linha; j++) {
+				categorias[i][j - inicio] = (Integer) produtoCategoria.get(j)[1];
+			}
+		}
+		return new CatalogoSnapshot(ids, nomes, normalizados, precos, versoes, categorias, pesos(ids, popularidade));
+	}
+
+	//Mesmo catálogo com a popularidade atualizada, sem refazer índices e ordenações
+	public CatalogoSnapshot comPopularidade(List<Object[]> popularidade) {
+		return new CatalogoSnapshot(this, SugestaoIndex.of(normalizados, nomes, pesos(ids, popularidade)));
+	}
+
+	private static long[] pesos(int[] ids, List<Object[]> popularidade) {
+		long[] pesos = new long[ids.length];
+		for (Object[] quantidade : popularidade) {
+			int pos = Arrays.binarySearch(ids, (Integer) quantidade[0]);
+			if (pos >= 0 && quantidade[1] != null) {
+				pesos[pos] = ((Number) quantidade[1]).longValue();
+			}
+		}
+		return pesos;
+	}
+
+	public int size() {
+		return ids.length;
+	}
+
+	//Posição do produto nos vetores, ou negativo se não existir
+	public int posicao(int id) {
+		return Arrays.binarySearch(ids, id);
+	}
+
+	public ProdutoDTO find(int id) {
+		int pos = posicao(id);
+		return pos < 0 ? null : dto(pos);
+	}
+
+	//Versão da última alteração do produto, ou -1 se o produto não existe
+	public long versao(int id) {
+		int pos = posicao(id);
+		return pos < 0 ? -1 : versoes[pos];
+	}
+
+	//Nomes de produtos que começam com o prefixo, sem diferenciar acentos e maiúsculas
+	public List<String> sugerir(String prefixo, int quantidade) {
+		return sugestoes.sugerir(Normalizador.normalizar(prefixo), quantidade);
+	}
+
+	//Campos que o snapshot consegue ordenar sozinho
+	public static boolean isOrdenavel(String orderBy) {
+		return "nome".equals(orderBy) || "preco".equals(orderBy) || "id".equals(orderBy);
+	}
+
+	//Mesmo resultado da busca por nome e categorias do ProdutoRepository, mas sem acessar o banco
+	//Junto com a página devolve as facetas: quantos produtos com esse nome existem em cada categoria
+	//As faixas de preço (minPreco/maxPreco) podem ser nulas, sem limite
+	public ProdutoPageDTO search(String nome, List<Integer> categoriaIds, Double minPreco, Double maxPreco, Pageable pageable) {
+		BitSet base = buscarBase(nome, minPreco, maxPreco);
+		int[] encontrados = filtrar(base, categoriaIds);
+		int total = encontrados.length;
+
+		Sort.Order ordem = pageable.getSort().iterator().next();
+		int[] pagina = paginar(encontrados, total, ordem, pageable);
+
+		List<ProdutoDTO> conteudo = new ArrayList<>(pagina.length);
+		for (int pos : pagina) {
+			conteudo.add(dto(pos));
+		}
+		return new ProdutoPageDTO(conteudo, pageable, total, contarPorCategoria(base));
+	}
+
+	//Contagem por categoria numa única passada pelos produtos encontrados pelo nome e preço,
+	//sem nome e sem preço a contagem é a mesma para todas as buscas e já vem pronta
+	private Map<Integer, Integer> contarPorCategoria(BitSet base) {
+		if (base == null) {
+			return facetasTodos;
+		}
+		int[] contadores = new int[categoriaIds.length];
+		for (int pos = base.nextSetBit(0); pos >= 0; pos = base.nextSetBit(pos + 1)) {
+			contar(contadores, pos);
+		}
+
+		Map<Integer, Integer> facetas = new LinkedHashMap<>();
+		for (int i = 0; i < categoriaIds.length; i++) {
+			if (contadores[i] > 0) {
+				facetas.put(categoriaIds[i], contadores[i]);
+			}
+		}
+		return facetas;
+	}
+
+	//Mesma busca paginada por cursor: procura por busca binária o primeiro produto depois do (valor, id) do cursor
+	public PaginaDTO<ProdutoDTO> searchCursor(String nome, List<Integer> categoriaIds, Double minPreco, Double maxPreco,
+			String orderBy, Sort.Direction direcao, Cursor cursor, int size) {
+		int[] encontrados = filtrar(buscarBase(nome, minPreco, maxPreco), categoriaIds);
+		int total = encontrados.length;
+		int[] rank = "nome".equals(orderBy) ? rankNome : "preco".equals(orderBy) ? rankPreco : null;
+		int[] ordemCampo = "nome".equals(orderBy) ? ordemNome : "preco".equals(orderBy) ? ordemPreco : null;
+
+		//Posições em ordem crescente do campo (e do id no empate)
+		int[] ordenados = encontrados;
+		if (rank != null) {
+			ordenados = new int[total];
+			for (int i = 0; i < total; i++) {
+				ordenados[i] = rank[encontrados[i]];
+			}
+			Arrays.sort(ordenados);
+			for (int i = 0; i < total; i++) {
+				ordenados[i] = ordemCampo[ordenados[i]];
+			}
+		}
+
+		//No DESC a página é lida de trás para frente, a partir do último item antes do cursor
+		List<ProdutoDTO> conteudo = new ArrayList<>();
+		int restantes;
+		if (direcao.isAscending()) {
+			int inicio = cursor == null ? 0 : primeiroDepois(ordenados, orderBy, cursor, 0);
+			for (int i = inicio; i < total && conteudo.size() < size; i++) {
+				conteudo.add(dto(ordenados[i]));
+			}
+			restantes = total - inicio - conteudo.size();
+		} else {
+			int fim = cursor == null ? total : primeiroDepois(ordenados, orderBy, cursor, -1);
+			for (int i = fim - 1; i >= 0 && conteudo.size() < size; i--) {
+				conteudo.add(dto(ordenados[i]));
+			}
+			restantes = fim - conteudo.size();
+		}
+
+		boolean hasNext = restantes > 0;
+		String next = null;
+		if (hasNext) {
+			ProdutoDTO ultimo = conteudo.get(conteudo.size() - 1);
+			Object valor = "nome".equals(orderBy) ? ultimo.getNome() : "preco".equals(orderBy) ? ultimo.getPreco() : ultimo.getId();
+			next = Cursor.encode(orderBy, direcao.name(), ultimo.getId(), valor);
+		}
+		return new PaginaDTO<>(conteudo, size, hasNext, next);
+	}
+
+	private void contar(int[] contadores, int pos) {
+		for (int categoria : categorias[pos]) {
+			contadores[Arrays.binarySearch(categoriaIds, categoria)]++;
+		}
+	}
+
+	//Busca binária do primeiro índice cuja comparação com o cursor é maior que o limite
+	//(limite 0: depois do cursor, limite -1: o próprio cursor ou depois)
+	private int primeiroDepois(int[] ordenados, String orderBy, Cursor cursor, int limite) {
+		int baixo = 0;
+		int alto = ordenados.length;
+		while (baixo < alto) {
+			int meio = (baixo + alto) >>> 1;
+			if (compararComCursor(ordenados[meio], orderBy, cursor) <= limite) {
+				baixo = meio + 1;
+			} else {
+				alto = meio;
+			}
+		}
+		return baixo;
+	}
+
+	//Compara o produto com o (valor, id) do cursor na ordem crescente, devolve -1, 0 ou 1
+	private int compararComCursor(int pos, String orderBy, Cursor cursor) {
+		int cmp = 0;
+		if ("nome".equals(orderBy)) {
+			String valor = (String) cursor.getValor(String.class);
+			cmp = collator.compare(nomes[pos], valor == null ? "" : valor);
+		} else if ("preco".equals(orderBy)) {
+			Double valor = (Double) cursor.getValor(Double.class);
+			cmp = Double.compare(precos[pos], valor == null ? 0d : valor);
+		}
+		if (cmp == 0) {
+			cmp = Integer.compare(ids[pos], (Integer) cursor.getId(Integer.class));
+		}
+		return Integer.signum(cmp);
+	}
+
+	//Bitmap dos produtos pelo nome e pela faixa de preço, null quando não há nenhum dos dois (todos os produtos)
+	private BitSet buscarBase(String nome, Double minPreco, Double maxPreco) {
+		BitSet porNome = buscarPorNome(nome);
+		BitSet porPreco = buscarPorPreco(minPreco, maxPreco);
+		if (porNome == null) {
+			return porPreco;
+		}
+		if (porPreco != null) {
+			porNome.and(porPreco);
+		}
+		return porNome;
+	}
+
+	//Os produtos da faixa formam um trecho contínuo da ordem por preço, achado com duas buscas binárias
+	private BitSet buscarPorPreco(Double minPreco, Double maxPreco) {
+		if (minPreco == null && maxPreco == null) {
+			return null;
+		}
+		int inicio = minPreco == null ? 0 : primeiroPreco(minPreco, false);
+		int fim = maxPreco == null ? ids.length : primeiroPreco(maxPreco, true);
+		BitSet porPreco = new BitSet(ids.length);
+		for (int r = inicio; r < fim; r++) {
+			porPreco.set(ordemPreco[r]);
+		}
+		return porPreco;
+	}
+
+	//Primeiro rank com preço >= valor (ou > valor quando depois = true)
+	private int primeiroPreco(double valor, boolean depois) {
+		int baixo = 0;
+		int alto = precosOrdenados.length;
+		while (baixo < alto) {
+			int meio = (baixo + alto) >>> 1;
+			int cmp = Double.compare(precosOrdenados[meio], valor);
+			if (cmp < 0 || (depois && cmp == 0)) {
+				baixo = meio + 1;
+			} else {
+				alto = meio;
+			}
+		}
+		return baixo;
+	}
+
+	//Bitmap dos produtos cujo nome contém o texto, null quando não há nome (todos os produtos)
+	private BitSet buscarPorNome(String nome) {
+		String termo = Normalizador.normalizar(nome);
+		if (termo.isEmpty()) {
+			return null;
+		}
+		BitSet porNome = new BitSet(ids.length);
+		for (int pos : indiceNomes.search(termo)) {
+			porNome.set(pos);
+		}
+		return porNome;
+	}
+
+	//Posições (em ordem de id) dos produtos da base (nome e preço) e em alguma das categorias
+	private int[] filtrar(BitSet base, List<Integer> categoriaIds) {
+		BitSet resultado = new BitSet(ids.length);
+		for (Integer categoria : categoriaIds) {
+			BitSet produtos = produtosPorCategoria.get(categoria);
+			if (produtos != null) {
+				resultado.or(produtos);
+			}
+		}
+		if (base != null) {
+			resultado.and(base);
+		}
+		return resultado.stream().toArray();
+	}
+
+	//Ordena as posições encontradas pelo rank do campo e devolve apenas as da página pedida
+	private int[] paginar(int[] encontrados, int total, Sort.Order ordem, Pageable pageable) {
+		int[] rank = null;
+		int[] ordemCampo = null;
+		if ("nome".equals(ordem.getProperty())) {
+			rank = rankNome;
+			ordemCampo = ordemNome;
+		} else if ("preco".equals(ordem.getProperty())) {
+			rank = rankPreco;
+			ordemCampo = ordemPreco;
+		}
+
+		//As posições já estão em ordem de id, para os outros campos ordena pelos ranks
+		int[] chaves = Arrays.copyOf(encontrados, total);
+		if (rank != null) {
+			for (int i = 0; i < total; i++) {
+				chaves[i] = rank[chaves[i]];
+			}
+			Arrays.sort(chaves);
+		}
+
+		long inicio = pageable.getOffset();
+		int fim = (int) Math.min(total, inicio + pageable.getPageSize());
+		if (inicio >= fim) {
+			return new int[0];
+		}
+		int[] pagina = new int[fim - (int) inicio];
+		for (int i = 0; i < pagina.length; i++) {
+			int idx = ordem.isAscending() ? (int) inicio + i : total - 1 - ((int) inicio + i);
+			pagina[i] = ordemCampo == null ? chaves[idx] : ordemCampo[chaves[idx]];
+		}
+		return pagina;
+	}
+
+	private ProdutoDTO dto(int pos) {
+		return new ProdutoDTO(ids[pos], nomes[pos], precos[pos]);
+	}
+
+	private static Integer[] ordenar(int n, Comparator<Integer> comparator) {
+		Integer[] posicoes = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			posicoes[i] = i;
+		}
+		Arrays.sort(posicoes, comparator);
+		return posicoes;
+	}
+}
@@ -0,0 +1,85 @@
+package com.andersonmarques.cursomc.services.index;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.andersonmarques.cursomc.domain.Estado;
+import com.andersonmarques.cursomc.dto.CidadeDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+//Cópia imutável dos estados e cidades, com o JSON de cada resposta já pronto em UTF-8.
+//Os endpoints só escrevem esses bytes, sem consulta e sem serialização por requisição.
+public class LocalidadesSnapshot {
+
+	private static final byte[] LISTA_VAZIA = "[]".getBytes(StandardCharsets.UTF_8);
+
+	//JSON de /estados
+	private final byte[] estados;
+
+	//Ids dos estados em ordem e o JSON das cidades de cada um na mesma posição
+	private final int[] estadoIds;
+	private final byte[][] cidades;
+
+	private final int totalCidades;
+
+	private LocalidadesSnapshot(byte[] estados, int[] estadoIds, byte[][] cidades, int totalCidades) {
+		this.estados = estados;
+		this.estadoIds = estadoIds;
+		this.cidades = cidades;
+		this.totalCidades = totalCidades;
+	}
+
+	//As cidades chegam como {estado id, cidade id, nome} ordenadas por estado e nome
+	public static LocalidadesSnapshot of(List<Estado> estados, List<Object[]> linhas, ObjectMapper objectMapper) {
+		int[] estadoIds = new int[estados.size()];
+		for (int i = 0; i < estadoIds.length; i++) {
+			estadoIds[i] = estados.get(i).getId();
+		}
+		Arrays.sort(estadoIds);
+
+		List<List<CidadeDTO>> porEstado = new ArrayList<>();
+		for (int i = 0; i < estadoIds.length; i++) {
+			porEstado.add(new ArrayList<>());
+		}
+		for (Object[] linha : linhas) {
+			int posicao = Arrays.binarySearch(estadoIds, (Integer) linha[0]);
+			if (posicao >= 0) {
+				CidadeDTO cidade = new CidadeDTO();
+				cidade.setId((Integer) linha[1]);
+				cidade.setNome((String) linha[2]);
+				porEstado.get(posicao).add(cidade);
+			}
+		}
+
+		try {
+			byte[][] cidades = new byte[estadoIds.length][];
+			for (int i = 0; i < estadoIds.length; i++) {
+				cidades[i] = objectMapper.writeValueAsBytes(porEstado.get(i));
+			}
+			return new LocalidadesSnapshot(objectMapper.writeValueAsBytes(estados), estadoIds, cidades, linhas.size());
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Não foi possível gerar o JSON dos estados e cidades", e);
+		}
+	}
+
+	public byte[] getEstados() {
+		return estados;
+	}
+
+	//Estado que não existe responde lista vazia, como a consulta fazia
+	public byte[] getCidades(Integer estadoId) {
+		int posicao = estadoId == null ? -1 : Arrays.binarySearch(estadoIds, estadoId);
+		return posicao < 0 ? LISTA_VAZIA : cidades[posicao];
+	}
+
+	public int getTotalEstados() {
+		return estadoIds.length;
+	}
+
+	public int getTotalCidades() {
+		return totalCidades;
+	}
+}
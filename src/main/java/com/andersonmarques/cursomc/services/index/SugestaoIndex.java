@@ -0,0 +1,152 @@
+package com.andersonmarques.cursomc.services.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+//Índice de autocompletar por prefixo com peso de popularidade.
+//Funciona como uma trie "achatada": as chaves ficam ordenadas num vetor, então todas as chaves com um prefixo
+//formam um intervalo contínuo encontrado por busca binária. Os N mais populares do intervalo saem de uma
+//sparse table (máximo de qualquer intervalo em O(1)) sem percorrer o intervalo inteiro.
+//É imutável, montado junto com o snapshot do catálogo.
+public class SugestaoIndex {
+
+	//Chaves normalizadas em ordem, o nome exibido e o peso de cada uma
+	private final String[] chaves;
+	private final String[] nomes;
+	private final long[] pesos;
+
+	//maiores[k][i] = índice da chave de maior peso no intervalo [i, i + 2^k)
+	private final int[][] maiores;
+
+	private SugestaoIndex(String[] chaves, String[] nomes, long[] pesos) {
+		this.chaves = chaves;
+		this.nomes = nomes;
+		this.pesos = pesos;
+
+		int n = chaves.length;
+		int niveis = 1;
+		while ((1 << niveis) <= n) {
+			niveis++;
+		}
+		this.maiores = new int[niveis][];
+		maiores[0] = new int[n];
+		for (int i = 0; i < n; i++) {
+			maiores[0][i] = i;
+		}
+		for (int k = 1; k < niveis; k++) {
+			int tamanho = n - (1 << k) + 1;
+			maiores[k] = new int[tamanho];
+			for (int i = 0; i < tamanho; i++) {
+				maiores[k][i] = maior(maiores[k - 1][i], maiores[k - 1][i + (1 << (k - 1))]);
+			}
+		}
+	}
+
+	//Produtos com o mesmo nome viram uma sugestão só, somando os pesos
+	public static SugestaoIndex of(String[] normalizados, String[] nomes, long[] pesos) {
+		Map<String, Integer> porChave = new HashMap<>();
+		List<String> chaves = new ArrayList<>();
+		List<String> exibidos = new ArrayList<>();
+		List<Long> somas = new ArrayList<>();
+		for (int i = 0; i < normalizados.length; i++) {
+			if (normalizados[i].isEmpty()) {
+				continue;
+			}
+			Integer posicao = porChave.get(normalizados[i]);
+			if (posicao == null) {
+				porChave.put(normalizados[i], chaves.size());
+				chaves.add(normalizados[i]);
+				exibidos.add(nomes[i]);
+				somas.add(pesos[i]);
+			} else {
+				somas.set(posicao, somas.get(posicao) + pesos[i]);
+			}
+		}
+
+		Integer[] ordem = new Integer[chaves.size()];
+		for (int i = 0; i < ordem.length; i++) {
+			ordem[i] = i;
+		}
+		Arrays.sort(ordem, Comparator.comparing(chaves::get));
+
+		String[] chavesOrdenadas = new String[ordem.length];
+		String[] nomesOrdenados = new String[ordem.length];
+		long[] pesosOrdenados = new long[ordem.length];
+		for (int i = 0; i < ordem.length; i++) {
+			chavesOrdenadas[i] = chaves.get(ordem[i]);
+			nomesOrdenados[i] = exibidos.get(ordem[i]);
+			pesosOrdenados[i] = somas.get(ordem[i]);
+		}
+		return new SugestaoIndex(chavesOrdenadas, nomesOrdenados, pesosOrdenados);
+	}
+
+	//Até "quantidade" nomes que começam com o prefixo (já normalizado), do mais para o menos popular
+	public List<String> sugerir(String prefixo, int quantidade) {
+		List<String> sugestoes = new ArrayList<>();
+		int inicio = primeiraMaiorOuIgual(prefixo);
+		int fim = inicio;
+		//O fim do intervalo é a primeira chave que não começa com o prefixo
+		int alto = chaves.length;
+		while (fim < alto) {
+			int meio = (fim + alto) >>> 1;
+			if (chaves[meio].startsWith(prefixo)) {
+				fim = meio + 1;
+			} else {
+				alto = meio;
+			}
+		}
+		if (inicio >= fim || quantidade <= 0) {
+			return sugestoes;
+		}
+
+		//Cada item da fila é um intervalo {melhor, inicio, fim}, o de maior peso sai primeiro e é dividido em dois
+		PriorityQueue<int[]> fila = new PriorityQueue<>(
+				(a, b) -> a[0] == b[0] ? 0 : maior(a[0], b[0]) == a[0] ? -1 : 1);
+		fila.add(new int[] { maiorEntre(inicio, fim - 1), inicio, fim - 1 });
+		while (!fila.isEmpty() && sugestoes.size() < quantidade) {
+			int[] intervalo = fila.poll();
+			int melhor = intervalo[0];
+			sugestoes.add(nomes[melhor]);
+			if (intervalo[1] < melhor) {
+				fila.add(new int[] { maiorEntre(intervalo[1], melhor - 1), intervalo[1], melhor - 1 });
+			}
+			if (melhor < intervalo[2]) {
+				fila.add(new int[] { maiorEntre(melhor + 1, intervalo[2]), melhor + 1, intervalo[2] });
+			}
+		}
+		return sugestoes;
+	}
+
+	private int primeiraMaiorOuIgual(String prefixo) {
+		int baixo = 0;
+		int alto = chaves.length;
+		while (baixo < alto) {
+			int meio = (baixo + alto) >>> 1;
+			if (chaves[meio].compareTo(prefixo) < 0) {
+				baixo = meio + 1;
+			} else {
+				alto = meio;
+			}
+		}
+		return baixo;
+	}
+
+	//Índice de maior peso no intervalo fechado [de, ate]
+	private int maiorEntre(int de, int ate) {
+		int k = 31 - Integer.numberOfLeadingZeros(ate - de + 1);
+		return maior(maiores[k][de], maiores[k][ate - (1 << k) + 1]);
+	}
+
+	//No empate fica a chave que vem antes na ordem alfabética
+	private int maior(int a, int b) {
+		if (pesos[a] != pesos[b]) {
+			return pesos[a] > pesos[b] ? a : b;
+		}
+		return Math.min(a, b);
+	}
+}
@@ -0,0 +1,151 @@
+package com.andersonmarques.cursomc.services.index;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+//Índice invertido de trigramas (3 caracteres seguidos) para busca do tipo "contém".
+//É imutável: cada alteração no catálogo gera um índice novo, assim a leitura não precisa de lock.
+public class TrigramIndex {
+
+	//Trigramas ordenados, cada um aponta para um trecho do vetor de postings (formato CSR)
+	private final long[] trigramas;
+	private final int[] inicio;
+	private final int[] postings;
+
+	//Valor devolvido para cada documento (ex.: id do produto) e o texto já normalizado
+	private final int[] valores;
+	private final String[] textos;
+
+	private TrigramIndex(long[] trigramas, int[] inicio, int[] postings, int[] valores, String[] textos) {
+		this.trigramas = trigramas;
+		this.inicio = inicio;
+		this.postings = postings;
+		this.valores = valores;
+		this.textos = textos;
+	}
+
+	//Monta o índice, os textos devem estar normalizados da mesma forma que o termo buscado
+	public static TrigramIndex of(int[] valores, String[] textos) {
+		Map<Long, int[]> mapa = new HashMap<>();
+		int total = 0;
+		for (int doc = 0; doc < textos.length; doc++) {
+			for (long trigrama : trigramasDistintos(textos[doc])) {
+				int[] lista = mapa.get(trigrama);
+				if (lista == null) {
+					//A primeira posição guarda a quantidade usada
+					lista = new int[5];
+				} else if (lista[0] + 1 == lista.length) {
+					lista = Arrays.copyOf(lista, lista.length * 2);
+				}
+				lista[++lista[0]] = doc;
+				mapa.put(trigrama, lista);
+				total++;
+			}
+		}
+
+		long[] trigramas = new long[mapa.size()];
+		int i = 0;
+		for (Long trigrama : mapa.keySet()) {
+			trigramas[i++] = trigrama;
+		}
+		Arrays.sort(trigramas);
+
+		int[] inicio = new int[trigramas.length + 1];
+		int[] postings = new int[total];
+		int pos = 0;
+		for (i = 0; i < trigramas.length; i++) {
+			int[] lista = mapa.get(trigramas[i]);
+			inicio[i] = pos;
+			System.arraycopy(lista, 1, postings, pos, lista[0]);
+			pos += lista[0];
+		}
+		inicio[trigramas.length] = pos;
+
+		return new TrigramIndex(trigramas, inicio, postings, valores.clone(), textos.clone());
+	}
+
+	public int size() {
+		return valores.length;
+	}
+
+	//Retorna os valores dos documentos cujo texto contém o termo, na ordem em que foram indexados
+	public int[] search(String termo) {
+		if (termo.isEmpty()) {
+			return valores.clone();
+		}
+		if (termo.length() < 3) {
+			//Termos curtos não formam trigrama, então verifica texto a texto
+			return verificar(null, termo);
+		}
+
+		long[] chaves = trigramasDistintos(termo);
+		int[][] listas = new int[chaves.length][];
+		for (int i = 0; i < chaves.length; i++) {
+			int idx = Arrays.binarySearch(trigramas, chaves[i]);
+			if (idx < 0) {
+				return new int[0];
+			}
+			listas[i] = Arrays.copyOfRange(postings, inicio[idx], inicio[idx + 1]);
+		}
+
+		//Intersecta começando pela menor lista para descartar candidatos o quanto antes
+		Arrays.sort(listas, (a, b) -> Integer.compare(a.length, b.length));
+		int[] candidatos = listas[0];
+		for (int i = 1; i < listas.length && candidatos.length > 0; i++) {
+			candidatos = intersectar(candidatos, listas[i]);
+		}
+
+		//Os trigramas podem aparecer fora de ordem no texto, por isso confirma o "contém"
+		return verificar(candidatos, termo);
+	}
+
+	private int[] verificar(int[] candidatos, String termo) {
+		int quantidade = candidatos == null ? textos.length : candidatos.length;
+		int[] encontrados = new int[quantidade];
+		int n = 0;
+		for (int i = 0; i < quantidade; i++) {
+			int doc = candidatos == null ? i : candidatos[i];
+			if (textos[doc].contains(termo)) {
+				encontrados[n++] = valores[doc];
+			}
+		}
+		return Arrays.copyOf(encontrados, n);
+	}
+
+	private static int[] intersectar(int[] a, int[] b) {
+		int[] resultado = new int[Math.min(a.length, b.length)];
+		int i = 0, j = 0, n = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				i++;
+			} else if (a[i] > b[j]) {
+				j++;
+			} else {
+				resultado[n++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(resultado, n);
+	}
+
+	//Cada trigrama é guardado em um long com 16 bits por caractere
+	private static long[] trigramasDistintos(String texto) {
+		if (texto.length() < 3) {
+			return new long[0];
+		}
+		long[] chaves = new long[texto.length() - 2];
+		for (int i = 0; i < chaves.length; i++) {
+			chaves[i] = ((long) texto.charAt(i) << 32) | ((long) texto.charAt(i + 1) << 16) | texto.charAt(i + 2);
+		}
+		Arrays.sort(chaves);
+		int n = 0;
+		for (int i = 0; i < chaves.length; i++) {
+			if (n == 0 || chaves[n - 1] != chaves[i]) {
+				chaves[n++] = chaves[i];
+			}
+		}
+		return Arrays.copyOf(chaves, n);
+	}
+}
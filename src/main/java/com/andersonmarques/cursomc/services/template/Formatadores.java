@@ -0,0 +1,88 @@
+package com.andersonmarques.cursomc.services.template;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+//Formatação usada pelos templates, escrevendo direto no buffer de saída.
+//Ao contrário de NumberFormat/SimpleDateFormat tudo aqui é thread-safe, então é criado uma vez só.
+public final class Formatadores {
+
+	private static final DateTimeFormatter DATA_HORA = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+	private static final ZoneId ZONA = ZoneId.systemDefault();
+
+	private Formatadores() {}
+
+	//Mesmo resultado do NumberFormat de moeda pt-BR: "R$ 1.234,56", inclusive no arredondamento
+	//(HALF_EVEN sobre o valor exato do double, 0.125 -> "R$ 0,12")
+	public static void moeda(double valor, StringBuilder saida) {
+		long centavos = new BigDecimal(valor).abs().setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValue();
+		if (valor < 0 && centavos > 0) {
+			saida.append('-');
+		}
+		saida.append("R$ ");
+		long inteiro = centavos / 100;
+		long divisor = 1;
+		while (divisor <= inteiro / 1000) {
+			divisor *= 1000;
+		}
+		//O primeiro grupo de milhar sai sem zeros à esquerda, os outros sempre com três dígitos
+		saida.append(inteiro / divisor);
+		for (divisor /= 1000; divisor > 0; divisor /= 1000) {
+			long grupo = inteiro / divisor % 1000;
+			saida.append('.');
+			if (grupo < 100) {
+				saida.append('0');
+			}
+			if (grupo < 10) {
+				saida.append('0');
+			}
+			saida.append(grupo);
+		}
+		long resto = centavos % 100;
+		saida.append(',');
+		if (resto < 10) {
+			saida.append('0');
+		}
+		saida.append(resto);
+	}
+
+	public static void dataHora(Date data, StringBuilder saida) {
+		DATA_HORA.formatTo(data.toInstant().atZone(ZONA), saida);
+	}
+
+	//No HTML os caracteres especiais são escapados
+	public static void texto(String texto, StringBuilder saida, boolean html) {
+		if (texto == null) {
+			return;
+		}
+		if (!html) {
+			saida.append(texto);
+			return;
+		}
+		for (int i = 0; i < texto.length(); i++) {
+			char c = texto.charAt(i);
+			switch (c) {
+			case '&':
+				saida.append("&amp;");
+				break;
+			case '<':
+				saida.append("&lt;");
+				break;
+			case '>':
+				saida.append("&gt;");
+				break;
+			case '"':
+				saida.append("&quot;");
+				break;
+			case '\'':
+				saida.append("&#39;");
+				break;
+			default:
+				saida.append(c);
+			}
+		}
+	}
+}
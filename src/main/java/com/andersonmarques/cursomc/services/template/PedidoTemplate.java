@@ -0,0 +1,72 @@
+package com.andersonmarques.cursomc.services.template;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import com.andersonmarques.cursomc.domain.Pedido;
+
+//Corpo do email de confirmação de pedido, em texto e em HTML.
+//Os templates ficam em resources/templates/email e são compilados uma vez na inicialização.
+@Component
+public class PedidoTemplate {
+
+	private static final Map<String, Template.Valor> VARIAVEIS = new HashMap<>();
+
+	static {
+		VARIAVEIS.put("pedido.id", (pedido, item, saida, html) -> saida.append(pedido.getId()));
+		VARIAVEIS.put("pedido.instante", (pedido, item, saida, html) -> Formatadores.dataHora(pedido.getInstante(), saida));
+		VARIAVEIS.put("pedido.valorTotal", (pedido, item, saida, html) -> Formatadores.moeda(pedido.getValorTotal(), saida));
+		VARIAVEIS.put("cliente.nome", (pedido, item, saida, html) -> Formatadores.texto(pedido.getCliente().getNome(), saida, html));
+		VARIAVEIS.put("pagamento.situacao", (pedido, item, saida, html) ->
+				Formatadores.texto(pedido.getPagamento().getEstadoPagamento().getDescricao(), saida, html));
+		VARIAVEIS.put("item.produto", (pedido, item, saida, html) -> Formatadores.texto(item.getProduto().getNome(), saida, html));
+		VARIAVEIS.put("item.quantidade", (pedido, item, saida, html) -> saida.append(item.getQuantidade()));
+		VARIAVEIS.put("item.preco", (pedido, item, saida, html) -> Formatadores.moeda(item.getPreco(), saida));
+		VARIAVEIS.put("item.subtotal", (pedido, item, saida, html) -> Formatadores.moeda(item.getSubTotal(), saida));
+	}
+
+	private Template texto;
+	private Template html;
+
+	@PostConstruct
+	public void compilar() throws IOException {
+		texto = Template.compilar(ler("templates/email/confirmacao-pedido.txt"), VARIAVEIS, false);
+		html = Template.compilar(ler("templates/email/confirmacao-pedido.html"), VARIAVEIS, true);
+	}
+
+	public String texto(Pedido pedido) {
+		return texto.renderizar(pedido);
+	}
+
+	public String html(Pedido pedido) {
+		return html.renderizar(pedido);
+	}
+
+	//Várias confirmações num email só (digest): o documento da primeira com o corpo das outras no fim, separados por uma linha
+	public String juntarHtml(List<String> documentos) {
+		String primeiro = documentos.get(0);
+		int fim = primeiro.lastIndexOf("</body>");
+		if (fim < 0) {
+			throw new IllegalStateException("Template HTML sem </body>");
+		}
+		StringBuilder html = new StringBuilder(primeiro.length() * documentos.size()).append(primeiro, 0, fim);
+		for (String documento : documentos.subList(1, documentos.size())) {
+			int inicio = documento.indexOf('>', documento.indexOf("<body")) + 1;
+			html.append("\t<hr>\n").append(documento, inicio, documento.lastIndexOf("</body>"));
+		}
+		return html.append(primeiro, fim, primeiro.length()).toString();
+	}
+
+	private static String ler(String caminho) throws IOException {
+		return StreamUtils.copyToString(new ClassPathResource(caminho).getInputStream(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,119 @@
+package com.andersonmarques.cursomc.services.template;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.andersonmarques.cursomc.domain.ItemPedido;
+import com.andersonmarques.cursomc.domain.Pedido;
+
+//Template compilado: o texto é lido uma vez e vira uma lista de partes (texto fixo, variável ou bloco dos itens),
+//renderizar é só percorrer essa lista escrevendo num buffer reaproveitado pela thread.
+//Sintaxe: {{variavel}} e o bloco {{#itens}}...{{/itens}}, repetido para cada item do pedido.
+public class Template {
+
+	//Valor de uma variável, escrito direto na saída (item é null fora do bloco dos itens)
+	public interface Valor {
+		void escrever(Pedido pedido, ItemPedido item, StringBuilder saida, boolean html);
+	}
+
+	private interface Parte {
+		void escrever(Pedido pedido, ItemPedido item, StringBuilder saida);
+	}
+
+	private static final String BLOCO_ITENS = "itens";
+
+	//Buffer maior que isso não é guardado, para um email muito grande não prender memória na thread
+	private static final int BUFFER_MAXIMO = 64 * 1024;
+
+	private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(2048));
+
+	private final Parte[] partes;
+
+	private Template(Parte[] partes) {
+		this.partes = partes;
+	}
+
+	//Variável desconhecida ou bloco mal fechado falha aqui, na inicialização, e não no envio do email
+	public static Template compilar(String fonte, Map<String, Valor> variaveis, boolean html) {
+		List<Parte> partes = new ArrayList<>();
+		List<Parte> itens = null;
+		int posicao = 0;
+		while (posicao < fonte.length()) {
+			int inicio = fonte.indexOf("{{", posicao);
+			if (inicio < 0) {
+				adicionar(itens != null ? itens : partes, literal(fonte.substring(posicao)));
+				break;
+			}
+			int fim = fonte.indexOf("}}", inicio);
+			if (fim < 0) {
+				throw new IllegalStateException("Template com {{ sem fechamento na posição " + inicio);
+			}
+			adicionar(itens != null ? itens : partes, literal(fonte.substring(posicao, inicio)));
+			String nome = fonte.substring(inicio + 2, fim).trim();
+			posicao = fim + 2;
+
+			if (nome.equals("#" + BLOCO_ITENS)) {
+				if (itens != null) {
+					throw new IllegalStateException("Bloco {{#itens}} dentro de outro");
+				}
+				itens = new ArrayList<>();
+			} else if (nome.equals("/" + BLOCO_ITENS)) {
+				if (itens == null) {
+					throw new IllegalStateException("{{/itens}} sem {{#itens}}");
+				}
+				partes.add(bloco(itens.toArray(new Parte[0])));
+				itens = null;
+			} else {
+				Valor valor = variaveis.get(nome);
+				if (valor == null) {
+					throw new IllegalStateException("Variável desconhecida no template: " + nome);
+				}
+				if (itens == null && nome.startsWith("item.")) {
+					throw new IllegalStateException("Variável " + nome + " fora do bloco {{#itens}}");
+				}
+				(itens != null ? itens : partes).add((pedido, item, saida) -> valor.escrever(pedido, item, saida, html));
+			}
+		}
+		if (itens != null) {
+			throw new IllegalStateException("Bloco {{#itens}} sem {{/itens}}");
+		}
+		return new Template(partes.toArray(new Parte[0]));
+	}
+
+	public String renderizar(Pedido pedido) {
+		StringBuilder saida = BUFFER.get();
+		saida.setLength(0);
+		for (Parte parte : partes) {
+			parte.escrever(pedido, null, saida);
+		}
+		String resultado = saida.toString();
+		if (saida.capacity() > BUFFER_MAXIMO) {
+			BUFFER.remove();
+		}
+		return resultado;
+	}
+
+	private static void adicionar(List<Parte> partes, Parte parte) {
+		if (parte != null) {
+			partes.add(parte);
+		}
+	}
+
+	private static Parte literal(String texto) {
+		if (texto.isEmpty()) {
+			return null;
+		}
+		return (pedido, item, saida) -> saida.append(texto);
+	}
+
+	private static Parte bloco(Parte[] internas) {
+		return (pedido, item, saida) -> {
+			for (ItemPedido atual : pedido.getItens()) {
+				for (Parte parte : internas) {
+					parte.escrever(pedido, atual, saida);
+				}
+			}
+		};
+	}
+}
@@ -31,7 +31,7 @@ public class ClienteUpdateValidator implements ConstraintValidator <ClienteUpdat
         //Suprime o warning da IDE
         @SuppressWarnings("unchecked")
         Map<String, String> map = (Map<String, String>) servletRequest.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
-        Integer uriID = Integer.valueOf(map.get("id"));
+        Long uriID = Long.valueOf(map.get("id"));
 
 
 
@@ -0,0 +1,100 @@
+package com.andersonmarques.cursomc.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import com.andersonmarques.cursomc.services.exceptions.CursorException;
+
+//Cursor da paginação por chave (keyset): guarda o valor do campo ordenado e o id do último item da página.
+//Para o cliente é só um texto opaco que ele devolve no parâmetro "cursor" para pedir a próxima página.
+public class Cursor {
+
+	private final String orderBy;
+	private final String direction;
+	private final String id;
+	//null quando o valor ordenado do último item era nulo
+	private final String valor;
+
+	private Cursor(String orderBy, String direction, String id, String valor) {
+		this.orderBy = orderBy;
+		this.direction = direction;
+		this.id = id;
+		this.valor = valor;
+	}
+
+	public static String encode(String orderBy, String direction, Object id, Object valor) {
+		String texto;
+		if (valor == null) {
+			texto = "n";
+		} else if (valor instanceof Date) {
+			texto = "v" + ((Date) valor).getTime();
+		} else {
+			texto = "v" + valor;
+		}
+		String conteudo = orderBy + "|" + direction + "|" + id + "|" + texto;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(conteudo.getBytes(StandardCharsets.UTF_8));
+	}
+
+	//Cursor vazio (ou "inicio") significa primeira página no modo cursor
+	public static Cursor decode(String token, String orderBy, String direction) {
+		if (token == null || token.isEmpty()) {
+			return null;
+		}
+		String[] partes;
+		try {
+			partes = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|", 4);
+		} catch (IllegalArgumentException e) {
+			throw new CursorException("Não foi possível ler o cursor informado");
+		}
+		if (partes.length != 4 || partes[3].isEmpty()) {
+			throw new CursorException("Não foi possível ler o cursor informado");
+		}
+		if (!partes[0].equals(orderBy) || !partes[1].equals(direction)) {
+			throw new CursorException("O cursor foi gerado para outra ordenação, use orderBy=" + partes[0] + " e direction=" + partes[1]);
+		}
+		String valor = partes[3].charAt(0) == 'v' ? partes[3].substring(1) : null;
+		return new Cursor(partes[0], partes[1], partes[2], valor);
+	}
+
+	public String getOrderBy() {
+		return orderBy;
+	}
+
+	public String getDirection() {
+		return direction;
+	}
+
+	public boolean isValorNulo() {
+		return valor == null;
+	}
+
+	//Converte o id para o tipo do atributo da entidade
+	public Object getId(Class<?> tipo) {
+		return converter(id, tipo);
+	}
+
+	//Converte o valor ordenado para o tipo do atributo da entidade
+	public Object getValor(Class<?> tipo) {
+		return valor == null ? null : converter(valor, tipo);
+	}
+
+	private static Object converter(String texto, Class<?> tipo) {
+		try {
+			if (tipo == String.class) {
+				return texto;
+			} else if (tipo == Integer.class || tipo == int.class) {
+				return Integer.valueOf(texto);
+			} else if (tipo == Long.class || tipo == long.class) {
+				return Long.valueOf(texto);
+			} else if (tipo == Double.class || tipo == double.class) {
+				return Double.valueOf(texto);
+			} else if (Date.class.isAssignableFrom(tipo)) {
+				return new Date(Long.parseLong(texto));
+			}
+		} catch (NumberFormatException e) {
+			throw new CursorException("Não foi possível ler o cursor informado");
+		}
+		throw new CursorException("Não é possível paginar por cursor ordenando por um campo do tipo " + tipo.getSimpleName());
+	}
+}
@@ -0,0 +1,72 @@
+package com.andersonmarques.cursomc.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//Filtro de Bloom: diz com poucas leituras de bits se um valor com certeza não foi adicionado,
+//ou se talvez foi (com a taxa de falso positivo escolhida). Não permite remover, para isso cria-se outro.
+//Os bits ficam num AtomicLongArray, então leituras e inclusões podem acontecer ao mesmo tempo sem lock.
+public class FiltroBloom {
+
+	private final AtomicLongArray bits;
+	private final long tamanho;
+	private final int funcoes;
+
+	public FiltroBloom(int capacidade, double falsoPositivo) {
+		double ln2 = Math.log(2);
+		long m = (long) Math.ceil(-Math.max(1, capacidade) * Math.log(falsoPositivo) / (ln2 * ln2));
+		int palavras = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) / 64));
+		bits = new AtomicLongArray(palavras);
+		tamanho = (long) palavras * 64;
+		funcoes = Math.max(1, (int) Math.round((double) tamanho / Math.max(1, capacidade) * ln2));
+	}
+
+	public void adicionar(String valor) {
+		long hash = hash(valor);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 0; i < funcoes; i++) {
+			long bit = posicao(h1 + i * h2);
+			int palavra = (int) (bit >>> 6);
+			long mascara = 1L << bit;
+			long atual;
+			do {
+				atual = bits.get(palavra);
+				if ((atual & mascara) != 0) {
+					break;
+				}
+			} while (!bits.compareAndSet(palavra, atual, atual | mascara));
+		}
+	}
+
+	public boolean talvezContem(String valor) {
+		long hash = hash(valor);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 0; i < funcoes; i++) {
+			long bit = posicao(h1 + i * h2);
+			if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private long posicao(int combinado) {
+		return (combinado & 0xFFFFFFFFL) % tamanho;
+	}
+
+	//FNV-1a de 64 bits seguido da mistura final do MurmurHash3, as duas metades viram as duas funções de hash
+	private static long hash(String valor) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < valor.length(); i++) {
+			h ^= valor.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
@@ -0,0 +1,36 @@
+package com.andersonmarques.cursomc.utils;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+public class Normalizador {
+
+	//Acentos e outros sinais que ficam separados da letra depois da decomposição NFD
+	private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+
+	//Caractere de escape das consultas LIKE (ESCAPE '!'). A barra invertida não funciona nos dois bancos:
+	//no MySQL ESCAPE '\' escapa o apóstrofo e quebra o literal, e ESCAPE '\\' no H2 tem dois caracteres
+	public static final char ESCAPE_LIKE = '!';
+
+	//Forma usada nas buscas por nome: sem acento e em minúsculas ("Eletrônicos" -> "eletronicos")
+	public static String normalizar(String texto) {
+		if (texto == null) {
+			return "";
+		}
+		String decomposto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+		return MARCAS.matcher(decomposto).replaceAll("").toLowerCase(Locale.ROOT);
+	}
+
+	//Texto digitado pelo usuário usado dentro de um LIKE: % e _ passam a valer como eles mesmos
+	public static String escaparLike(String texto) {
+		StringBuilder escapado = new StringBuilder(texto.length());
+		for (char c : texto.toCharArray()) {
+			if (c == '%' || c == '_' || c == ESCAPE_LIKE) {
+				escapado.append(ESCAPE_LIKE);
+			}
+			escapado.append(c);
+		}
+		return escapado.toString();
+	}
+}
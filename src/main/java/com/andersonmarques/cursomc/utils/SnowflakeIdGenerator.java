@@ -0,0 +1,70 @@
+package com.andersonmarques.cursomc.utils;
+
+import java.io.Serializable;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+//Gerador de ids de 64 bits no formato Snowflake: 41 bits de milissegundos desde 2018-01-01, 10 bits do nó e 12 de sequência.
+//Cada instância da aplicação usa um nó diferente (propriedade id.node), então várias instâncias geram ids sem se coordenar.
+//Como o id sai antes do INSERT (no IDENTITY só o banco sabe o id), o Hibernate pode agrupar os inserts em batch.
+public class SnowflakeIdGenerator implements IdentifierGenerator, Configurable {
+
+	//Propriedade do Hibernate com o número do nó (spring.jpa.properties.snowflake.node)
+	public static final String NODE = "snowflake.node";
+
+	//2018-01-01T00:00:00Z, os 41 bits de tempo duram até 2087
+	private static final long EPOCA = 1514764800000L;
+	private static final int BITS_NO = 10;
+	private static final int BITS_SEQUENCIA = 12;
+	private static final long MAX_NO = (1L << BITS_NO) - 1;
+	private static final long MAX_SEQUENCIA = (1L << BITS_SEQUENCIA) - 1;
+
+	//Milissegundo e sequência do último id num único long, atualizado com compareAndSet (sem lock)
+	private final AtomicLong ultimo = new AtomicLong();
+	private long no;
+
+	@Override
+	public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) {
+		Object valor = serviceRegistry.getService(ConfigurationService.class).getSettings().get(NODE);
+		try {
+			no = valor == null ? 0 : Long.parseLong(valor.toString().trim());
+		} catch (NumberFormatException e) {
+			throw new MappingException("Valor inválido para " + NODE + ": " + valor);
+		}
+		if (no < 0 || no > MAX_NO) {
+			throw new MappingException(NODE + " deve estar entre 0 e " + MAX_NO + ", informado: " + no);
+		}
+	}
+
+	@Override
+	public Serializable generate(SharedSessionContractImplementor session, Object object) {
+		return proximo();
+	}
+
+	public long proximo() {
+		while (true) {
+			long anterior = ultimo.get();
+			long agora = System.currentTimeMillis() - EPOCA;
+			long proximo;
+			if (agora > (anterior >>> BITS_SEQUENCIA)) {
+				proximo = agora << BITS_SEQUENCIA;
+			} else {
+				//Mesmo milissegundo (ou o relógio voltou): só incrementa a sequência.
+				//Se ela estourar o "vai um" avança o milissegundo, os ids continuam únicos e crescentes
+				proximo = anterior + 1;
+			}
+			if (ultimo.compareAndSet(anterior, proximo)) {
+				long milissegundo = proximo >>> BITS_SEQUENCIA;
+				return (milissegundo << (BITS_NO + BITS_SEQUENCIA)) | (no << BITS_SEQUENCIA) | (proximo & MAX_SEQUENCIA);
+			}
+		}
+	}
+}
@@ -0,0 +1,54 @@
+-- Atualiza um banco MySQL criado com o esquema antigo (perfil dev roda com ddl-auto=none)
+-- Rodar uma vez, com a aplicação parada: mysql -u root curso_spring < migracao-01.sql
+-- As linhas da tabela versao e a coluna nome_normalizado das linhas antigas são preenchidas pela aplicação na inicialização
+
+-- Ids de cliente e pedido passam a ser BIGINT gerados pelo SnowflakeIdGenerator (sem auto_increment).
+-- As chaves estrangeiras que apontam para eles precisam sair antes da troca do tipo e voltar depois.
+ALTER TABLE endereco DROP FOREIGN KEY FK8s7ivtl4foyhrfam9xqom73n9;
+ALTER TABLE item_pedido DROP FOREIGN KEY FK60ym08cfoysa17wrn1swyiuda;
+ALTER TABLE pagamento DROP FOREIGN KEY FKthad9tkw4188hb3qo1lm5ueb0;
+ALTER TABLE pedido DROP FOREIGN KEY FK30s8j2ktpay6of18lbyqn3632;
+ALTER TABLE perfis DROP FOREIGN KEY FKsobr8hl9guwr8775lyl1mncg2;
+ALTER TABLE telefone DROP FOREIGN KEY FK8aafha0njkoyoe3kvrwsy3g8u;
+
+ALTER TABLE cliente MODIFY id BIGINT NOT NULL;
+ALTER TABLE pedido MODIFY id BIGINT NOT NULL, MODIFY cliente_id BIGINT;
+ALTER TABLE endereco MODIFY cliente_id BIGINT;
+ALTER TABLE item_pedido MODIFY pedido_id BIGINT NOT NULL;
+ALTER TABLE pagamento MODIFY pedido_id BIGINT NOT NULL;
+ALTER TABLE perfis MODIFY cliente_id BIGINT NOT NULL;
+ALTER TABLE telefone MODIFY cliente_id BIGINT NOT NULL;
+
+ALTER TABLE endereco ADD CONSTRAINT FK8s7ivtl4foyhrfam9xqom73n9 FOREIGN KEY (cliente_id) REFERENCES cliente (id);
+ALTER TABLE item_pedido ADD CONSTRAINT FK60ym08cfoysa17wrn1swyiuda FOREIGN KEY (pedido_id) REFERENCES pedido (id);
+ALTER TABLE pagamento ADD CONSTRAINT FKthad9tkw4188hb3qo1lm5ueb0 FOREIGN KEY (pedido_id) REFERENCES pedido (id);
+ALTER TABLE pedido ADD CONSTRAINT FK30s8j2ktpay6of18lbyqn3632 FOREIGN KEY (cliente_id) REFERENCES cliente (id);
+ALTER TABLE perfis ADD CONSTRAINT FKsobr8hl9guwr8775lyl1mncg2 FOREIGN KEY (cliente_id) REFERENCES cliente (id);
+ALTER TABLE telefone ADD CONSTRAINT FK8aafha0njkoyoe3kvrwsy3g8u FOREIGN KEY (cliente_id) REFERENCES cliente (id);
+
+-- Busca por nome sem acento e versão de cada produto (ETag por produto e sincronização incremental)
+ALTER TABLE produto ADD COLUMN nome_normalizado VARCHAR(255), ADD COLUMN versao BIGINT;
+ALTER TABLE categoria ADD COLUMN nome_normalizado VARCHAR(255);
+
+-- Tabelas novas
+CREATE TABLE versao (chave VARCHAR(30) NOT NULL, valor BIGINT, PRIMARY KEY (chave)) ENGINE=InnoDB;
+CREATE TABLE produto_removido (id INTEGER NOT NULL, versao BIGINT, PRIMARY KEY (id)) ENGINE=InnoDB;
+CREATE TABLE email_pendente (id BIGINT NOT NULL, criado_em DATETIME, pedido_id BIGINT, proxima_tentativa DATETIME, situacao INTEGER, tentativas INTEGER, ultimo_erro VARCHAR(500), PRIMARY KEY (id)) ENGINE=InnoDB;
+CREATE TABLE refresh_token (hash VARCHAR(64) NOT NULL, cliente_id BIGINT, criado_em DATETIME, expira_em DATETIME, familia VARCHAR(36), usado BIT, PRIMARY KEY (hash)) ENGINE=InnoDB;
+CREATE TABLE token_revogado (chave VARCHAR(60) NOT NULL, expira_em DATETIME, revogado_em DATETIME, PRIMARY KEY (chave)) ENGINE=InnoDB;
+
+-- Índices
+CREATE INDEX idx_categoria_nome ON categoria (nome, id);
+CREATE INDEX idx_categoria_nome_normalizado ON categoria (nome_normalizado);
+CREATE INDEX idx_cliente_nome ON cliente (nome, id);
+CREATE INDEX idx_pedido_cliente_id ON pedido (cliente_id, id);
+CREATE INDEX idx_pedido_cliente_instante ON pedido (cliente_id, instante, id);
+CREATE INDEX idx_produto_nome_normalizado ON produto (nome_normalizado);
+CREATE INDEX idx_produto_versao ON produto (versao);
+CREATE INDEX idx_produto_removido_versao ON produto_removido (versao);
+CREATE INDEX idx_email_pendente_situacao_proxima ON email_pendente (situacao, proxima_tentativa);
+CREATE INDEX idx_refresh_token_cliente ON refresh_token (cliente_id);
+CREATE INDEX idx_refresh_token_expira_em ON refresh_token (expira_em);
+CREATE INDEX idx_refresh_token_familia ON refresh_token (familia);
+CREATE INDEX idx_token_revogado_expira_em ON token_revogado (expira_em);
+CREATE INDEX idx_token_revogado_revogado_em ON token_revogado (revogado_em);
@@ -0,0 +1,96 @@
+package com.andersonmarques.cursomc.repositories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.andersonmarques.cursomc.domain.Categoria;
+import com.andersonmarques.cursomc.dto.CategoriaDTO;
+import com.andersonmarques.cursomc.dto.PaginaDTO;
+
+//Percorre as páginas por cursor em categorias com nomes repetidos e nulos, cada teste desfaz as inserções no fim
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class KeysetQueryTest {
+
+	private static final List<String> ORDENAVEIS = Arrays.asList("id", "nome");
+
+	@Autowired
+	private KeysetQuery keysetQuery;
+	@Autowired
+	private CategoriaRepository categoriaRepository;
+
+	private final List<Categoria> categorias = new ArrayList<>();
+
+	@Before
+	public void inserir() {
+		for (String nome : new String[] {"Casa", null, "Banho", "Casa", null, "Casa", "Acessórios", "Banho"}) {
+			categorias.add(categoriaRepository.save(new Categoria(null, nome)));
+		}
+	}
+
+	@Test
+	public void percorreTodasAsPaginasComNomesRepetidosENulos() {
+		//Nulos primeiro no ASC e por último no DESC, empate desempatado pelo id
+		Comparator<Categoria> porNome = Comparator.comparing(Categoria::getNome, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+				.thenComparing(Categoria::getId);
+		List<Integer> crescente = categorias.stream().sorted(porNome).map(Categoria::getId).collect(Collectors.toList());
+		List<Integer> decrescente = new ArrayList<>(crescente);
+		Collections.reverse(decrescente);
+
+		for (int size = 1; size <= 3; size++) {
+			assertEquals(crescente, percorrer("nome", "ASC", size));
+			assertEquals(decrescente, percorrer("nome", "DESC", size));
+		}
+	}
+
+	@Test
+	public void percorrePeloId() {
+		List<Integer> crescente = categorias.stream().map(Categoria::getId).sorted().collect(Collectors.toList());
+		List<Integer> decrescente = new ArrayList<>(crescente);
+		Collections.reverse(decrescente);
+		assertEquals(crescente, percorrer("id", "ASC", 3));
+		assertEquals(decrescente, percorrer("id", "DESC", 3));
+	}
+
+	@Test
+	public void ultimaPaginaCheiaNaoTemProxima() {
+		PaginaDTO<CategoriaDTO> pagina = buscar("id", "ASC", null, categorias.size());
+		assertEquals(categorias.size(), pagina.getContent().size());
+		assertFalse(pagina.isHasNext());
+	}
+
+	private List<Integer> percorrer(String orderBy, String direction, int size) {
+		List<Integer> ids = new ArrayList<>();
+		String cursor = null;
+		PaginaDTO<CategoriaDTO> pagina;
+		do {
+			pagina = buscar(orderBy, direction, cursor, size);
+			pagina.getContent().forEach(dto -> ids.add(dto.getId()));
+			cursor = pagina.getNext();
+		} while (pagina.isHasNext() && ids.size() <= categorias.size());
+		return ids;
+	}
+
+	//Só as categorias inseridas pelo teste, as da carga inicial ficam de fora
+	private PaginaDTO<CategoriaDTO> buscar(String orderBy, String direction, String cursor, int size) {
+		List<Integer> ids = categorias.stream().map(Categoria::getId).collect(Collectors.toList());
+		return keysetQuery.buscar(Categoria.class, CategoriaDTO.class, KeysetQuery.dto(CategoriaDTO.class, "id", "nome"),
+				(cb, root) -> root.get("id").in(ids), ORDENAVEIS, orderBy, direction, cursor, size);
+	}
+}
@@ -0,0 +1,157 @@
+package com.andersonmarques.cursomc.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.andersonmarques.cursomc.domain.enums.Perfil;
+import com.andersonmarques.cursomc.services.RefreshTokenService;
+import com.andersonmarques.cursomc.services.RevogacaoService;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+
+public class JWTUtilTest {
+
+	private static final String SECRET = "SegredoDosTestesComTamanhoSuficienteParaOHmac";
+
+	private RevogacaoService revogacaoService;
+	private RefreshTokenService refreshTokenService;
+
+	@Before
+	public void iniciar() {
+		revogacaoService = mock(RevogacaoService.class);
+		refreshTokenService = mock(RefreshTokenService.class);
+	}
+
+	//O usuário sai só das claims: id, email e perfis, sem a senha
+	@Test
+	public void usuarioMontadoComAsClaimsDoToken() {
+		JWTUtil jwtUtil = criarJwtUtil(60000, 100);
+		String token = jwtUtil.generateToken(usuario(1234567890123L, Perfil.CLIENTE, Perfil.ADMIN));
+
+		UserSS user = jwtUtil.getUser(jwtUtil.getClaimsValidas(token));
+		assertEquals(Long.valueOf(1234567890123L), user.getId());
+		assertEquals("maria@email.com", user.getUsername());
+		assertNull(user.getPassword());
+		assertTrue(user.hasRole(Perfil.CLIENTE));
+		assertTrue(user.hasRole(Perfil.ADMIN));
+		assertEquals("maria@email.com", jwtUtil.getUsername(token));
+	}
+
+	//Token de uma versão anterior, sem as claims de id e perfis
+	@Test
+	public void tokenSemAsClaimsNaoGeraUsuario() {
+		JWTUtil jwtUtil = criarJwtUtil(60000, 100);
+		String token = Jwts.builder().setSubject("maria@email.com")
+				.setExpiration(new Date(System.currentTimeMillis() + 60000))
+				.signWith(SignatureAlgorithm.HS512, SECRET.getBytes()).compact();
+		Claims claims = jwtUtil.getClaimsValidas(token);
+		assertNotNull(claims);
+		assertNull(jwtUtil.getUser(claims));
+	}
+
+	@Test
+	public void tokenAlteradoOuDeOutroSegredoEInvalido() {
+		JWTUtil jwtUtil = criarJwtUtil(60000, 100);
+		String token = jwtUtil.generateToken(usuario(1L, Perfil.CLIENTE));
+		String[] partes = token.split("\\.");
+		String outroCorpo = Jwts.builder().setSubject("admin@email.com").compact().split("\\.")[1];
+		assertNull(jwtUtil.getClaimsValidas(partes[0] + "." + outroCorpo + "." + partes[2]));
+		assertNull(jwtUtil.getClaimsValidas(token.substring(0, token.length() - 2)));
+		assertNull(jwtUtil.getClaimsValidas("lixo"));
+
+		String outroSegredo = Jwts.builder().setSubject("maria@email.com")
+				.setExpiration(new Date(System.currentTimeMillis() + 60000))
+				.signWith(SignatureAlgorithm.HS512, "OutroSegredoQualquerComTamanhoSuficiente".getBytes()).compact();
+		assertNull(jwtUtil.getClaimsValidas(outroSegredo));
+	}
+
+	@Test
+	public void tokenExpiradoEInvalidoMesmoJaVerificado() throws InterruptedException {
+		//A expiração do token é guardada em segundos, o tempo de expiração precisa passar de um segundo
+		JWTUtil jwtUtil = criarJwtUtil(2000, 100);
+		String token = jwtUtil.generateToken(usuario(1L, Perfil.CLIENTE));
+		assertTrue(jwtUtil.tokenValido(token));
+		Thread.sleep(2100);
+		assertNull(jwtUtil.getClaimsValidas(token));
+		assertTrue(verificados(jwtUtil).isEmpty());
+	}
+
+	//O cache pula a assinatura e o parse, mas a revogação é conferida a cada uso
+	@Test
+	public void tokenEmCacheRevogadoDepoisDaPrimeiraVerificacao() {
+		JWTUtil jwtUtil = criarJwtUtil(60000, 100);
+		String token = jwtUtil.generateToken(usuario(7L, Perfil.CLIENTE));
+		Claims primeira = jwtUtil.getClaimsValidas(token);
+		assertTrue(primeira == jwtUtil.getClaimsValidas(token));
+		assertEquals(1, verificados(jwtUtil).size());
+
+		when(revogacaoService.revogado(eq(primeira.getId()), eq(7L), any(Date.class))).thenReturn(true);
+		assertNull(jwtUtil.getClaimsValidas(token));
+		assertTrue(verificados(jwtUtil).isEmpty());
+	}
+
+	@Test
+	public void logoutRevogaOTokenETiraDoCache() {
+		JWTUtil jwtUtil = criarJwtUtil(60000, 100);
+		String token = jwtUtil.generateToken(usuario(7L, Perfil.CLIENTE));
+		Claims claims = jwtUtil.getClaimsValidas(token);
+
+		jwtUtil.revogarToken(token);
+		verify(revogacaoService).revogarToken(claims.getId(), claims.getExpiration());
+		assertTrue(verificados(jwtUtil).isEmpty());
+
+		jwtUtil.revogarTokens(7L);
+		verify(revogacaoService).revogarCliente(eq(7L), any(Date.class));
+		verify(refreshTokenService).revogarCliente(7L);
+	}
+
+	@Test
+	public void cacheNaoPassaDoTamanhoMaximo() {
+		JWTUtil jwtUtil = criarJwtUtil(60000, 8);
+		for (long id = 1; id <= 50; id++) {
+			assertTrue(jwtUtil.tokenValido(jwtUtil.generateToken(usuario(id, Perfil.CLIENTE))));
+			assertTrue(verificados(jwtUtil).size() <= 8);
+		}
+	}
+
+	private JWTUtil criarJwtUtil(long expiracao, int tamanhoCache) {
+		when(revogacaoService.revogado(anyString(), anyLong(), any(Date.class))).thenReturn(false);
+		JWTUtil jwtUtil = new JWTUtil();
+		ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+		ReflectionTestUtils.setField(jwtUtil, "expiration", expiracao);
+		ReflectionTestUtils.setField(jwtUtil, "tamanhoCache", tamanhoCache);
+		ReflectionTestUtils.setField(jwtUtil, "revogacaoService", revogacaoService);
+		ReflectionTestUtils.setField(jwtUtil, "refreshTokenService", refreshTokenService);
+		jwtUtil.iniciar();
+		return jwtUtil;
+	}
+
+	private static UserSS usuario(Long id, Perfil... perfis) {
+		return new UserSS(id, "maria@email.com", "senha", new HashSet<>(Arrays.asList(perfis)));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Claims> verificados(JWTUtil jwtUtil) {
+		return (Map<String, Claims>) ReflectionTestUtils.getField(jwtUtil, "verificados");
+	}
+}
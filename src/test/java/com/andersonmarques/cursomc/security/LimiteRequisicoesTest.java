@@ -0,0 +1,100 @@
+package com.andersonmarques.cursomc.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.andersonmarques.cursomc.security.LimiteRequisicoes.Tabela;
+
+public class LimiteRequisicoesTest {
+
+	@Test
+	public void recusaDepoisDeGastarAsFichas() {
+		LimiteRequisicoes limite = criarLimite(6400);
+		for (int i = 0; i < 5; i++) {
+			assertEquals(0, limite.consumir(Tabela.IP, "login:10.0.0.1", 5));
+		}
+		//Uma ficha a cada 12s
+		long espera = limite.consumir(Tabela.IP, "login:10.0.0.1", 5);
+		assertTrue(espera > 11000 && espera <= 12000);
+
+		//Outras chaves não são afetadas
+		assertEquals(0, limite.consumir(Tabela.IP, "login:10.0.0.2", 5));
+		assertEquals(0, limite.consumir(Tabela.IP, "forgot:10.0.0.1", 5));
+	}
+
+	//As fichas voltam aos poucos, sem passar de "porMinuto"
+	@Test
+	public void fichasVoltamComOTempo() throws InterruptedException {
+		LimiteRequisicoes limite = criarLimite(6400);
+		//Uma ficha a cada 100ms
+		for (int i = 0; i < 600; i++) {
+			assertEquals(0, limite.consumir(Tabela.IP, "chave", 600));
+		}
+		assertTrue(limite.consumir(Tabela.IP, "chave", 600) > 0);
+
+		Thread.sleep(250);
+		int liberadas = 0;
+		while (limite.consumir(Tabela.IP, "chave", 600) == 0) {
+			liberadas++;
+		}
+		assertTrue("liberadas: " + liberadas, liberadas >= 2 && liberadas <= 4);
+	}
+
+	@Test
+	public void tabelasSeparadasParaIpEEmail() {
+		LimiteRequisicoes limite = criarLimite(6400);
+		assertEquals(0, limite.consumir(Tabela.IP, "login:x", 1));
+		assertTrue(limite.consumir(Tabela.IP, "login:x", 1) > 0);
+		assertEquals(0, limite.consumir(Tabela.EMAIL, "login:x", 1));
+	}
+
+	//Com a faixa cheia a chave usada há mais tempo sai e recomeça com todas as fichas, a chave nova sempre entra
+	@Test
+	public void chaveMaisAntigaSaiQuandoAFaixaEnche() {
+		//Uma chave por faixa
+		LimiteRequisicoes limite = criarLimite(64);
+		String antiga = "login:10.0.0.1";
+		String nova = mesmaFaixa(antiga);
+		assertEquals(0, limite.consumir(Tabela.IP, antiga, 1));
+		assertTrue(limite.consumir(Tabela.IP, antiga, 1) > 0);
+
+		assertEquals(0, limite.consumir(Tabela.IP, nova, 1));
+		assertEquals(0, limite.consumir(Tabela.IP, antiga, 1));
+	}
+
+	//Uma enxurrada de emails diferentes não tira o limite por IP da tabela
+	@Test
+	public void emailsNaoExpulsamOLimitePorIp() {
+		LimiteRequisicoes limite = criarLimite(64);
+		assertEquals(0, limite.consumir(Tabela.IP, "login:10.0.0.1", 1));
+		for (int i = 0; i < 10000; i++) {
+			assertEquals(0, limite.consumir(Tabela.EMAIL, "login:email" + i + "@email.com", 1));
+		}
+		assertTrue(limite.consumir(Tabela.IP, "login:10.0.0.1", 1) > 0);
+	}
+
+	private static LimiteRequisicoes criarLimite(int tamanhoTabela) {
+		LimiteRequisicoes limite = new LimiteRequisicoes();
+		ReflectionTestUtils.setField(limite, "tamanhoTabela", tamanhoTabela);
+		limite.iniciar();
+		return limite;
+	}
+
+	//Outra chave que cai na mesma faixa (mesmo cálculo do LimiteRequisicoes)
+	private static String mesmaFaixa(String chave) {
+		for (int i = 0;; i++) {
+			String outra = "login:10.1.0." + i;
+			if (faixa(outra) == faixa(chave) && !outra.equals(chave)) {
+				return outra;
+			}
+		}
+	}
+
+	private static int faixa(String chave) {
+		int hash = chave.hashCode();
+		return (hash ^ (hash >>> 16)) & 63;
+	}
+}
@@ -0,0 +1,138 @@
+package com.andersonmarques.cursomc.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.andersonmarques.cursomc.dto.SenhaEstatisticasDTO;
+
+public class VerificadorSenhaTest {
+
+	private VerificadorSenha verificador;
+	//Libera as tarefas que ocupam o pool nos testes de sobrecarga
+	private final CountDownLatch liberar = new CountDownLatch(1);
+
+	@After
+	public void encerrar() {
+		liberar.countDown();
+		if (verificador != null) {
+			verificador.encerrar();
+		}
+	}
+
+	@Test
+	public void verificaASenhaNoPool() {
+		verificador = criarVerificador(2, 10, 10000);
+		String hash = verificador.encode("batata");
+		assertTrue(verificador.matches("batata", hash));
+		assertFalse(verificador.matches("cenoura", hash));
+
+		SenhaEstatisticasDTO estatisticas = verificador.estatisticas();
+		assertEquals(2, estatisticas.getVerificacoes());
+		assertEquals(0, estatisticas.getRejeitadas());
+		assertTrue(estatisticas.getTempoMedio() > 0);
+	}
+
+	//Com as threads e a fila ocupadas o login é recusado na hora, sem esperar
+	@Test
+	public void poolEFilaCheiosRecusamNaHora() throws Exception {
+		verificador = criarVerificador(1, 1, 10000);
+		String hash = verificador.encode("batata");
+		ocupar(2);
+
+		long inicio = System.currentTimeMillis();
+		tentarLogin(hash);
+		assertTrue(System.currentTimeMillis() - inicio < 1000);
+		assertEquals(1, verificador.estatisticas().getRejeitadas());
+	}
+
+	//Pelo tempo médio de um hash a verificação não terminaria dentro da espera: recusada antes de entrar na fila
+	@Test
+	public void recusaQuemNaoCabeNaEspera() throws Exception {
+		verificador = criarVerificador(1, 10, 1000);
+		String hash = verificador.encode("batata");
+		((LongAdder) ReflectionTestUtils.getField(verificador, "verificacoes")).add(1);
+		((LongAdder) ReflectionTestUtils.getField(verificador, "tempoTotal")).add(TimeUnit.MILLISECONDS.toMicros(400));
+		//Um hash rodando e dois na fila: (3 + 1) * 400ms passa de 1s
+		ocupar(3);
+
+		tentarLogin(hash);
+		assertEquals(2, executor().getQueue().size());
+		assertEquals(1, verificador.estatisticas().getRejeitadas());
+
+		//Com a fila livre o mesmo hash médio cabe na espera
+		liberar.countDown();
+		aguardarPoolLivre();
+		assertTrue(verificador.matches("batata", hash));
+	}
+
+	@Test
+	public void esperaEsgotadaRecusaOLogin() throws Exception {
+		verificador = criarVerificador(1, 10, 200);
+		String hash = verificador.encode("batata");
+		ocupar(1);
+
+		tentarLogin(hash);
+		//A verificação cancelada sai da fila
+		assertEquals(0, executor().getQueue().size());
+		assertEquals(1, verificador.estatisticas().getRejeitadas());
+	}
+
+	private void tentarLogin(String hash) {
+		try {
+			verificador.matches("batata", hash);
+			fail("Deveria recusar o login");
+		} catch (LoginSobrecarregadoException e) {
+			//Esperado
+		}
+	}
+
+	//Coloca tarefas bloqueadas no pool: a primeira ocupa a thread, as outras ficam na fila
+	private void ocupar(int tarefas) throws InterruptedException {
+		CountDownLatch rodando = new CountDownLatch(1);
+		for (int i = 0; i < tarefas; i++) {
+			executor().execute(() -> {
+				rodando.countDown();
+				try {
+					liberar.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+		assertTrue(rodando.await(5, TimeUnit.SECONDS));
+	}
+
+	private void aguardarPoolLivre() throws InterruptedException {
+		long limite = System.currentTimeMillis() + 5000;
+		while (executor().getActiveCount() + executor().getQueue().size() > 0) {
+			if (System.currentTimeMillis() > limite) {
+				fail("O pool não terminou as tarefas");
+			}
+			Thread.sleep(10);
+		}
+	}
+
+	private ThreadPoolExecutor executor() {
+		return (ThreadPoolExecutor) ReflectionTestUtils.getField(verificador, "executor");
+	}
+
+	private static VerificadorSenha criarVerificador(int threads, int fila, long espera) {
+		VerificadorSenha verificador = new VerificadorSenha();
+		ReflectionTestUtils.setField(verificador, "threads", threads);
+		ReflectionTestUtils.setField(verificador, "fila", fila);
+		ReflectionTestUtils.setField(verificador, "espera", espera);
+		verificador.iniciar();
+		return verificador;
+	}
+}
@@ -0,0 +1,176 @@
+package com.andersonmarques.cursomc.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.andersonmarques.cursomc.repositories.CategoriaRepository;
+import com.andersonmarques.cursomc.repositories.ClienteRepository;
+import com.andersonmarques.cursomc.repositories.PedidoRepository;
+
+//Testa o ContagemService com os repositórios simulados, a contagem de pedidos roda na thread do próprio service
+public class ContagemServiceTest {
+
+	private CategoriaRepository categoriaRepository;
+	private ClienteRepository clienteRepository;
+	private PedidoRepository pedidoRepository;
+	private ContagemService service;
+
+	@Before
+	public void iniciar() {
+		categoriaRepository = mock(CategoriaRepository.class);
+		clienteRepository = mock(ClienteRepository.class);
+		pedidoRepository = mock(PedidoRepository.class);
+	}
+
+	@After
+	public void encerrar() {
+		if (service != null) {
+			service.encerrar();
+		}
+	}
+
+	@Test
+	public void primeiraListagemSemTotalEDepoisComOValorContado() throws Exception {
+		service = criarService(10, 60000);
+		when(pedidoRepository.countByClienteId(1L)).thenReturn(7L);
+
+		assertNull(service.getTotalPedidos(1L));
+		assertEquals(Long.valueOf(7), aguardarTotal(1L));
+		verify(pedidoRepository, times(1)).countByClienteId(1L);
+	}
+
+	//Várias listagens do mesmo cliente enquanto a contagem não terminou pedem um count só
+	@Test
+	public void contagemDoMesmoClienteNaoEntraDuasVezesNaFila() throws Exception {
+		service = criarService(10, 60000);
+		CountDownLatch contando = new CountDownLatch(1);
+		CountDownLatch liberar = new CountDownLatch(1);
+		when(pedidoRepository.countByClienteId(1L)).thenAnswer(invocacao -> {
+			contando.countDown();
+			liberar.await();
+			return 3L;
+		});
+
+		assertNull(service.getTotalPedidos(1L));
+		assertTrue(contando.await(5, TimeUnit.SECONDS));
+		for (int i = 0; i < 5; i++) {
+			assertNull(service.getTotalPedidos(1L));
+		}
+		liberar.countDown();
+
+		assertEquals(Long.valueOf(3), aguardarTotal(1L));
+		verify(pedidoRepository, times(1)).countByClienteId(1L);
+	}
+
+	@Test
+	public void pedidoNovoSomaSoNoTotalJaGuardado() throws Exception {
+		service = criarService(10, 60000);
+		when(pedidoRepository.countByClienteId(1L)).thenReturn(2L);
+		service.getTotalPedidos(1L);
+		aguardarTotal(1L);
+
+		service.registrarPedido(1L);
+		service.registrarPedido(1L);
+		assertEquals(Long.valueOf(4), service.getTotalPedidos(1L));
+
+		//Sem total guardado não há o que somar, o valor vem da primeira contagem
+		service.registrarPedido(2L);
+		when(pedidoRepository.countByClienteId(2L)).thenReturn(5L);
+		assertNull(service.getTotalPedidos(2L));
+		assertEquals(Long.valueOf(5), aguardarTotal(2L));
+	}
+
+	//Com o intervalo vencido a listagem ainda devolve o valor antigo e pede a contagem de novo
+	@Test
+	public void totalVencidoEContadoDeNovo() throws Exception {
+		service = criarService(10, 0);
+		when(pedidoRepository.countByClienteId(1L)).thenReturn(1L, 9L);
+		service.getTotalPedidos(1L);
+		assertEquals(Long.valueOf(1), aguardarTotal(1L));
+
+		long limite = System.currentTimeMillis() + 5000;
+		while (!Long.valueOf(9).equals(service.getTotalPedidos(1L))) {
+			if (System.currentTimeMillis() > limite) {
+				fail("O total não foi contado de novo");
+			}
+			Thread.sleep(10);
+		}
+	}
+
+	//O cliente usado há mais tempo sai quando passa do tamanho máximo
+	@Test
+	public void clienteMenosUsadoSaiDoCache() throws Exception {
+		service = criarService(2, 60000);
+		when(pedidoRepository.countByClienteId(1L)).thenReturn(1L);
+		when(pedidoRepository.countByClienteId(2L)).thenReturn(2L);
+		when(pedidoRepository.countByClienteId(3L)).thenReturn(3L);
+		service.getTotalPedidos(1L);
+		aguardarTotal(1L);
+		service.getTotalPedidos(2L);
+		aguardarTotal(2L);
+
+		//O acesso ao 1 deixa o 2 como o usado há mais tempo
+		service.getTotalPedidos(1L);
+		service.getTotalPedidos(3L);
+		aguardarTotal(3L);
+
+		assertEquals(Long.valueOf(1), service.getTotalPedidos(1L));
+		assertNull(service.getTotalPedidos(2L));
+	}
+
+	@Test
+	public void falhaNaContagemGeralMantemOsValoresAnteriores() {
+		service = criarService(10, 60000);
+		assertNull(service.getTotalCategorias());
+		when(categoriaRepository.count()).thenReturn(4L);
+		when(clienteRepository.count()).thenReturn(2L);
+		service.atualizar();
+		assertEquals(Long.valueOf(4), service.getTotalCategorias());
+		assertEquals(Long.valueOf(2), service.getTotalClientes());
+
+		when(categoriaRepository.count()).thenThrow(new IllegalStateException("banco fora do ar"));
+		service.atualizar();
+		assertEquals(Long.valueOf(4), service.getTotalCategorias());
+		assertEquals(Long.valueOf(2), service.getTotalClientes());
+	}
+
+	private ContagemService criarService(int tamanho, long intervalo) {
+		ContagemService service = new ContagemService();
+		ReflectionTestUtils.setField(service, "categoriaRepository", categoriaRepository);
+		ReflectionTestUtils.setField(service, "clienteRepository", clienteRepository);
+		ReflectionTestUtils.setField(service, "pedidoRepository", pedidoRepository);
+		ReflectionTestUtils.setField(service, "tamanhoPedidos", tamanho);
+		ReflectionTestUtils.setField(service, "intervalo", intervalo);
+		service.iniciar();
+		return service;
+	}
+
+	//Espera a contagem em segundo plano guardar o total do cliente
+	private Long aguardarTotal(Long clienteId) throws InterruptedException {
+		long limite = System.currentTimeMillis() + 5000;
+		while (true) {
+			Long total = service.getTotalPedidos(clienteId);
+			if (total != null) {
+				return total;
+			}
+			if (System.currentTimeMillis() > limite) {
+				fail("A contagem do cliente " + clienteId + " não terminou");
+			}
+			Thread.sleep(10);
+		}
+	}
+}
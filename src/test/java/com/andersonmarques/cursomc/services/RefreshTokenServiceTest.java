@@ -0,0 +1,134 @@
+package com.andersonmarques.cursomc.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.andersonmarques.cursomc.domain.Cliente;
+import com.andersonmarques.cursomc.domain.RefreshToken;
+import com.andersonmarques.cursomc.domain.enums.Perfil;
+import com.andersonmarques.cursomc.repositories.ClienteRepository;
+import com.andersonmarques.cursomc.repositories.RefreshTokenRepository;
+import com.andersonmarques.cursomc.services.RefreshTokenService.Renovacao;
+import com.andersonmarques.cursomc.services.exceptions.RefreshTokenException;
+
+//Sem @Transactional no teste: a renovação depende do UPDATE ir ao banco e da leitura seguinte não vir do contexto
+//de persistência, como acontece em produção. Os refresh tokens do cliente são removidos no fim de cada teste
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class RefreshTokenServiceTest {
+
+	@Autowired
+	private RefreshTokenService refreshTokenService;
+	@Autowired
+	private RefreshTokenRepository refreshTokenRepository;
+	@Autowired
+	private ClienteRepository clienteRepository;
+
+	private Cliente cliente;
+
+	@Before
+	public void iniciar() {
+		cliente = clienteRepository.findByEmail("mariasilva@email.com");
+	}
+
+	@After
+	public void limpar() {
+		refreshTokenRepository.removerCliente(cliente.getId());
+	}
+
+	@Test
+	public void renovacaoTrocaACredencialEDevolveOCliente() {
+		String primeiro = refreshTokenService.criar(cliente.getId());
+		Renovacao renovacao = refreshTokenService.renovar(primeiro);
+
+		assertEquals(cliente.getId(), renovacao.getUser().getId());
+		assertEquals("mariasilva@email.com", renovacao.getUser().getUsername());
+		assertTrue(renovacao.getUser().hasRole(Perfil.CLIENTE));
+		assertNotEquals(primeiro, renovacao.getRefreshToken());
+
+		//A credencial nova continua a mesma família
+		Renovacao seguinte = refreshTokenService.renovar(renovacao.getRefreshToken());
+		assertEquals(cliente.getId(), seguinte.getUser().getId());
+	}
+
+	//Credencial já trocada usada de novo: alguém tem uma cópia, a família inteira deixa de valer
+	@Test
+	public void reusoInvalidaAFamilia() {
+		String primeiro = refreshTokenService.criar(cliente.getId());
+		String outroDispositivo = refreshTokenService.criar(cliente.getId());
+		String segundo = refreshTokenService.renovar(primeiro).getRefreshToken();
+
+		recusar(primeiro);
+		recusar(segundo);
+
+		//Outra família do mesmo cliente (outro login) não é afetada
+		assertEquals(cliente.getId(), refreshTokenService.renovar(outroDispositivo).getUser().getId());
+	}
+
+	//Credencial expirada é recusada, mas não conta como reuso
+	@Test
+	public void credencialExpiradaERecusadaSemInvalidarAFamilia() throws NoSuchAlgorithmException {
+		String valida = refreshTokenService.criar(cliente.getId());
+		RefreshToken atual = refreshTokenRepository.findAll().stream()
+				.filter(token -> cliente.getId().equals(token.getClienteId())).findFirst().get();
+		String expirada = "credencial-expirada";
+		Date criadoEm = new Date(System.currentTimeMillis() - 60000);
+		refreshTokenRepository.save(new RefreshToken(hash(expirada), atual.getFamilia(), cliente.getId(), criadoEm, criadoEm));
+
+		recusar(expirada);
+		assertEquals(cliente.getId(), refreshTokenService.renovar(valida).getUser().getId());
+	}
+
+	@Test
+	public void credencialAusenteOuDesconhecidaERecusada() {
+		recusar(null);
+		recusar("");
+		recusar("nao-existe");
+	}
+
+	@Test
+	public void logoutERevogacaoDoCliente() {
+		String primeiro = refreshTokenService.criar(cliente.getId());
+		String segundo = refreshTokenService.renovar(primeiro).getRefreshToken();
+		refreshTokenService.revogar(segundo);
+		recusar(segundo);
+
+		String outro = refreshTokenService.criar(cliente.getId());
+		refreshTokenService.revogarCliente(cliente.getId());
+		recusar(outro);
+	}
+
+	private void recusar(String token) {
+		try {
+			refreshTokenService.renovar(token);
+			fail("Deveria recusar o refresh token");
+		} catch (RefreshTokenException e) {
+			//Esperado
+		}
+	}
+
+	//Mesmo hash do RefreshTokenService: SHA-256 em hexadecimal
+	private static String hash(String token) throws NoSuchAlgorithmException {
+		byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+}
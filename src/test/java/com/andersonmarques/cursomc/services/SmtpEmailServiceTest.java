@@ -0,0 +1,250 @@
+package com.andersonmarques.cursomc.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.andersonmarques.cursomc.domain.Cliente;
+import com.andersonmarques.cursomc.domain.ItemPedido;
+import com.andersonmarques.cursomc.domain.PagamentoComCartao;
+import com.andersonmarques.cursomc.domain.Pedido;
+import com.andersonmarques.cursomc.domain.Produto;
+import com.andersonmarques.cursomc.domain.enums.EstadoPagamento;
+import com.andersonmarques.cursomc.domain.enums.TipoCliente;
+import com.andersonmarques.cursomc.services.template.PedidoTemplate;
+
+//Testa o SmtpEmailService contra um servidor SMTP mínimo rodando no próprio teste
+public class SmtpEmailServiceTest {
+
+	private ServidorSmtp servidor;
+	private SmtpEmailService service;
+
+	@Before
+	public void iniciar() throws IOException {
+		servidor = new ServidorSmtp();
+	}
+
+	@After
+	public void encerrar() throws IOException {
+		if (service != null) {
+			service.encerrar();
+		}
+		servidor.encerrar();
+	}
+
+	@Test
+	public void enviaVariosEmailsNaMesmaConexao() {
+		service = criarService(1, 10000);
+		for (int i = 0; i < 5; i++) {
+			service.sandEmail(email("Email " + i));
+		}
+		assertEquals(5, servidor.assuntos.size());
+		assertEquals(1, servidor.conexoes.get());
+	}
+
+	//O email que esperava na fila quando o tempo esgotou não pode sair depois,
+	//senão a caixa de saída tenta de novo e o cliente recebe duas vezes
+	@Test
+	public void emailCanceladoPorTempoEsgotadoNaoEEnviado() throws Exception {
+		service = criarService(1, 500);
+		AtomicReference<Throwable> erroLento = new AtomicReference<>();
+		Thread lento = new Thread(() -> {
+			try {
+				service.sandEmail(email("lento"));
+			} catch (Throwable e) {
+				erroLento.set(e);
+			}
+		});
+		lento.start();
+		assertTrue(servidor.recebendoLento.await(5, TimeUnit.SECONDS));
+
+		try {
+			service.sandEmail(email("na fila"));
+			fail("Deveria esgotar o tempo");
+		} catch (MailSendException e) {
+			//Esperado, o email ainda estava na fila atrás do lento
+		}
+
+		servidor.liberarLento.countDown();
+		lento.join(5000);
+		//O lento já estava sendo enviado, quem chamou espera o resultado em vez de desistir
+		assertEquals(null, erroLento.get());
+
+		service.sandEmail(email("depois"));
+		assertEquals("[lento, depois]", servidor.assuntos.toString());
+	}
+
+	//Com a janela ligada quem chama não fica esperando ela fechar, e as confirmações do mesmo cliente
+	//saem num email só, com as versões texto e HTML
+	@Test
+	public void digestNaoBloqueiaEJuntaConfirmacoesComHtml() throws Exception {
+		service = criarService(1, 10000);
+		ReflectionTestUtils.setField(service, "janelaDigest", 300L);
+
+		CompletableFuture<Void> primeiro = service.sandOrderConfirmationEmailAsync(pedido(1L));
+		CompletableFuture<Void> segundo = service.sandOrderConfirmationEmailAsync(pedido(2L));
+		assertFalse(primeiro.isDone());
+
+		primeiro.get(5, TimeUnit.SECONDS);
+		segundo.get(5, TimeUnit.SECONDS);
+		assertEquals("[2 pedidos confirmados!]", servidor.assuntos.toString());
+		String mensagem = servidor.mensagens.get(0);
+		assertTrue(mensagem.contains("text/plain"));
+		assertTrue(mensagem.contains("text/html"));
+		assertTrue(mensagem.contains("<hr>"));
+	}
+
+	private SmtpEmailService criarService(int conexoes, long timeout) {
+		JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+		mailSender.setHost("127.0.0.1");
+		mailSender.setPort(servidor.getPorta());
+
+		SmtpEmailService service = new SmtpEmailService();
+		ReflectionTestUtils.setField(service, "mailSender", mailSender);
+		ReflectionTestUtils.setField(service, "conexoes", conexoes);
+		ReflectionTestUtils.setField(service, "lote", 20);
+		ReflectionTestUtils.setField(service, "ociosidade", 30000L);
+		ReflectionTestUtils.setField(service, "timeout", timeout);
+		ReflectionTestUtils.setField(service, "janelaDigest", 0L);
+		ReflectionTestUtils.setField(service, "emailOrigem", "loja@email.com");
+		PedidoTemplate pedidoTemplate = new PedidoTemplate();
+		try {
+			pedidoTemplate.compilar();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		ReflectionTestUtils.setField(service, "pedidoTemplate", pedidoTemplate);
+		service.iniciar();
+		return service;
+	}
+
+	private static Pedido pedido(Long id) {
+		Cliente cliente = new Cliente(1L, "Maria", "cliente@email.com", "00000000000", TipoCliente.PESSOAFISICA, "senha");
+		Pedido pedido = new Pedido(id, new Date(), cliente, null);
+		pedido.setPagamento(new PagamentoComCartao(id, EstadoPagamento.QUITADO, pedido, 1));
+		pedido.getItens().add(new ItemPedido(pedido, new Produto(1, "Mouse", 80.0), 0.0, 1, 80.0));
+		return pedido;
+	}
+
+	private static SimpleMailMessage email(String assunto) {
+		SimpleMailMessage email = new SimpleMailMessage();
+		email.setFrom("loja@email.com");
+		email.setTo("cliente@email.com");
+		email.setSubject(assunto);
+		email.setText("Texto");
+		return email;
+	}
+
+	//Responde o básico do protocolo e guarda o assunto de cada email recebido.
+	//O email com assunto "lento" só é confirmado depois de liberarLento
+	private static class ServidorSmtp {
+		final List<String> assuntos = new CopyOnWriteArrayList<>();
+		//Cabeçalhos e corpo de cada email, na mesma ordem dos assuntos
+		final List<String> mensagens = new CopyOnWriteArrayList<>();
+		final AtomicInteger conexoes = new AtomicInteger();
+		final CountDownLatch recebendoLento = new CountDownLatch(1);
+		final CountDownLatch liberarLento = new CountDownLatch(1);
+		private final ServerSocket socket;
+
+		ServidorSmtp() throws IOException {
+			socket = new ServerSocket(0);
+			Thread thread = new Thread(() -> {
+				while (!socket.isClosed()) {
+					try {
+						Socket cliente = socket.accept();
+						conexoes.incrementAndGet();
+						Thread atendimento = new Thread(() -> atender(cliente));
+						atendimento.setDaemon(true);
+						atendimento.start();
+					} catch (IOException e) {
+						//Servidor encerrado
+					}
+				}
+			});
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		int getPorta() {
+			return socket.getLocalPort();
+		}
+
+		void encerrar() throws IOException {
+			liberarLento.countDown();
+			socket.close();
+		}
+
+		private void atender(Socket cliente) {
+			try (Socket conexao = cliente;
+					BufferedReader entrada = new BufferedReader(new InputStreamReader(conexao.getInputStream(), StandardCharsets.UTF_8));
+					PrintWriter saida = new PrintWriter(conexao.getOutputStream(), true)) {
+				responder(saida, "220 localhost");
+				String linha;
+				while ((linha = entrada.readLine()) != null) {
+					String comando = linha.toUpperCase();
+					if (comando.startsWith("DATA")) {
+						responder(saida, "354 fim com <CRLF>.<CRLF>");
+						StringBuilder mensagem = new StringBuilder();
+						String assunto = lerMensagem(entrada, mensagem);
+						if ("lento".equals(assunto)) {
+							recebendoLento.countDown();
+							liberarLento.await();
+						}
+						mensagens.add(mensagem.toString());
+						assuntos.add(assunto);
+						responder(saida, "250 ok");
+					} else if (comando.startsWith("QUIT")) {
+						responder(saida, "221 tchau");
+						return;
+					} else {
+						responder(saida, "250 ok");
+					}
+				}
+			} catch (IOException | InterruptedException e) {
+				//Conexão encerrada pelo cliente
+			}
+		}
+
+		private String lerMensagem(BufferedReader entrada, StringBuilder mensagem) throws IOException {
+			String assunto = null;
+			String linha;
+			while ((linha = entrada.readLine()) != null && !".".equals(linha)) {
+				mensagem.append(linha).append('\n');
+				if (assunto == null && linha.startsWith("Subject: ")) {
+					assunto = linha.substring("Subject: ".length());
+				}
+			}
+			return assunto;
+		}
+
+		private void responder(PrintWriter saida, String resposta) {
+			saida.print(resposta + "\r\n");
+			saida.flush();
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package com.andersonmarques.cursomc.services.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import com.andersonmarques.cursomc.dto.PaginaDTO;
+import com.andersonmarques.cursomc.dto.ProdutoDTO;
+import com.andersonmarques.cursomc.dto.ProdutoPageDTO;
+import com.andersonmarques.cursomc.utils.Cursor;
+
+public class CatalogoSnapshotTest {
+
+	private static final List<Integer> TODAS = Arrays.asList(1, 2, 3, 4);
+
+	private final CatalogoSnapshot catalogo = catalogo();
+
+	@Test
+	public void buscaPorNomeSemDiferenciarAcentosEMaiusculas() {
+		assertEquals(Arrays.asList(3, 7), ids(buscar("MOUSE", TODAS, null, null, "nome", Sort.Direction.ASC, 0, 10)));
+		assertEquals(Arrays.asList(5), ids(buscar("agua", TODAS, null, null, "nome", Sort.Direction.ASC, 0, 10)));
+		assertEquals(Arrays.asList(4), ids(buscar("Escritorio", TODAS, null, null, "nome", Sort.Direction.ASC, 0, 10)));
+	}
+
+	//Produto em qualquer uma das categorias pedidas, sem repetir quem está em mais de uma
+	@Test
+	public void filtraPorQualquerUmaDasCategorias() {
+		ProdutoPageDTO pagina = buscar("", Arrays.asList(2, 3), null, null, "id", Sort.Direction.ASC, 0, 10);
+		assertEquals(Arrays.asList(2, 4, 6), ids(pagina));
+		assertEquals(3, pagina.getTotalElements());
+	}
+
+	//Os dois limites entram na faixa, empate de preço desempata pelo id
+	@Test
+	public void filtraPelaFaixaDePreco() {
+		assertEquals(Arrays.asList(3, 7, 6, 4), ids(buscar("", TODAS, 80.0, 300.0, "preco", Sort.Direction.ASC, 0, 10)));
+		assertEquals(Arrays.asList(5, 3, 7), ids(buscar("", TODAS, null, 80.0, "preco", Sort.Direction.ASC, 0, 10)));
+		assertEquals(Arrays.asList(1), ids(buscar("", TODAS, 801.0, null, "preco", Sort.Direction.ASC, 0, 10)));
+	}
+
+	//Ordem alfabética do português: "Água" fica entre "Abajur" e "Computador"
+	@Test
+	public void ordenaPorNomeComAcentos() {
+		List<String> nomes = buscar("", TODAS, null, null, "nome", Sort.Direction.ASC, 0, 10).getContent().stream()
+				.map(ProdutoDTO::getNome).collect(Collectors.toList());
+		assertEquals(Arrays.asList("Abajur", "Água mineral", "Computador", "Impressora", "Mesa de escritório", "Mouse", "mouse pad"), nomes);
+	}
+
+	@Test
+	public void paginaNaOrdemDecrescente() {
+		ProdutoPageDTO pagina = buscar("", TODAS, null, null, "preco", Sort.Direction.DESC, 1, 2);
+		assertEquals(Arrays.asList(4, 6), ids(pagina));
+		assertEquals(7, pagina.getTotalElements());
+		assertEquals(Arrays.asList(7, 3), ids(buscar("", TODAS, null, null, "preco", Sort.Direction.DESC, 2, 2)));
+		assertEquals(Arrays.asList(), ids(buscar("", TODAS, null, null, "preco", Sort.Direction.DESC, 4, 2)));
+	}
+
+	//As facetas contam os produtos do nome e da faixa de preço em cada categoria, sem o filtro de categorias
+	@Test
+	public void facetasPorCategoria() {
+		Map<Integer, Integer> todos = new LinkedHashMap<>();
+		todos.put(1, 4);
+		todos.put(2, 1);
+		todos.put(3, 2);
+		todos.put(4, 1);
+		assertEquals(todos, buscar("", Arrays.asList(4), null, null, "id", Sort.Direction.ASC, 0, 10).getFacetas());
+
+		Map<Integer, Integer> mouse = new LinkedHashMap<>();
+		mouse.put(1, 2);
+		assertEquals(mouse, buscar("mouse", Arrays.asList(3), null, null, "id", Sort.Direction.ASC, 0, 10).getFacetas());
+
+		Map<Integer, Integer> caros = new LinkedHashMap<>();
+		caros.put(1, 2);
+		caros.put(2, 1);
+		assertEquals(caros, buscar("", TODAS, 500.0, null, "id", Sort.Direction.ASC, 0, 10).getFacetas());
+	}
+
+	@Test
+	public void findEVersaoPorId() {
+		assertEquals("Impressora", catalogo.find(2).getNome());
+		assertNull(catalogo.find(99));
+		assertEquals(5, catalogo.versao(2));
+		//Linha sem versão (gravada antes da coluna existir)
+		assertEquals(0, catalogo.versao(6));
+		assertEquals(-1, catalogo.versao(99));
+	}
+
+	//Por cursor cada produto aparece uma vez, na mesma ordem da busca paginada (inclusive nos empates de preço)
+	@Test
+	public void cursorPercorreNaOrdemDaBuscaPaginada() {
+		for (String orderBy : new String[] {"nome", "preco", "id"}) {
+			for (Sort.Direction direcao : Sort.Direction.values()) {
+				List<Integer> esperado = ids(buscar("", TODAS, null, null, orderBy, direcao, 0, 10));
+				for (int size = 1; size <= 3; size++) {
+					assertEquals(orderBy + " " + direcao + " " + size, esperado, percorrer("", null, null, orderBy, direcao, size));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void cursorComFiltros() {
+		assertEquals(Arrays.asList(7, 3), percorrer("mouse", null, null, "preco", Sort.Direction.DESC, 1));
+		assertEquals(Arrays.asList(6, 4, 3, 7), percorrer("", 80.0, 300.0, "nome", Sort.Direction.ASC, 3));
+	}
+
+	private List<Integer> percorrer(String nome, Double minPreco, Double maxPreco, String orderBy, Sort.Direction direcao, int size) {
+		List<Integer> ids = new ArrayList<>();
+		Cursor cursor = null;
+		PaginaDTO<ProdutoDTO> pagina;
+		do {
+			pagina = catalogo.searchCursor(nome, TODAS, minPreco, maxPreco, orderBy, direcao, cursor, size);
+			pagina.getContent().forEach(dto -> ids.add(dto.getId()));
+			cursor = Cursor.decode(pagina.getNext(), orderBy, direcao.name());
+		} while (pagina.isHasNext() && ids.size() <= catalogo.size());
+		return ids;
+	}
+
+	private ProdutoPageDTO buscar(String nome, List<Integer> categorias, Double minPreco, Double maxPreco,
+			String orderBy, Sort.Direction direcao, int page, int size) {
+		return catalogo.search(nome, categorias, minPreco, maxPreco, PageRequest.of(page, size, direcao, orderBy));
+	}
+
+	private static List<Integer> ids(ProdutoPageDTO pagina) {
+		return pagina.getContent().stream().map(ProdutoDTO::getId).collect(Collectors.toList());
+	}
+
+	//Mesmo formato das consultas do ProdutoRepository usadas pelo CatalogoService
+	static CatalogoSnapshot catalogo() {
+		List<Object[]> produtos = new ArrayList<>();
+		produtos.add(new Object[] {1, "Computador", 2000.0, "computador", 1L});
+		produtos.add(new Object[] {2, "Impressora", 800.0, "impressora", 5L});
+		produtos.add(new Object[] {3, "Mouse", 80.0, "mouse", 2L});
+		//Nome normalizado ainda não preenchido
+		produtos.add(new Object[] {4, "Mesa de escritório", 300.0, null, 3L});
+		produtos.add(new Object[] {5, "Água mineral", 2.0, "agua mineral", 4L});
+		produtos.add(new Object[] {6, "Abajur", 100.0, "abajur", null});
+		produtos.add(new Object[] {7, "mouse pad", 80.0, "mouse pad", 6L});
+
+		List<Object[]> produtoCategoria = new ArrayList<>();
+		for (int[] linha : new int[][] {{1, 1}, {2, 1}, {2, 2}, {3, 1}, {4, 3}, {5, 4}, {6, 3}, {7, 1}}) {
+			produtoCategoria.add(new Object[] {linha[0], linha[1]});
+		}
+
+		List<Object[]> popularidade = new ArrayList<>();
+		popularidade.add(new Object[] {3, 10L});
+		popularidade.add(new Object[] {7, 1L});
+		return CatalogoSnapshot.of(produtos, produtoCategoria, popularidade);
+	}
+}
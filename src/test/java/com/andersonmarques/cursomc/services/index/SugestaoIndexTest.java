@@ -0,0 +1,91 @@
+package com.andersonmarques.cursomc.services.index;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SugestaoIndexTest {
+
+	private final SugestaoIndex indice = SugestaoIndex.of(
+			new String[] { "mouse", "mouse pad", "monitor", "mesa", "impressora", "mochila" },
+			new String[] { "Mouse", "Mouse pad", "Monitor", "Mesa", "Impressora", "Mochila" },
+			new long[] { 10, 3, 7, 5, 1, 7 });
+
+	@Test
+	public void sugereDoMaisParaOMenosPopular() {
+		assertEquals(Arrays.asList("Mouse", "Mochila", "Monitor", "Mouse pad"), indice.sugerir("mo", 10));
+		assertEquals(Arrays.asList("Mouse", "Mochila", "Monitor", "Mesa", "Mouse pad", "Impressora"), indice.sugerir("", 10));
+	}
+
+	//Empate de peso fica na ordem alfabética
+	@Test
+	public void empateDePesoPelaOrdemAlfabetica() {
+		assertEquals(Arrays.asList("Mochila", "Monitor"), indice.sugerir("mo", 3).subList(1, 3));
+	}
+
+	@Test
+	public void limitaAQuantidade() {
+		assertEquals(Arrays.asList("Mouse", "Mochila"), indice.sugerir("m", 2));
+		assertEquals(Collections.emptyList(), indice.sugerir("m", 0));
+	}
+
+	@Test
+	public void prefixoSemChavesNaoSugereNada() {
+		assertEquals(Collections.emptyList(), indice.sugerir("teclado", 5));
+		assertEquals(Collections.emptyList(), indice.sugerir("zz", 5));
+		assertEquals(Collections.emptyList(), indice.sugerir("a", 5));
+		assertEquals(Arrays.asList("Mouse pad"), indice.sugerir("mouse ", 5));
+	}
+
+	//Produtos com o mesmo nome viram uma sugestão só com os pesos somados, nomes vazios ficam de fora
+	@Test
+	public void juntaNomesIguaisEIgnoraVazios() {
+		SugestaoIndex repetidos = SugestaoIndex.of(
+				new String[] { "cadeira", "caneta", "cadeira", "" },
+				new String[] { "Cadeira", "Caneta", "Cadeira", "" },
+				new long[] { 2, 3, 2, 100 });
+		assertEquals(Arrays.asList("Cadeira", "Caneta"), repetidos.sugerir("ca", 5));
+		assertEquals(Arrays.asList("Cadeira", "Caneta"), repetidos.sugerir("", 5));
+	}
+
+	@Test
+	public void indiceVazio() {
+		SugestaoIndex vazio = SugestaoIndex.of(new String[0], new String[0], new long[0]);
+		assertEquals(Collections.emptyList(), vazio.sugerir("", 5));
+	}
+
+	//Compara com a ordenação direta do intervalo, em tamanhos que não são potência de dois
+	@Test
+	public void mesmoResultadoQueOrdenarOIntervalo() {
+		Random random = new Random(42);
+		for (int n = 1; n <= 70; n++) {
+			String[] chaves = new String[n];
+			long[] pesos = new long[n];
+			for (int i = 0; i < n; i++) {
+				chaves[i] = (char) ('a' + random.nextInt(3)) + Integer.toString(i, 36);
+				pesos[i] = random.nextInt(5);
+			}
+			SugestaoIndex indice = SugestaoIndex.of(chaves, chaves, pesos);
+			for (String prefixo : new String[] { "", "a", "b", "c" }) {
+				List<Integer> esperados = new ArrayList<>();
+				for (int i = 0; i < n; i++) {
+					if (chaves[i].startsWith(prefixo)) {
+						esperados.add(i);
+					}
+				}
+				esperados.sort((a, b) -> pesos[a] != pesos[b] ? Long.compare(pesos[b], pesos[a]) : chaves[a].compareTo(chaves[b]));
+				List<String> nomes = new ArrayList<>();
+				for (int i = 0; i < Math.min(esperados.size(), 5); i++) {
+					nomes.add(chaves[esperados.get(i)]);
+				}
+				assertEquals(nomes, indice.sugerir(prefixo, 5));
+			}
+		}
+	}
+}
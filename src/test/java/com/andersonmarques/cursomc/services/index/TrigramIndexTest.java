@@ -0,0 +1,86 @@
+package com.andersonmarques.cursomc.services.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TrigramIndexTest {
+
+	private final TrigramIndex indice = TrigramIndex.of(new int[] {10, 20, 30, 40, 50},
+			new String[] {"computador", "mouse", "bcd abc", "aaaa", "impressora"});
+
+	@Test
+	public void encontraOsTextosQueContemOTermoNaOrdemIndexada() {
+		assertArrayEquals(new int[] {10}, indice.search("puta"));
+		assertArrayEquals(new int[] {10, 50}, indice.search("r"));
+		assertArrayEquals(new int[] {20, 50}, indice.search("s"));
+	}
+
+	@Test
+	public void termoVazioDevolveTodos() {
+		assertArrayEquals(new int[] {10, 20, 30, 40, 50}, indice.search(""));
+	}
+
+	//Termos com menos de 3 caracteres não formam trigrama
+	@Test
+	public void termoCurtoVerificaTextoATexto() {
+		assertArrayEquals(new int[] {20}, indice.search("mo"));
+		assertArrayEquals(new int[0], indice.search("zz"));
+	}
+
+	@Test
+	public void trigramaInexistenteNaoEncontraNada() {
+		assertArrayEquals(new int[0], indice.search("teclado"));
+	}
+
+	//"bcd abc" tem os trigramas de "abcd" (abc e bcd), mas não contém "abcd"
+	@Test
+	public void trigramasForaDeOrdemNaoContam() {
+		assertArrayEquals(new int[0], indice.search("abcd"));
+		assertArrayEquals(new int[] {30}, indice.search("bcd"));
+	}
+
+	@Test
+	public void trigramaRepetidoNoTermo() {
+		assertArrayEquals(new int[] {40}, indice.search("aaaa"));
+		assertArrayEquals(new int[0], indice.search("aaaaa"));
+	}
+
+	//Mesmo resultado de um "contains" em todos os textos
+	@Test
+	public void igualABuscaSequencial() {
+		Random random = new Random(42);
+		String[] textos = new String[500];
+		int[] valores = new int[textos.length];
+		for (int i = 0; i < textos.length; i++) {
+			textos[i] = aleatorio(random, 5 + random.nextInt(20));
+			valores[i] = i * 3;
+		}
+		TrigramIndex grande = TrigramIndex.of(valores, textos);
+		assertEquals(500, grande.size());
+		for (int n = 0; n < 300; n++) {
+			String termo = aleatorio(random, 1 + random.nextInt(5));
+			List<Integer> esperado = new ArrayList<>();
+			for (int i = 0; i < textos.length; i++) {
+				if (textos[i].contains(termo)) {
+					esperado.add(valores[i]);
+				}
+			}
+			assertArrayEquals(termo, esperado.stream().mapToInt(Integer::intValue).toArray(), grande.search(termo));
+		}
+	}
+
+	//Alfabeto pequeno para os termos aparecerem com frequência
+	private static String aleatorio(Random random, int tamanho) {
+		StringBuilder texto = new StringBuilder();
+		for (int i = 0; i < tamanho; i++) {
+			texto.append("abcd ".charAt(random.nextInt(5)));
+		}
+		return texto.toString();
+	}
+}
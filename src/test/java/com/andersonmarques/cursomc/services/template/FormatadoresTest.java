@@ -0,0 +1,57 @@
+package com.andersonmarques.cursomc.services.template;
+
+import static org.junit.Assert.assertEquals;
+
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class FormatadoresTest {
+
+	@Test
+	public void moedaComGruposDeMilhar() {
+		assertEquals("R$ 0,00", moeda(0.0));
+		assertEquals("R$ 0,05", moeda(0.05));
+		assertEquals("R$ 80,00", moeda(80.0));
+		assertEquals("R$ 1.000,00", moeda(1000.0));
+		assertEquals("R$ 1.005,50", moeda(1005.5));
+		assertEquals("R$ 12.345.678,90", moeda(12345678.9));
+		assertEquals("-R$ 2,50", moeda(-2.5));
+	}
+
+	//Arredonda como o NumberFormat: HALF_EVEN sobre o valor exato do double
+	@Test
+	public void moedaArredondaComoONumberFormat() {
+		assertEquals("R$ 0,12", moeda(0.125));
+		assertEquals("R$ 0,38", moeda(0.375));
+		//1.005 é guardado como 1,00499...
+		assertEquals("R$ 1,00", moeda(1.005));
+
+		NumberFormat formato = NumberFormat.getCurrencyInstance(new Locale("pt", "BR"));
+		Random random = new Random(7);
+		for (int i = 0; i < 10000; i++) {
+			double valor = (random.nextInt(20000000) + 5) / 1000.0 * (random.nextBoolean() ? 1 : -1);
+			assertEquals(formato.format(valor), moeda(valor));
+		}
+	}
+
+	@Test
+	public void textoEscapadoSoNoHtml() {
+		StringBuilder html = new StringBuilder();
+		Formatadores.texto("<b>Tom & \"Jerry\"</b> d'água", html, true);
+		assertEquals("&lt;b&gt;Tom &amp; &quot;Jerry&quot;&lt;/b&gt; d&#39;água", html.toString());
+
+		StringBuilder texto = new StringBuilder();
+		Formatadores.texto("<b>Tom & Jerry</b>", texto, false);
+		Formatadores.texto(null, texto, false);
+		assertEquals("<b>Tom & Jerry</b>", texto.toString());
+	}
+
+	private static String moeda(double valor) {
+		StringBuilder saida = new StringBuilder();
+		Formatadores.moeda(valor, saida);
+		return saida.toString();
+	}
+}
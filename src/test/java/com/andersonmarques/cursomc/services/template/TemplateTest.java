@@ -0,0 +1,126 @@
+package com.andersonmarques.cursomc.services.template;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.andersonmarques.cursomc.domain.Cliente;
+import com.andersonmarques.cursomc.domain.ItemPedido;
+import com.andersonmarques.cursomc.domain.PagamentoComCartao;
+import com.andersonmarques.cursomc.domain.Pedido;
+import com.andersonmarques.cursomc.domain.Produto;
+import com.andersonmarques.cursomc.domain.enums.EstadoPagamento;
+import com.andersonmarques.cursomc.domain.enums.TipoCliente;
+
+public class TemplateTest {
+
+	private static final Map<String, Template.Valor> VARIAVEIS = new HashMap<>();
+
+	static {
+		VARIAVEIS.put("pedido.id", (pedido, item, saida, html) -> saida.append(pedido.getId()));
+		VARIAVEIS.put("cliente.nome", (pedido, item, saida, html) -> Formatadores.texto(pedido.getCliente().getNome(), saida, html));
+		VARIAVEIS.put("item.produto", (pedido, item, saida, html) -> Formatadores.texto(item.getProduto().getNome(), saida, html));
+		VARIAVEIS.put("item.quantidade", (pedido, item, saida, html) -> saida.append(item.getQuantidade()));
+	}
+
+	@Test
+	public void substituiVariaveisEEscapaSoNoHtml() {
+		Pedido pedido = pedido("Tom & Jerry", "Mouse");
+		String fonte = "Pedido {{pedido.id}} de {{ cliente.nome }}.";
+		assertEquals("Pedido 10 de Tom & Jerry.", Template.compilar(fonte, VARIAVEIS, false).renderizar(pedido));
+		assertEquals("Pedido 10 de Tom &amp; Jerry.", Template.compilar(fonte, VARIAVEIS, true).renderizar(pedido));
+	}
+
+	@Test
+	public void repeteOBlocoParaCadaItem() {
+		Pedido pedido = pedido("Maria", "Mouse", "Teclado");
+		Template template = Template.compilar("Itens:{{#itens}} {{item.quantidade}}x {{item.produto}};{{/itens}} fim", VARIAVEIS, false);
+		String texto = template.renderizar(pedido);
+		assertTrue(texto.startsWith("Itens: "));
+		assertTrue(texto.endsWith("; fim"));
+		assertTrue(texto.contains(" 1x Mouse;"));
+		assertTrue(texto.contains(" 2x Teclado;"));
+		assertEquals("Itens: 1x Mouse; fim".length() + " 2x Teclado;".length(), texto.length());
+
+		//Pedido sem itens: o bloco some
+		assertEquals("Itens: fim", template.renderizar(pedido("Maria")));
+	}
+
+	//O buffer da thread é reaproveitado, uma renderização não pode deixar restos na seguinte
+	@Test
+	public void renderizacoesSeguidasNaoSeMisturam() {
+		Template template = Template.compilar("{{#itens}}{{item.produto}}{{/itens}}", VARIAVEIS, false);
+		StringBuilder grande = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			grande.append('x');
+		}
+		assertEquals(grande.toString(), template.renderizar(pedido("Maria", grande.toString())));
+		assertEquals("Mouse", template.renderizar(pedido("Maria", "Mouse")));
+		assertEquals("", Template.compilar("", VARIAVEIS, false).renderizar(pedido("Maria")));
+	}
+
+	//Erros no template aparecem na compilação, não no envio
+	@Test
+	public void templateInvalidoFalhaNaCompilacao() {
+		for (String fonte : Arrays.asList(
+				"{{pedido.id",
+				"{{desconhecida}}",
+				"{{item.produto}}",
+				"{{#itens}}{{item.produto}}",
+				"{{/itens}}",
+				"{{#itens}}{{#itens}}{{/itens}}{{/itens}}")) {
+			try {
+				Template.compilar(fonte, VARIAVEIS, false);
+				fail("Deveria recusar " + fonte);
+			} catch (IllegalStateException e) {
+				//Esperado
+			}
+		}
+	}
+
+	//O texto continua igual ao do Pedido.toString, usado no email antes dos templates
+	@Test
+	public void pedidoTemplateRenderizaOsArquivosDoEmail() throws IOException {
+		PedidoTemplate pedidoTemplate = new PedidoTemplate();
+		pedidoTemplate.compilar();
+		Pedido pedido = pedido("<Maria>", "Mouse");
+
+		assertEquals(pedido.toString(), pedidoTemplate.texto(pedido));
+		String html = pedidoTemplate.html(pedido);
+		assertTrue(html.contains("Olá, &lt;Maria&gt;."));
+		assertTrue(html.contains("<td>Mouse</td>"));
+		assertTrue(html.contains("R$ 80,00"));
+	}
+
+	//No digest o corpo das outras confirmações entra antes do </body> da primeira
+	@Test
+	public void juntaOsCorposDosDocumentosHtml() throws IOException {
+		PedidoTemplate pedidoTemplate = new PedidoTemplate();
+		pedidoTemplate.compilar();
+		String juntos = pedidoTemplate.juntarHtml(Arrays.asList(
+				"<html><body class=\"a\">\num\n</body></html>",
+				"<html><body>\ndois\n</body></html>",
+				"<html><body>\ntres\n</body></html>"));
+		assertEquals("<html><body class=\"a\">\num\n\t<hr>\n\ndois\n\t<hr>\n\ntres\n</body></html>", juntos);
+		assertFalse(pedidoTemplate.juntarHtml(Arrays.asList(pedidoTemplate.html(pedido("Maria", "Mouse")))).contains("<hr>"));
+	}
+
+	private static Pedido pedido(String cliente, String... produtos) {
+		Pedido pedido = new Pedido(10L, new Date(), new Cliente(1L, cliente, "cliente@email.com", "00000000000",
+				TipoCliente.PESSOAFISICA, "senha"), null);
+		pedido.setPagamento(new PagamentoComCartao(10L, EstadoPagamento.QUITADO, pedido, 1));
+		for (int i = 0; i < produtos.length; i++) {
+			pedido.getItens().add(new ItemPedido(pedido, new Produto(i + 1, produtos[i], 80.0), 0.0, i + 1, 80.0));
+		}
+		return pedido;
+	}
+}
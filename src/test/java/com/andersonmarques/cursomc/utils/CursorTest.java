@@ -0,0 +1,80 @@
+package com.andersonmarques.cursomc.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.andersonmarques.cursomc.services.exceptions.CursorException;
+
+public class CursorTest {
+
+	@Test
+	public void decodificaOQueFoiCodificado() {
+		Cursor cursor = Cursor.decode(Cursor.encode("nome", "ASC", 42, "Cama | mesa"), "nome", "ASC");
+		assertEquals(42, cursor.getId(Integer.class));
+		assertEquals("Cama | mesa", cursor.getValor(String.class));
+		assertEquals(Long.valueOf(42), cursor.getId(Long.class));
+
+		Date instante = new Date(1530000000000L);
+		Cursor porData = Cursor.decode(Cursor.encode("instante", "DESC", 7L, instante), "instante", "DESC");
+		assertEquals(instante, porData.getValor(Date.class));
+
+		Cursor porPreco = Cursor.decode(Cursor.encode("preco", "ASC", 1, 80.5), "preco", "ASC");
+		assertEquals(80.5, porPreco.getValor(Double.class));
+	}
+
+	@Test
+	public void valorNuloEDiferenteDeTextoVazio() {
+		Cursor nulo = Cursor.decode(Cursor.encode("nome", "ASC", 1, null), "nome", "ASC");
+		assertTrue(nulo.isValorNulo());
+		assertNull(nulo.getValor(String.class));
+
+		Cursor vazio = Cursor.decode(Cursor.encode("nome", "ASC", 1, ""), "nome", "ASC");
+		assertEquals("", vazio.getValor(String.class));
+	}
+
+	@Test
+	public void semCursorEPrimeiraPagina() {
+		assertNull(Cursor.decode(null, "nome", "ASC"));
+		assertNull(Cursor.decode("", "nome", "ASC"));
+	}
+
+	@Test
+	public void cursorDeOutraOrdenacaoERecusado() {
+		String token = Cursor.encode("nome", "ASC", 1, "a");
+		invalido(token, "preco", "ASC");
+		invalido(token, "nome", "DESC");
+	}
+
+	//O cursor é só Base64, o cliente pode devolver qualquer coisa
+	@Test
+	public void cursorAlteradoERecusado() {
+		invalido("%%%", "nome", "ASC");
+		invalido(base64("nome|ASC|1"), "nome", "ASC");
+		invalido(base64("nome|ASC|1|"), "nome", "ASC");
+		invalido(base64("id|ASC|1 OR 1=1|v1"), "id", "ASC");
+		invalido(base64("preco|ASC|1|vbarato"), "preco", "ASC");
+	}
+
+	private static void invalido(String token, String orderBy, String direction) {
+		try {
+			Cursor cursor = Cursor.decode(token, orderBy, direction);
+			cursor.getId(Integer.class);
+			cursor.getValor(Double.class);
+			fail("Cursor aceito: " + token);
+		} catch (CursorException e) {
+			//Esperado
+		}
+	}
+
+	private static String base64(String texto) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+	}
+}
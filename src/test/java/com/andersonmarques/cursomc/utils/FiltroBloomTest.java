@@ -0,0 +1,86 @@
+package com.andersonmarques.cursomc.utils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class FiltroBloomTest {
+
+	@Test
+	public void valorAdicionadoSempreEncontrado() {
+		FiltroBloom filtro = new FiltroBloom(10000, 0.01);
+		for (int i = 0; i < 10000; i++) {
+			filtro.adicionar("token-" + i);
+		}
+		for (int i = 0; i < 10000; i++) {
+			assertTrue(filtro.talvezContem("token-" + i));
+		}
+	}
+
+	@Test
+	public void filtroVazioNaoContemNada() {
+		FiltroBloom filtro = new FiltroBloom(100, 0.01);
+		assertFalse(filtro.talvezContem("token"));
+		assertFalse(filtro.talvezContem(""));
+	}
+
+	//Na capacidade a taxa de falso positivo fica perto da escolhida
+	@Test
+	public void falsoPositivoPertoDaTaxaEscolhida() {
+		FiltroBloom filtro = new FiltroBloom(10000, 0.01);
+		for (int i = 0; i < 10000; i++) {
+			filtro.adicionar("cliente:" + i);
+		}
+		int falsos = 0;
+		for (int i = 0; i < 100000; i++) {
+			if (filtro.talvezContem("outro:" + i)) {
+				falsos++;
+			}
+		}
+		assertTrue("falsos positivos: " + falsos, falsos < 2000);
+	}
+
+	//Capacidade zero ainda monta um filtro que funciona
+	@Test
+	public void capacidadeMinima() {
+		FiltroBloom filtro = new FiltroBloom(0, 0.01);
+		filtro.adicionar("a");
+		assertTrue(filtro.talvezContem("a"));
+	}
+
+	//Inclusões ao mesmo tempo na mesma palavra de bits não se perdem
+	@Test
+	public void inclusoesConcorrentesNaoSePerdem() throws Exception {
+		FiltroBloom filtro = new FiltroBloom(40000, 0.01);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> tarefas = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				int thread = t;
+				tarefas.add(executor.submit(() -> {
+					for (int i = 0; i < 5000; i++) {
+						filtro.adicionar(thread + ":" + i);
+					}
+				}));
+			}
+			for (Future<?> tarefa : tarefas) {
+				tarefa.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		for (int t = 0; t < 8; t++) {
+			for (int i = 0; i < 5000; i++) {
+				assertTrue(filtro.talvezContem(t + ":" + i));
+			}
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package com.andersonmarques.cursomc.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.service.ServiceRegistry;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class SnowflakeIdGeneratorTest {
+
+	private static final long EPOCA = 1514764800000L;
+
+	@Test
+	public void idsCrescentesComONoNoMeio() {
+		SnowflakeIdGenerator gerador = gerador("5");
+		long anterior = 0;
+		for (int i = 0; i < 10000; i++) {
+			long id = gerador.proximo();
+			assertTrue(id > anterior);
+			assertEquals(5, (id >>> 12) & 1023);
+			anterior = id;
+		}
+		long milissegundo = (anterior >>> 22) + EPOCA;
+		assertTrue(Math.abs(System.currentTimeMillis() - milissegundo) < 60000);
+	}
+
+	//Com o relógio atrás do último id a sequência continua a partir dele, sem repetir nem voltar
+	@Test
+	public void relogioVoltandoNaoRepeteIds() {
+		SnowflakeIdGenerator gerador = gerador("1");
+		long futuro = System.currentTimeMillis() - EPOCA + 60000;
+		ultimo(gerador).set(futuro << 12);
+
+		long primeiro = gerador.proximo();
+		assertEquals(futuro, primeiro >>> 22);
+		assertEquals(1, primeiro & 4095);
+		assertTrue(gerador.proximo() > primeiro);
+	}
+
+	//Quando a sequência do milissegundo estoura, o "vai um" passa para o milissegundo seguinte
+	@Test
+	public void sequenciaCheiaAvancaOMilissegundo() {
+		SnowflakeIdGenerator gerador = gerador("1");
+		long futuro = System.currentTimeMillis() - EPOCA + 60000;
+		ultimo(gerador).set((futuro << 12) | 4095);
+
+		long id = gerador.proximo();
+		assertEquals(futuro + 1, id >>> 22);
+		assertEquals(0, id & 4095);
+	}
+
+	@Test
+	public void variasThreadsNaoGeramIdsRepetidos() throws Exception {
+		SnowflakeIdGenerator gerador = gerador("0");
+		Set<Long> ids = ConcurrentHashMap.newKeySet();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> tarefas = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				tarefas.add(executor.submit(() -> {
+					for (int i = 0; i < 20000; i++) {
+						ids.add(gerador.proximo());
+					}
+				}));
+			}
+			for (Future<?> tarefa : tarefas) {
+				tarefa.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(160000, ids.size());
+	}
+
+	//Instâncias em nós diferentes no mesmo milissegundo geram ids diferentes
+	@Test
+	public void nosDiferentesNaoColidem() {
+		SnowflakeIdGenerator a = gerador("1");
+		SnowflakeIdGenerator b = gerador("2");
+		long agora = System.currentTimeMillis() - EPOCA + 60000;
+		ultimo(a).set(agora << 12);
+		ultimo(b).set(agora << 12);
+		Set<Long> ids = new HashSet<>();
+		for (int i = 0; i < 100; i++) {
+			ids.add(a.proximo());
+			ids.add(b.proximo());
+		}
+		assertEquals(200, ids.size());
+	}
+
+	@Test
+	public void noInvalidoNaConfiguracao() {
+		for (String valor : new String[] { "-1", "1024", "abc" }) {
+			try {
+				gerador(valor);
+				fail("Deveria recusar o nó " + valor);
+			} catch (MappingException e) {
+				assertTrue(e.getMessage().contains(SnowflakeIdGenerator.NODE));
+			}
+		}
+		assertEquals(0, (gerador(null).proximo() >>> 12) & 1023);
+		assertEquals(1023, (gerador(" 1023 ").proximo() >>> 12) & 1023);
+	}
+
+	private static SnowflakeIdGenerator gerador(String no) {
+		ConfigurationService configuracao = mock(ConfigurationService.class);
+		when(configuracao.getSettings()).thenReturn(no == null ? Collections.emptyMap()
+				: Collections.singletonMap(SnowflakeIdGenerator.NODE, no));
+		ServiceRegistry registro = mock(ServiceRegistry.class);
+		when(registro.getService(ConfigurationService.class)).thenReturn(configuracao);
+
+		SnowflakeIdGenerator gerador = new SnowflakeIdGenerator();
+		gerador.configure(null, new Properties(), registro);
+		return gerador;
+	}
+
+	private static AtomicLong ultimo(SnowflakeIdGenerator gerador) {
+		return (AtomicLong) ReflectionTestUtils.getField(gerador, "ultimo");
+	}
+}